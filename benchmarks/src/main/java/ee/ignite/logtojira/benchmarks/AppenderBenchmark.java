@@ -0,0 +1,100 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ignite.logtojira.JiraTransport;
+import ee.ignite.logtojira.LogToJira;
+import ee.ignite.logtojira.LogToJiraAppender;
+
+/**
+ * Latency of LogToJiraAppender.doAppend() against the stub transport, with
+ * and without the issue cache, and of a disabled appender.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AppenderBenchmark {
+
+	@Param({ "1000", "0" })
+	public int issueCacheSize;
+
+	private LogToJiraAppender enabled;
+	private LogToJiraAppender disabled;
+	private LoggingEvent event;
+
+	@Setup
+	public void setUp() {
+		event = Events.loggingError();
+		enabled = createAppender(true);
+		disabled = createAppender(false);
+	}
+
+	@TearDown
+	public void tearDown() {
+		enabled.close();
+		disabled.close();
+	}
+
+	private LogToJiraAppender createAppender(boolean on) {
+
+		final JiraTransport transport = new StubJiraTransport(true);
+
+		LogToJiraAppender appender = new LogToJiraAppender(new LogToJira() {
+			@Override
+			protected JiraTransport getTransport() {
+				return transport;
+			}
+		}) {
+		};
+
+		appender.setName("jira");
+		appender.setProject("TST");
+		appender.setIssueTypeId("1");
+		appender.setIssueCacheSize(issueCacheSize);
+		appender.setEnabled(on);
+		appender.activateOptions();
+		return appender;
+	}
+
+	@Benchmark
+	public void appendEnabled() {
+		enabled.doAppend(event);
+	}
+
+	@Benchmark
+	public void appendDisabled() {
+		disabled.doAppend(event);
+	}
+}
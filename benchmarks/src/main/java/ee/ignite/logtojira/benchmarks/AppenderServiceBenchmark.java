@@ -0,0 +1,98 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ignite.logtojira.AppenderServiceImpl;
+import ee.ignite.logtojira.Config;
+import ee.ignite.logtojira.EnvironmentRenderer;
+import ee.ignite.logtojira.Event;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+/**
+ * Issue composition and duplicate lookup of AppenderServiceImpl. The issue
+ * cache is off, so that every lookup builds its JQL and hits the stub.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AppenderServiceBenchmark {
+
+	/**
+	 * Empty for the summary and description search, otherwise the field
+	 * that holds the fingerprint.
+	 */
+	@Param({ "", "labels", "customfield_10010" })
+	public String fingerprintField;
+
+	private AppenderServiceImpl service;
+	private EnvironmentRenderer environmentRenderer;
+	private Event event;
+	private RemoteIssue issue;
+
+	@Setup
+	public void setUp() {
+
+		Config config = new Config();
+		config.setProject("TST");
+		config.setIssueTypeId("1");
+		config.setIssueCacheSize(0);
+		if (fingerprintField.length() > 0) {
+			config.setFingerprintField(fingerprintField);
+		}
+
+		service = new AppenderServiceImpl(config, new StubJiraTransport(true));
+		environmentRenderer = new EnvironmentRenderer(config.getEnvironmentIncludes(),
+				config.getEnvironmentExcludes());
+		event = Events.error();
+		issue = service.createIssue(event);
+	}
+
+	@Benchmark
+	public RemoteIssue createIssue() {
+		return service.createIssue(event);
+	}
+
+	/**
+	 * What composeEnvironmentDescription() does for every issue.
+	 */
+	@Benchmark
+	public String composeEnvironmentDescription() {
+		return environmentRenderer.render();
+	}
+
+	@Benchmark
+	public RemoteIssue getLatestDuplicate() throws RemoteException {
+		return service.getLatestDuplicate(issue, "token");
+	}
+}
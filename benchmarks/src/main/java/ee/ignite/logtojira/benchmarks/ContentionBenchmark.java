@@ -0,0 +1,102 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ignite.logtojira.ConcurrentLogToJiraAppender;
+import ee.ignite.logtojira.JiraTransport;
+import ee.ignite.logtojira.LogToJira;
+import ee.ignite.logtojira.LogToJiraAppender;
+
+/**
+ * Latency of doAppend() with 64 threads logging errors at once, through
+ * the synchronized doAppend of log4j, through the unsynchronized doAppend
+ * over the striped ArrayBlockingQueues and over lock-free queues. All run
+ * async with a small queue, so most events are dropped and the numbers are
+ * those of the intake alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+	@Param({ "synchronized", "concurrent", "lock-free" })
+	public String intake;
+
+	private LogToJiraAppender appender;
+	private LoggingEvent event;
+
+	@Setup
+	public void setUp() {
+
+		event = Events.loggingError();
+		final JiraTransport transport = new StubJiraTransport(true);
+		LogToJira jira = new LogToJira() {
+			@Override
+			protected JiraTransport getTransport() {
+				return transport;
+			}
+		};
+
+		if ("concurrent".equals(intake) || "lock-free".equals(intake)) {
+			appender = new ConcurrentLogToJiraAppender(jira) {
+			};
+		} else {
+			appender = new LogToJiraAppender(jira) {
+			};
+		}
+
+		appender.setName("jira");
+		appender.setProject("TST");
+		appender.setIssueTypeId("1");
+		appender.setAsync(true);
+		appender.setWorkers(4);
+		appender.setQueueSize(64);
+		appender.setShutdownTimeout(0);
+		appender.setLockFreeQueue("lock-free".equals(intake));
+		appender.activateOptions();
+	}
+
+	@TearDown
+	public void tearDown() {
+		appender.close();
+	}
+
+	@Benchmark
+	public void append() {
+		appender.doAppend(event);
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.spi.LoggingEvent;
+
+import ee.ignite.logtojira.Event;
+import ee.ignite.logtojira.log4j.LoggingEvents;
+
+/**
+ * Logging events shaped like the ones the appenders meet in practice: an
+ * error with a stack trace some 40 frames deep and a few MDC entries.
+ */
+final class Events {
+
+	private Events() {
+	}
+
+	static Event error() {
+		return LoggingEvents.toEvent(loggingError());
+	}
+
+	static LoggingEvent loggingError() {
+		MDC.put("user", "benchmark");
+		MDC.put("request", "42");
+		Logger logger = Logger.getLogger(Events.class);
+		return new LoggingEvent(Logger.class.getName(), logger, Level.ERROR,
+				"Order processing failed", deepThrowable(40));
+	}
+
+	private static Throwable deepThrowable(int depth) {
+		try {
+			recurse(depth);
+		} catch (IllegalStateException e) {
+			return e;
+		}
+		throw new AssertionError();
+	}
+
+	private static void recurse(int depth) {
+		if (depth == 0) {
+			throw new IllegalStateException("boom");
+		}
+		recurse(depth - 1);
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks like the JMH launcher does, but with the gc profiler,
+ * so that the allocation rate is reported next to the time. Takes the usual
+ * JMH command line options, and --no-gc to leave the profiler out.
+ */
+public class Main {
+
+	private static final String NO_GC = "--no-gc";
+
+	public static void main(String[] args) throws Exception {
+
+		List<String> options = new ArrayList<String>(Arrays.asList(args));
+		boolean gc = !options.remove(NO_GC);
+
+		ChainedOptionsBuilder builder = new OptionsBuilder()
+				.parent(new CommandLineOptions(options.toArray(new String[options.size()])));
+		if (gc) {
+			builder.addProfiler(GCProfiler.class);
+		}
+
+		new Runner(builder.build()).run();
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ignite.logtojira.AppenderServiceImpl;
+import ee.ignite.logtojira.Config;
+import ee.ignite.logtojira.Event;
+import ee.ignite.logtojira.plugin.EventPlugin;
+import ee.ignite.logtojira.soap.RemoteComment;
+
+/**
+ * Comment of each bundled plugin as AppenderServiceImpl creates it, so that
+ * the text cached for streaming plugins is part of the numbers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PluginBenchmark {
+
+	@Param({ "MDCPlugin", "RuntimePlugin", "SystemPropertiesPlugin", "TimestampPlugin" })
+	public String plugin;
+
+	private AppenderServiceImpl service;
+	private EventPlugin instance;
+	private Event event;
+
+	@Setup
+	public void setUp() throws Exception {
+
+		Config config = new Config();
+		config.setProject("TST");
+		config.setIssueTypeId("1");
+
+		service = new AppenderServiceImpl(config, new StubJiraTransport(true));
+		instance = (EventPlugin) Class.forName("ee.ignite.logtojira.plugin." + plugin).newInstance();
+		event = Events.error();
+	}
+
+	@Benchmark
+	public RemoteComment createComment() {
+		return service.createComment(instance, event);
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ignite.logtojira.BoundedConcurrentQueue;
+
+/**
+ * A worker queue of the async dispatcher with 16 logging threads offering
+ * and 4 workers polling, for the ArrayBlockingQueue the dispatcher uses and
+ * the lock-free BoundedConcurrentQueue. Only meaningful on a machine with
+ * several cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class QueueBenchmark {
+
+	private static final Object ELEMENT = new Object();
+
+	@Param({ "ArrayBlockingQueue", "BoundedConcurrentQueue" })
+	public String queue;
+
+	private BlockingQueue<Object> instance;
+
+	@Setup
+	public void setUp() {
+		if ("ArrayBlockingQueue".equals(queue)) {
+			instance = new ArrayBlockingQueue<Object>(64);
+		} else {
+			instance = new BoundedConcurrentQueue<Object>(64);
+		}
+	}
+
+	@Benchmark
+	@Group("handover")
+	@GroupThreads(16)
+	public boolean offer() {
+		return instance.offer(ELEMENT);
+	}
+
+	@Benchmark
+	@Group("handover")
+	@GroupThreads(4)
+	public Object poll() {
+		return instance.poll();
+	}
+}
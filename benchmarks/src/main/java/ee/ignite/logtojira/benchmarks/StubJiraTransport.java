@@ -0,0 +1,87 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.rmi.RemoteException;
+
+import ee.ignite.logtojira.Attachment;
+import ee.ignite.logtojira.JiraTransport;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+/**
+ * Answers every call from memory. Searches find one open issue, unless
+ * created with no duplicates, in which case every search comes back empty.
+ */
+public class StubJiraTransport implements JiraTransport {
+
+	private static final RemoteIssue[] NONE = new RemoteIssue[0];
+	private static final RemoteComment[] NO_COMMENTS = new RemoteComment[0];
+
+	private final RemoteIssue[] found;
+
+	public StubJiraTransport(boolean duplicates) {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setKey("TST-1");
+		issue.setStatus("1");
+		this.found = duplicates ? new RemoteIssue[] { issue } : NONE;
+	}
+
+	@Override
+	public String login(String username, String password) throws RemoteException {
+		return "token";
+	}
+
+	@Override
+	public boolean logout(String token) throws RemoteException {
+		return true;
+	}
+
+	@Override
+	public RemoteIssue[] getIssuesFromJqlSearch(String token, String jql, int maxResults)
+			throws RemoteException {
+		return found;
+	}
+
+	@Override
+	public RemoteIssue createIssue(String token, RemoteIssue issue) throws RemoteException {
+		RemoteIssue created = new RemoteIssue();
+		created.setKey("TST-2");
+		created.setSummary(issue.getSummary());
+		created.setDescription(issue.getDescription());
+		return created;
+	}
+
+	@Override
+	public RemoteIssue updateIssue(String token, String issueKey, RemoteFieldValue[] fieldValues)
+			throws RemoteException {
+		return null;
+	}
+
+	@Override
+	public void addComment(String token, String issueKey, RemoteComment comment) throws RemoteException {
+	}
+
+	@Override
+	public RemoteComment[] getComments(String token, String issueKey) throws RemoteException {
+		return NO_COMMENTS;
+	}
+
+	@Override
+	public void addAttachment(String token, String issueKey, Attachment attachment) throws RemoteException {
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import ee.ignite.logtojira.JiraTransport;
+import ee.ignite.logtojira.LogToJira;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+/**
+ * The SOAP and REST transports on a JQL search answered by a local stub
+ * server with the same issues in both formats, so that parsing and the
+ * HTTP round trip are part of the numbers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransportBenchmark {
+
+	private static final int ISSUES = 20;
+	private static final String DESCRIPTION;
+
+	static {
+		StringBuilder trace = new StringBuilder("java.lang.IllegalStateException: boom\n");
+		for (int i = 0; i < 40; i++) {
+			trace.append("\tat com.example.service.Component").append(i).append(".handle(Component")
+					.append(i).append(".java:").append(100 + i).append(")\n");
+		}
+		DESCRIPTION = trace.toString();
+	}
+
+	@Param({ "soap", "soap-keep-alive", "rest" })
+	public String transport;
+
+	private HttpServer server;
+	private JiraTransport client;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		// the stub writes headers and body separately, keep Nagle out of the numbers
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/jira/rpc/soap/jirasoapservice-v2", new Stub("text/xml; charset=utf-8", soapResponse()));
+		server.createContext("/jira/rest/api/2/search", new Stub("application/json", restResponse()));
+		server.start();
+
+		Transports transports = new Transports();
+		transports.setUrl("http://localhost:" + server.getAddress().getPort() + "/jira/rpc/soap/jirasoapservice-v2");
+		transports.setTransport(transport.startsWith("soap") ? "soap" : "rest");
+		transports.setKeepAlive(transport.endsWith("keep-alive"));
+		client = transports.getTransport();
+	}
+
+	@TearDown
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	@Benchmark
+	public RemoteIssue[] search() throws Exception {
+		RemoteIssue[] issues = client.getIssuesFromJqlSearch("token", "project = TST", ISSUES);
+		if (issues.length != ISSUES || !DESCRIPTION.equals(issues[ISSUES - 1].getDescription())) {
+			throw new IllegalStateException("Unexpected search result");
+		}
+		return issues;
+	}
+
+	private static byte[] soapResponse() throws IOException {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		xml.append("<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"");
+		xml.append(" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"");
+		xml.append(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">");
+		xml.append("<soapenv:Body>");
+		xml.append("<ns1:getIssuesFromJqlSearchResponse");
+		xml.append(" soapenv:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"");
+		xml.append(" xmlns:ns1=\"https://ignite.jira.com/rpc/soap/jirasoapservice-v2\">");
+		xml.append("<getIssuesFromJqlSearchReturn soapenc:arrayType=\"ns2:RemoteIssue[").append(ISSUES).append("]\"");
+		xml.append(" xsi:type=\"soapenc:Array\" xmlns:ns2=\"http://beans.soap.rpc.jira.atlassian.com\"");
+		xml.append(" xmlns:soapenc=\"http://schemas.xmlsoap.org/soap/encoding/\">");
+		for (int i = 0; i < ISSUES; i++) {
+			xml.append("<item xsi:type=\"ns2:RemoteIssue\">");
+			xml.append("<id xsi:type=\"xsd:string\">").append(10000 + i).append("</id>");
+			xml.append("<key xsi:type=\"xsd:string\">TST-").append(i).append("</key>");
+			xml.append("<summary xsi:type=\"xsd:string\">the summary</summary>");
+			xml.append("<description xsi:type=\"xsd:string\">").append(DESCRIPTION).append("</description>");
+			xml.append("<status xsi:type=\"xsd:string\">1</status>");
+			xml.append("</item>");
+		}
+		xml.append("</getIssuesFromJqlSearchReturn>");
+		xml.append("</ns1:getIssuesFromJqlSearchResponse>");
+		xml.append("</soapenv:Body></soapenv:Envelope>");
+		return xml.toString().getBytes("UTF-8");
+	}
+
+	private static byte[] restResponse() throws IOException {
+		String description = DESCRIPTION.replace("\n", "\\n").replace("\t", "\\t");
+		StringBuilder json = new StringBuilder();
+		json.append("{\"startAt\":0,\"maxResults\":").append(ISSUES).append(",\"total\":").append(ISSUES);
+		json.append(",\"issues\":[");
+		for (int i = 0; i < ISSUES; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":\"").append(10000 + i).append("\",\"key\":\"TST-").append(i).append("\",");
+			json.append("\"fields\":{\"summary\":\"the summary\",\"description\":\"").append(description);
+			json.append("\",\"status\":{\"id\":\"1\",\"name\":\"Open\"}}}");
+		}
+		json.append("]}");
+		return json.toString().getBytes("UTF-8");
+	}
+
+	private static class Stub implements HttpHandler {
+
+		private final String contentType;
+		private final byte[] response;
+
+		private Stub(String contentType, byte[] response) {
+			this.contentType = contentType;
+			this.response = response;
+		}
+
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			InputStream in = exchange.getRequestBody();
+			byte[] buffer = new byte[4096];
+			while (in.read(buffer) != -1) {
+				// drain
+			}
+			exchange.getResponseHeaders().set("Content-Type", contentType);
+			if ("HTTP/1.0".equals(exchange.getProtocol())) {
+				// the plain Axis sender reads until the connection closes
+				exchange.getResponseHeaders().set("Connection", "close");
+			}
+			exchange.sendResponseHeaders(200, response.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(response);
+			out.close();
+		}
+	}
+
+	/**
+	 * Builds the transport the way the appender does.
+	 */
+	private static class Transports extends LogToJira {
+
+		@Override
+		protected JiraTransport getTransport() {
+			return super.getTransport();
+		}
+	}
+}
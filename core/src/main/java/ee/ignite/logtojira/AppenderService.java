@@ -17,21 +17,31 @@ package ee.ignite.logtojira;
 
 import java.rmi.RemoteException;
 
-import org.apache.log4j.spi.LoggingEvent;
-
-import ee.ignite.logtojira.plugin.Plugin;
+import ee.ignite.logtojira.plugin.EventPlugin;
 import ee.ignite.logtojira.soap.RemoteComment;
 import ee.ignite.logtojira.soap.RemoteIssue;
 
 public interface AppenderService {
 
-	RemoteIssue createIssue(LoggingEvent loggingEvent) throws RemoteException, RemoteException;
+	RemoteIssue createIssue(Event event) throws RemoteException, RemoteException;
 
-	RemoteComment createComment(Plugin plugin, LoggingEvent loggingEvent);
+	RemoteComment createComment(EventPlugin plugin, Event event);
 
 	RemoteIssue getLatestDuplicate(RemoteIssue issue, String token) throws RemoteException, RemoteException;
 
 	boolean duplicateExists(RemoteIssue issue, String token) throws RemoteException, RemoteException;
 
+	String fingerprint(RemoteIssue issue);
+
+	void issueCreated(RemoteIssue issue, RemoteIssue created, String token) throws RemoteException;
+
+	boolean forgetIssue(RemoteIssue issue);
+
+	void commentAdded(RemoteComment comment, RemoteIssue issue);
+
 	boolean duplicateExists(RemoteComment comment, RemoteIssue issue, String token) throws RemoteException, RemoteException;
+
+	Attachment createDiagnostics(Event event);
+
+	void syncOpenIssues(String token) throws RemoteException;
 }
@@ -0,0 +1,431 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static org.apache.commons.lang.StringEscapeUtils.escapeJava;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+import ee.ignite.logtojira.plugin.EventPlugin;
+import ee.ignite.logtojira.plugin.StreamingPlugin;
+import ee.ignite.logtojira.soap.RemoteAuthenticationException;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteCustomFieldValue;
+import ee.ignite.logtojira.soap.RemoteFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+public class AppenderServiceImpl implements AppenderService {
+
+	private static final String LABELS = "labels";
+	private static final String CUSTOM_FIELD_PREFIX = "customfield_";
+	private static final int LABEL_ATTEMPTS = 3;
+	private static final Pattern LINE_NUMBER = Pattern.compile(":\\d+\\)$", Pattern.MULTILINE);
+	private static final int COMPACT_STACK_FRAMES = 10;
+	private static final int COMPACT_DESCRIPTION_LENGTH = 2000;
+	private static final Pattern MORE_FRAMES = Pattern.compile("^\\s*\\.\\.\\. \\d+ more$", Pattern.MULTILINE);
+
+	private static final int MAX_BUFFER_CAPACITY = 64 * 1024;
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(1024);
+		}
+	};
+
+	private Config config;
+	private final JiraTransport jiraService;
+	private final IssueKeyCache issueKeyCache;
+	private final EnvironmentRenderer environmentRenderer;
+	private final StackTraceRenderer stackTraceRenderer;
+	private final CommentIndex commentIndex;
+	private final DedupIndex dedupIndex;
+	private final OpenIssueIndex openIssueIndex;
+	private final ConcurrentMap<EventPlugin, String> pluginTexts = new ConcurrentHashMap<EventPlugin, String>();
+
+	public AppenderServiceImpl(Config config, JiraTransport jiraService) {
+		this(config, jiraService, null);
+	}
+
+	public AppenderServiceImpl(Config config, JiraTransport jiraService, DedupIndex dedupIndex) {
+		this.config = config;
+		this.jiraService = jiraService;
+		this.dedupIndex = dedupIndex;
+		this.issueKeyCache = config.getIssueCacheSize() > 0
+				? new IssueKeyCache(config.getIssueCacheSize(), config.getIssueCacheTtl())
+				: null;
+		this.commentIndex = config.getCommentIndexSize() > 0
+				? new CommentIndex(config.getCommentIndexSize())
+				: null;
+		this.environmentRenderer = new EnvironmentRenderer(
+				config.getEnvironmentIncludes(), config.getEnvironmentExcludes());
+		// the plain description is that of printStackTrace unless asked otherwise, as open issues are found by it
+		this.stackTraceRenderer = config.isCompactDescription()
+				? new StackTraceRenderer(compact(config.getMaxStackFrames(), COMPACT_STACK_FRAMES),
+						compact(config.getMaxDescriptionLength(), COMPACT_DESCRIPTION_LENGTH), true)
+				: new StackTraceRenderer(config.getMaxStackFrames(), config.getMaxDescriptionLength(),
+						config.isCollapseFrameworkFrames());
+		this.openIssueIndex = config.getOpenIssueSyncInterval() > 0
+				? new OpenIssueIndex(config.getProject(), config.getOpenIssuePageSize(), jiraService, this)
+				: null;
+	}
+
+	private static int compact(int limit, int compactLimit) {
+		return limit > 0 ? Math.min(limit, compactLimit) : compactLimit;
+	}
+
+	@Override
+	public RemoteIssue createIssue(Event event) {
+		RemoteIssue result = new RemoteIssue();
+
+		result.setProject(config.getProject());
+		result.setType(config.getIssueTypeId());
+		result.setSummary(event.getMessage());
+		if (config.isCompactDescription()) {
+			// the rest goes into the diagnostics attachment
+			result.setDescription(LINE_NUMBER.matcher(composeDescription(event)).replaceAll(")"));
+		} else {
+			result.setDescription(composeDescription(event));
+			result.setEnvironment(composeEnvironmentDescription());
+		}
+
+		String field = config.getFingerprintField();
+		if (field != null && field.startsWith(CUSTOM_FIELD_PREFIX)) {
+			result.setCustomFieldValues(new RemoteCustomFieldValue[] {
+					new RemoteCustomFieldValue(field, null, new String[] { fingerprintLabel(result) }) });
+		}
+
+		return result;
+	}
+
+	private String composeDescription(Event event) {
+		// spooled events come back with the rendered stack trace only
+		return event.hasThrowable() ? stackTraceRenderer.render(event) : "";
+	}
+
+	private String composeEnvironmentDescription() {
+		return environmentRenderer.render();
+	}
+
+	@Override
+	public Attachment createDiagnostics(Event event) {
+		return new DiagnosticsAttachment(event, environmentRenderer);
+	}
+
+
+	@Override
+	public RemoteIssue getLatestDuplicate(RemoteIssue issue, String token) throws RemoteException,
+			RemoteException {
+
+		if (openIssueIndex != null && openIssueIndex.isLoaded()) {
+			String key = openIssueIndex.get(issue);
+			if (key != null) {
+				return cachedIssue(issue, key);
+			}
+			// created elsewhere since the last sync, or not at all
+		}
+
+		String fingerprint = fingerprint(issue);
+
+		if (issueKeyCache != null) {
+			String key = issueKeyCache.get(fingerprint);
+			if (key != null) {
+				return cachedIssue(issue, key);
+			}
+		}
+
+		if (dedupIndex != null) {
+			DedupIndex.Entry entry = dedupIndex.get(fingerprint);
+			if (entry != null && entry.getUpdated() + config.getDedupIndexTtl() > System.currentTimeMillis()) {
+				if (issueKeyCache != null) {
+					issueKeyCache.put(fingerprint, entry.getIssueKey());
+				}
+				return cachedIssue(issue, entry.getIssueKey());
+			}
+		}
+
+		StringBuilder JQL = new StringBuilder();
+		JQL.append("project = ");
+		JQL.append(config.getProject());
+		if (config.getFingerprintField() != null) {
+			appendFingerprintClause(JQL, issue);
+		} else {
+			JQL.append(" AND summary ~ \"\\\"");
+			JQL.append(escapeJava(issue.getSummary()));
+			JQL.append("\\\"\" AND description ");
+			if (StringUtils.isBlank(issue.getDescription())) {
+				JQL.append("IS EMPTY");
+			} else {
+				JQL.append("~ \"\\\"");
+				JQL.append(escapeJava(issue.getDescription()));
+				JQL.append("\\\"\"");
+			}
+		}
+		JQL.append(" AND status in (Open, \"In Progress\", Reopened)");
+		JQL.append(" ORDER BY created");
+
+		RemoteIssue[] duplicates = jiraService.getIssuesFromJqlSearch(token, JQL.toString(), 1);
+
+		if (duplicates.length == 0) {
+			return null;
+		}
+
+		if (issueKeyCache != null) {
+			issueKeyCache.put(fingerprint, duplicates[0].getKey());
+		}
+
+		if (dedupIndex != null) {
+			dedupIndex.put(fingerprint, duplicates[0].getKey());
+		}
+
+		return duplicates[0];
+	}
+
+	private RemoteIssue cachedIssue(RemoteIssue issue, String key) {
+		RemoteIssue cached = new RemoteIssue();
+		cached.setKey(key);
+		cached.setSummary(issue.getSummary());
+		cached.setDescription(issue.getDescription());
+		return cached;
+	}
+
+	private void appendFingerprintClause(StringBuilder JQL, RemoteIssue issue) {
+
+		String field = config.getFingerprintField();
+
+		if (LABELS.equals(field)) {
+			JQL.append(" AND labels = ");
+			JQL.append(fingerprintLabel(issue));
+		} else {
+			JQL.append(" AND cf[");
+			JQL.append(field.substring(CUSTOM_FIELD_PREFIX.length()));
+			JQL.append("] = \"");
+			JQL.append(fingerprintLabel(issue));
+			JQL.append("\"");
+		}
+	}
+
+	@Override
+	public void issueCreated(RemoteIssue issue, RemoteIssue created, String token) throws RemoteException {
+
+		if (issueKeyCache != null) {
+			issueKeyCache.put(fingerprint(issue), created.getKey());
+		}
+
+		if (dedupIndex != null) {
+			dedupIndex.put(fingerprint(issue), created.getKey());
+		}
+
+		if (commentIndex != null) {
+			commentIndex.track(created.getKey(), Collections.<String>emptyList());
+		}
+
+		if (openIssueIndex != null) {
+			openIssueIndex.put(cachedIssue(issue, created.getKey()));
+		}
+
+		if (LABELS.equals(config.getFingerprintField())) {
+			addFingerprintLabel(issue, created, token);
+		}
+	}
+
+	/**
+	 * The issue exists already and is cached above, so a failed update must
+	 * not lead to creating it again. Without the label other nodes would not
+	 * find it, so the update is retried before giving up.
+	 */
+	private void addFingerprintLabel(RemoteIssue issue, RemoteIssue created, String token) throws RemoteException {
+
+		RemoteFieldValue[] labels = new RemoteFieldValue[] {
+				new RemoteFieldValue(LABELS, new String[] { fingerprintLabel(issue) }) };
+
+		for (int attempt = 1;; attempt++) {
+			try {
+				jiraService.updateIssue(token, created.getKey(), labels);
+				return;
+			} catch (RemoteException e) {
+				if (attempt >= LABEL_ATTEMPTS || e instanceof RemoteAuthenticationException) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean forgetIssue(RemoteIssue issue) {
+
+		if (commentIndex != null) {
+			commentIndex.forget(issue.getKey());
+		}
+
+		boolean indexed = dedupIndex != null && dedupIndex.forget(issue.getKey());
+		indexed |= openIssueIndex != null && openIssueIndex.remove(issue.getKey());
+
+		return issueKeyCache != null && issueKeyCache.invalidate(issue.getKey()) || indexed;
+	}
+
+	@Override
+	public void commentAdded(RemoteComment comment, RemoteIssue issue) {
+
+		String digest = Util.sha1(comment.getBody());
+
+		if (commentIndex != null) {
+			commentIndex.add(issue.getKey(), digest);
+		}
+
+		if (dedupIndex != null) {
+			dedupIndex.addComment(issue.getKey(), digest);
+		}
+	}
+
+	@Override
+	public void syncOpenIssues(String token) throws RemoteException {
+		if (openIssueIndex != null) {
+			openIssueIndex.sync(token);
+		}
+	}
+
+	public IssueKeyCache getIssueKeyCache() {
+		return issueKeyCache;
+	}
+
+	/**
+	 * Line numbers and the "... n more" lines are left out of the stack trace,
+	 * so the fingerprint survives unrelated changes of the failing classes.
+	 */
+	@Override
+	public String fingerprint(RemoteIssue issue) {
+		String description = StringUtils.defaultString(issue.getDescription());
+		description = LINE_NUMBER.matcher(description).replaceAll(")");
+		description = MORE_FRAMES.matcher(description).replaceAll("");
+		return Util.sha1(issue.getSummary(), description);
+	}
+
+	public String fingerprintLabel(RemoteIssue issue) {
+		return "fp-" + fingerprint(issue).substring(0, 16);
+	}
+
+	@Override
+	public boolean duplicateExists(RemoteIssue issue, String token) throws RemoteException, RemoteException {
+		return getLatestDuplicate(issue, token) != null;
+	}
+
+	@Override
+	public RemoteComment createComment(EventPlugin plugin, Event event) {
+		RemoteComment comment = new RemoteComment();
+		comment.setBody(render(plugin, event));
+		return comment;
+	}
+
+	private String render(EventPlugin plugin, Event event) {
+
+		if (!(plugin instanceof StreamingPlugin)) {
+			return plugin.getText(event);
+		}
+
+		StreamingPlugin streamingPlugin = (StreamingPlugin) plugin;
+
+		if (streamingPlugin.isEventIndependent()) {
+			String cached = pluginTexts.get(plugin);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		StringBuilder buffer = BUFFER.get();
+		buffer.setLength(0);
+		streamingPlugin.appendTo(buffer, event);
+		String text = buffer.toString();
+
+		if (buffer.capacity() > MAX_BUFFER_CAPACITY) {
+			BUFFER.remove();
+		}
+
+		if (streamingPlugin.isEventIndependent()) {
+			pluginTexts.put(plugin, text);
+		}
+
+		return text;
+	}
+
+	@Override
+	public boolean duplicateExists(RemoteComment comment, RemoteIssue issue,
+			String token) throws RemoteException, RemoteException {
+
+		if (dedupIndex != null && dedupIndex.containsComment(issue.getKey(), Util.sha1(comment.getBody()))) {
+			return true;
+		}
+
+		if (commentIndex == null) {
+			return searchComment(comment, issue, token);
+		}
+
+		String digest = Util.sha1(comment.getBody());
+		Boolean known = commentIndex.contains(issue.getKey(), digest);
+
+		if (known == null && config.isSeedComments() && !commentIndex.isTracked(issue.getKey())) {
+			seedComments(issue, token);
+			known = commentIndex.contains(issue.getKey(), digest);
+		}
+
+		if (known != null) {
+			return known;
+		}
+
+		boolean exists = searchComment(comment, issue, token);
+
+		if (exists) {
+			commentIndex.add(issue.getKey(), digest);
+			if (dedupIndex != null) {
+				dedupIndex.addComment(issue.getKey(), digest);
+			}
+		}
+
+		return exists;
+	}
+
+	private void seedComments(RemoteIssue issue, String token) throws RemoteException {
+
+		List<String> digests = new ArrayList<String>();
+
+		for (RemoteComment comment : jiraService.getComments(token, issue.getKey())) {
+			digests.add(Util.sha1(comment.getBody()));
+		}
+
+		commentIndex.track(issue.getKey(), digests);
+	}
+
+	private boolean searchComment(RemoteComment comment, RemoteIssue issue,
+			String token) throws RemoteException {
+
+		StringBuilder JQL = new StringBuilder();
+		JQL.append("key = ");
+		JQL.append(issue.getKey());
+		JQL.append(" AND comment ~ \"\\\"");
+		JQL.append(escapeJava(comment.getBody()));
+		JQL.append("\\\"\"");
+
+		return jiraService.getIssuesFromJqlSearch(token, JQL.toString(), 1).length > 0;
+	}
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands logging events over to background workers through bounded queues,
+ * so that the logging thread does not wait for JIRA, and only for logging
+ * threads that hand over to the same worker.
+ *
+ * Every worker has a queue of its own and events are striped over them by
+ * message. Occurrences of the same error always have the same message, so
+ * they stay in order on one worker while distinct errors are sent in
+ * parallel. The message is cheap to hash on the logging thread, unlike the
+ * fingerprint which needs the rendered stack trace.
+ */
+public class AsyncDispatcher {
+
+	public enum OverflowPolicy {
+		DROP_NEWEST, DROP_OLDEST, BLOCK
+	}
+
+	/**
+	 * Told about the queued events that DROP_OLDEST gives up to make room.
+	 */
+	public interface EvictionListener {
+		void evicted(Event event);
+	}
+
+	/**
+	 * Told about the events the processor failed on with a runtime exception.
+	 */
+	public interface FailureListener {
+		void failed(Event event, RuntimeException e);
+	}
+
+	private static final long POLL_INTERVAL = 100;
+	private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+	private static final Method UNSTARTED = OF_VIRTUAL != null
+			? method(OF_VIRTUAL.getReturnType(), "unstarted", Runnable.class) : null;
+
+	private final List<BlockingQueue<Event>> queues = new ArrayList<BlockingQueue<Event>>();
+	private final EventProcessor processor;
+	private final OverflowPolicy overflowPolicy;
+	private final long blockTimeout;
+	private final List<Thread> workers = new ArrayList<Thread>();
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile EvictionListener evictionListener;
+	private volatile FailureListener failureListener;
+	private volatile boolean running = true;
+	private volatile boolean aborted = false;
+
+	public AsyncDispatcher(EventProcessor processor, int queueSize, int workerCount,
+			OverflowPolicy overflowPolicy, long blockTimeout) {
+		this(processor, queueSize, workerCount, overflowPolicy, blockTimeout, false);
+	}
+
+	public AsyncDispatcher(EventProcessor processor, int queueSize, int workerCount,
+			OverflowPolicy overflowPolicy, long blockTimeout, boolean virtualThreads) {
+		this(processor, queueSize, workerCount, overflowPolicy, blockTimeout, virtualThreads, false);
+	}
+
+	/**
+	 * @param queueSize capacity shared evenly by the queues of the workers
+	 * @param virtualThreads run the workers on virtual threads if the JVM has them
+	 * @param lockFree queue on {@link BoundedConcurrentQueue} instead of
+	 *        ArrayBlockingQueue, so that logging threads never wait for the
+	 *        lock of a queue
+	 */
+	public AsyncDispatcher(EventProcessor processor, int queueSize, int workerCount,
+			OverflowPolicy overflowPolicy, long blockTimeout, boolean virtualThreads, boolean lockFree) {
+
+		this.processor = processor;
+		this.overflowPolicy = overflowPolicy;
+		this.blockTimeout = blockTimeout;
+
+		int count = Math.max(1, workerCount);
+		int stripeSize = Math.max(1, (queueSize + count - 1) / count);
+
+		for (int i = 0; i < count; i++) {
+			BlockingQueue<Event> queue = lockFree ? new BoundedConcurrentQueue<Event>(stripeSize)
+					: new ArrayBlockingQueue<Event>(stripeSize);
+			queues.add(queue);
+			Thread worker = newThread(new Worker(queue), "LogToJira-dispatcher-" + i, virtualThreads);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * @return false if this event was dropped, events evicted to make room
+	 *         for it go to the eviction listener
+	 */
+	public boolean dispatch(Event event) {
+
+		if (!running) {
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		BlockingQueue<Event> queue = queues.get(stripe(event.getMessage(), queues.size()));
+
+		switch (overflowPolicy) {
+		case DROP_OLDEST:
+			while (!queue.offer(event)) {
+				Event evicted = queue.poll();
+				if (evicted != null) {
+					dropped.incrementAndGet();
+					EvictionListener listener = evictionListener;
+					if (listener != null) {
+						listener.evicted(evicted);
+					}
+				}
+			}
+			return true;
+		case BLOCK:
+			try {
+				if (queue.offer(event, blockTimeout, TimeUnit.MILLISECONDS)) {
+					return true;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			break;
+		default:
+			if (queue.offer(event)) {
+				return true;
+			}
+		}
+
+		dropped.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Queues the event if there is room, regardless of the overflow policy
+	 * and without counting it as dropped otherwise.
+	 */
+	public boolean offer(Event event) {
+		return running && queues.get(stripe(event.getMessage(), queues.size())).offer(event);
+	}
+
+	static int stripe(String message, int stripes) {
+		if (stripes == 1 || message == null) {
+			return 0;
+		}
+		int hash = message.hashCode();
+		hash ^= hash >>> 16;
+		return (hash & Integer.MAX_VALUE) % stripes;
+	}
+
+	/**
+	 * Stops accepting events and waits until the queues are drained or the
+	 * timeout runs out, whichever comes first.
+	 *
+	 * @return true if all queued events were processed
+	 */
+	public boolean close(long timeout) {
+
+		running = false;
+		long deadline = System.currentTimeMillis() + timeout;
+
+		for (Thread worker : workers) {
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining > 0) {
+				try {
+					worker.join(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
+		boolean drained = true;
+		aborted = true;
+		for (Thread worker : workers) {
+			if (worker.isAlive()) {
+				drained = false;
+				worker.interrupt();
+			}
+		}
+
+		List<Event> remaining = new ArrayList<Event>();
+		for (BlockingQueue<Event> queue : queues) {
+			queue.drainTo(remaining);
+		}
+		dropped.addAndGet(remaining.size());
+		return drained;
+	}
+
+	public void setEvictionListener(EvictionListener evictionListener) {
+		this.evictionListener = evictionListener;
+	}
+
+	public void setFailureListener(FailureListener failureListener) {
+		this.failureListener = failureListener;
+	}
+
+	public int getQueueSize() {
+		int size = 0;
+		for (BlockingQueue<Event> queue : queues) {
+			size += queue.size();
+		}
+		return size;
+	}
+
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Virtual threads exist since Java 21.
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return UNSTARTED != null;
+	}
+
+	private static Thread newThread(Runnable runnable, String name, boolean virtual) {
+
+		if (virtual && UNSTARTED != null) {
+			try {
+				Thread thread = (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), runnable);
+				thread.setName(name);
+				return thread;
+			} catch (Exception e) {
+				// fall back to a platform thread
+			}
+		}
+
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+		try {
+			return type.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private class Worker implements Runnable {
+
+		private final BlockingQueue<Event> queue;
+
+		private Worker(BlockingQueue<Event> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			while (!aborted && (running || !queue.isEmpty())) {
+				Event event;
+				try {
+					event = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (event != null) {
+					try {
+						processor.process(event);
+					} catch (RuntimeException e) {
+						// keep the worker alive
+						FailureListener listener = failureListener;
+						if (listener != null) {
+							listener.failed(event, e);
+						}
+					}
+				}
+			}
+		}
+	}
+}
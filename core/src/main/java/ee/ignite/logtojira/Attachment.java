@@ -0,0 +1,35 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * File content that is written to JIRA as it is produced, so that it never
+ * has to be held in memory as a whole by the caller.
+ */
+public interface Attachment {
+
+	String getFileName();
+
+	String getContentType();
+
+	/**
+	 * Writes the content without closing the stream.
+	 */
+	void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded blocking queue without locks. Elements and size are kept with
+ * compare-and-set only, threads that have to wait park themselves and are
+ * woken by the other side, one per element or freed slot, so offer and poll
+ * never wait for a monitor. The bound is exact, but an offer may fail while
+ * a concurrent poll is freeing space.
+ */
+public class BoundedConcurrentQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+	private final int capacity;
+	private final Queue<E> elements = new ConcurrentLinkedQueue<E>();
+	private final AtomicInteger size = new AtomicInteger();
+	private final Queue<Waiter> consumers = new ConcurrentLinkedQueue<Waiter>();
+	private final Queue<Waiter> producers = new ConcurrentLinkedQueue<Waiter>();
+
+	public BoundedConcurrentQueue(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+	}
+
+	@Override
+	public boolean offer(E e) {
+
+		if (e == null) {
+			throw new NullPointerException();
+		}
+
+		int current;
+		do {
+			current = size.get();
+			if (current >= capacity) {
+				return false;
+			}
+		} while (!size.compareAndSet(current, current + 1));
+
+		elements.offer(e);
+		wakeUp(consumers);
+		return true;
+	}
+
+	@Override
+	public E poll() {
+
+		E e = elements.poll();
+
+		if (e != null) {
+			size.decrementAndGet();
+			wakeUp(producers);
+		}
+
+		return e;
+	}
+
+	@Override
+	public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		while (true) {
+			if (offer(e)) {
+				return true;
+			}
+			Waiter waiter = new Waiter();
+			producers.offer(waiter);
+			boolean retry = false;
+			try {
+				// a poll may have freed space before this thread was registered
+				if (offer(e)) {
+					return true;
+				}
+				retry = park(deadline);
+				if (!retry) {
+					return false;
+				}
+			} finally {
+				leave(producers, waiter, retry);
+			}
+		}
+	}
+
+	@Override
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		while (true) {
+			E e = poll();
+			if (e != null) {
+				return e;
+			}
+			Waiter waiter = new Waiter();
+			consumers.offer(waiter);
+			boolean retry = false;
+			try {
+				// an offer may have come before this thread was registered
+				e = poll();
+				if (e != null) {
+					return e;
+				}
+				retry = park(deadline);
+				if (!retry) {
+					return null;
+				}
+			} finally {
+				leave(consumers, waiter, retry);
+			}
+		}
+	}
+
+	@Override
+	public void put(E e) throws InterruptedException {
+		while (!offer(e, Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+			// waits again
+		}
+	}
+
+	@Override
+	public E take() throws InterruptedException {
+		E e;
+		while ((e = poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) == null) {
+			// waits again
+		}
+		return e;
+	}
+
+	/**
+	 * @return false if the deadline has passed
+	 */
+	private static boolean park(long deadline) throws InterruptedException {
+
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0) {
+			return false;
+		}
+
+		LockSupport.parkNanos(remaining);
+
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		return true;
+	}
+
+	/**
+	 * Wakes the longest waiting thread, skipping those that have left.
+	 * Nobody waits as long as the queue keeps up.
+	 */
+	private static void wakeUp(Queue<Waiter> waiting) {
+		Waiter waiter;
+		while ((waiter = waiting.poll()) != null) {
+			if (waiter.waiting.compareAndSet(true, false)) {
+				LockSupport.unpark(waiter.thread);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * A thread that was woken but does not retry hands the wake-up on, it
+	 * may have been meant for another waiter. One that leaves unwoken is
+	 * skipped by the next wake-up, or dropped here if it is at the head.
+	 */
+	private static void leave(Queue<Waiter> waiting, Waiter waiter, boolean retry) {
+		if (waiter.waiting.compareAndSet(true, false)) {
+			if (waiting.peek() == waiter) {
+				waiting.remove(waiter);
+			}
+		} else if (!retry) {
+			wakeUp(waiting);
+		}
+	}
+
+	@Override
+	public E peek() {
+		return elements.peek();
+	}
+
+	@Override
+	public int size() {
+		return size.get();
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return capacity - size.get();
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super E> c, int maxElements) {
+
+		int drained = 0;
+		E e;
+
+		while (drained < maxElements && (e = poll()) != null) {
+			c.add(e);
+			drained++;
+		}
+
+		return drained;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+
+		if (o == null || !elements.remove(o)) {
+			return false;
+		}
+
+		size.decrementAndGet();
+		wakeUp(producers);
+		return true;
+	}
+
+	/**
+	 * Weakly consistent, removing goes through {@link #remove(Object)} so
+	 * that the size is kept.
+	 */
+	@Override
+	public Iterator<E> iterator() {
+
+		final Iterator<E> iterator = elements.iterator();
+
+		return new Iterator<E>() {
+
+			private E last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				last = iterator.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				BoundedConcurrentQueue.this.remove(last);
+				last = null;
+			}
+		};
+	}
+
+	private static class Waiter {
+
+		private final Thread thread = Thread.currentThread();
+		private final AtomicBoolean waiting = new AtomicBoolean(true);
+	}
+}
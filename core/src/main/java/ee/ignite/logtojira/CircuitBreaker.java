@@ -0,0 +1,72 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+/**
+ * Stops calling JIRA after a number of consecutive failures. After the open
+ * timeout one trial call is let through, its success closes the breaker
+ * again and its failure keeps it open for another timeout.
+ */
+public class CircuitBreaker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final int failureThreshold;
+	private final long openTimeout;
+	private State state = State.CLOSED;
+	private int failures;
+	private long changed;
+
+	public CircuitBreaker(int failureThreshold, long openTimeout) {
+		this.failureThreshold = failureThreshold;
+		this.openTimeout = openTimeout;
+	}
+
+	public synchronized boolean allowRequest() {
+
+		if (state == State.CLOSED) {
+			return true;
+		}
+
+		// a trial that never reported back does not block forever
+		if (System.currentTimeMillis() - changed >= openTimeout) {
+			state = State.HALF_OPEN;
+			changed = System.currentTimeMillis();
+			return true;
+		}
+
+		return false;
+	}
+
+	public synchronized void recordSuccess() {
+		failures = 0;
+		state = State.CLOSED;
+	}
+
+	public synchronized void recordFailure() {
+		failures++;
+		if (state == State.HALF_OPEN || failures >= failureThreshold) {
+			state = State.OPEN;
+			changed = System.currentTimeMillis();
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.IOException;
+
+/**
+ * Lets appenders of several JVMs agree which of them creates the issue for a
+ * fingerprint that JIRA does not know yet.
+ */
+public interface ClaimCoordinator {
+
+	/**
+	 * Waits until the fingerprint is free to claim. The caller is the logging
+	 * thread unless the appender is async, so the wait should be bounded.
+	 *
+	 * @return key of the issue another node created for the fingerprint, or
+	 * null if the claim is held by the calling thread, which must then create
+	 * the issue and {@link #release(String, String)} the claim
+	 * @throws IOException if the claim could not be obtained
+	 */
+	String claim(String fingerprint) throws IOException;
+
+	/**
+	 * @param issueKey key of the created issue, null if creating it failed
+	 */
+	void release(String fingerprint, String issueKey);
+
+}
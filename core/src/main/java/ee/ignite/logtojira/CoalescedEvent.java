@@ -0,0 +1,65 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+/**
+ * The first event of a coalescing window, carrying the summary of the window
+ * through the async queue so that the window is sent by a worker rather than
+ * by the timer of the {@link Coalescer}. In the spool it is written as the
+ * {@link Occurrences}, so that the counts are not lost.
+ */
+class CoalescedEvent extends Event {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Event first;
+	private final transient String identity;
+	private final transient Occurrences occurrences;
+
+	CoalescedEvent(String identity, Occurrences occurrences) {
+		super(occurrences.getFirst());
+		this.first = occurrences.getFirst();
+		this.identity = identity;
+		this.occurrences = occurrences;
+	}
+
+	String getIdentity() {
+		return identity;
+	}
+
+	Occurrences getOccurrences() {
+		return occurrences;
+	}
+
+	@Override
+	public Throwable getThrowable() {
+		return first.getThrowable();
+	}
+
+	@Override
+	public boolean hasThrowable() {
+		return first.hasThrowable();
+	}
+
+	@Override
+	public String[] getThrowableLines() {
+		return first.getThrowableLines();
+	}
+
+	private Object writeReplace() {
+		return occurrences;
+	}
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects events with the same duplicate identity over a time window and
+ * hands them to the {@link Handler} once per window. The handler is called
+ * on the timer thread, which all windows share, so it should only pass the
+ * occurrences on.
+ */
+public class Coalescer {
+
+	public interface Handler {
+
+		void flush(String identity, Occurrences occurrences);
+
+	}
+
+	private final long window;
+	private final int maxPending;
+	private final Handler handler;
+	private final Map<String, Occurrences> pending = new HashMap<String, Occurrences>();
+	private final ScheduledExecutorService timer;
+
+	/**
+	 * @param maxPending how many windows may be open at once
+	 */
+	public Coalescer(long window, int maxPending, Handler handler) {
+		this.window = window;
+		this.maxPending = maxPending;
+		this.handler = handler;
+		this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogToJira-coalescer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @return false if the event opens a window while maxPending windows are
+	 *         open already, the caller sends it on its own then
+	 */
+	public boolean add(final String identity, Event event) {
+
+		synchronized (pending) {
+			Occurrences occurrences = pending.get(identity);
+			if (occurrences != null) {
+				occurrences.add(event);
+				return true;
+			}
+			if (pending.size() >= maxPending) {
+				return false;
+			}
+			pending.put(identity, new Occurrences(event));
+		}
+
+		try {
+			timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					flush(identity);
+				}
+			}, window, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// closed already, nothing else is going to flush it
+			flush(identity);
+		}
+
+		return true;
+	}
+
+	private void flush(String identity) {
+
+		Occurrences occurrences;
+
+		synchronized (pending) {
+			occurrences = pending.remove(identity);
+		}
+
+		if (occurrences != null) {
+			try {
+				handler.flush(identity, occurrences);
+			} catch (RuntimeException e) {
+				// keep the timer alive, the handler reports its own errors
+			}
+		}
+	}
+
+	public int getPendingCount() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	/**
+	 * Flushes all open windows on the calling thread.
+	 */
+	public void close() {
+
+		timer.shutdownNow();
+
+		List<String> identities;
+		synchronized (pending) {
+			identities = new ArrayList<String>(pending.keySet());
+		}
+
+		for (String identity : identities) {
+			flush(identity);
+		}
+	}
+}
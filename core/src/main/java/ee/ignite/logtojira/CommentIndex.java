@@ -0,0 +1,148 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Remembers digests of comment bodies per issue, so that comment duplicates
+ * can be detected without asking JIRA. Each issue keeps a small exact set of
+ * recent digests and a Bloom filter of all of them. Issues are evicted least
+ * recently used first.
+ */
+public class CommentIndex {
+
+	private static final int EXACT_SIZE = 64;
+	private static final int BLOOM_BITS = 1024;
+	private static final int BLOOM_HASHES = 4;
+
+	private final Map<String, Comments> issues;
+
+	public CommentIndex(final int maxIssues) {
+		this.issues = new LinkedHashMap<String, Comments>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Comments> eldest) {
+				return size() > maxIssues;
+			}
+		};
+	}
+
+	/**
+	 * @return true if the comment is known to exist, false if it is known not
+	 * to exist and null if JIRA has to be asked
+	 */
+	public synchronized Boolean contains(String issueKey, String digest) {
+
+		Comments comments = issues.get(issueKey);
+
+		if (comments == null) {
+			return null;
+		}
+
+		if (comments.exact.contains(digest)) {
+			return Boolean.TRUE;
+		}
+
+		if (comments.mightContain(digest) || !comments.complete) {
+			return null;
+		}
+
+		return Boolean.FALSE;
+	}
+
+	public synchronized boolean isTracked(String issueKey) {
+		return issues.containsKey(issueKey);
+	}
+
+	public synchronized void add(String issueKey, String digest) {
+		comments(issueKey).add(digest);
+	}
+
+	/**
+	 * Starts tracking an issue whose comments are all known, like a freshly
+	 * created one.
+	 */
+	public synchronized void track(String issueKey, Collection<String> digests) {
+
+		Comments comments = comments(issueKey);
+
+		for (String digest : digests) {
+			comments.add(digest);
+		}
+
+		comments.complete = true;
+	}
+
+	public synchronized void forget(String issueKey) {
+		issues.remove(issueKey);
+	}
+
+	private Comments comments(String issueKey) {
+
+		Comments comments = issues.get(issueKey);
+
+		if (comments == null) {
+			comments = new Comments();
+			issues.put(issueKey, comments);
+		}
+
+		return comments;
+	}
+
+	private static class Comments {
+
+		private final LinkedHashSet<String> exact = new LinkedHashSet<String>();
+		private final long[] bloom = new long[BLOOM_BITS / 64];
+		private boolean complete;
+
+		private void add(String digest) {
+
+			if (exact.add(digest) && exact.size() > EXACT_SIZE) {
+				Iterator<String> eldest = exact.iterator();
+				eldest.next();
+				eldest.remove();
+			}
+
+			for (int i = 0; i < BLOOM_HASHES; i++) {
+				int bit = bit(digest, i);
+				bloom[bit >>> 6] |= 1L << (bit & 63);
+			}
+		}
+
+		private boolean mightContain(String digest) {
+
+			for (int i = 0; i < BLOOM_HASHES; i++) {
+				int bit = bit(digest, i);
+				if ((bloom[bit >>> 6] & (1L << (bit & 63))) == 0) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		private static int bit(String digest, int hash) {
+			// digest is hex encoded SHA-1, every 8 hex digits are an independent hash
+			return (int) (Long.parseLong(digest.substring(hash * 8, hash * 8 + 8), 16) % BLOOM_BITS);
+		}
+	}
+}
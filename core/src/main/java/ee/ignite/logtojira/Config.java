@@ -0,0 +1,215 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.regex.Pattern;
+
+public class Config {
+
+	private static final Pattern FINGERPRINT_FIELD = Pattern.compile("labels|customfield_[0-9]+");
+
+	private String username;
+	private String password;
+	private String project;
+	private String issueTypeId;
+	private int issueCacheSize = 1000;
+	private long issueCacheTtl = 300000;
+	private String fingerprintField;
+	private String environmentIncludes;
+	private String environmentExcludes;
+	private int commentIndexSize = 1000;
+	private boolean seedComments = false;
+	private String dedupIndexFile;
+	private int dedupIndexSize = 4096;
+	private long dedupIndexTtl = 300000;
+	private int maxStackFrames = 0;
+	private int maxDescriptionLength = 0;
+	private boolean collapseFrameworkFrames = false;
+	private boolean compactDescription = false;
+	private long openIssueSyncInterval = 0;
+	private int openIssuePageSize = 1000;
+
+	public String getProject() {
+		return project;
+	}
+
+	public void setProject(String project) {
+		this.project = project;
+	}
+
+	public String getIssueTypeId() {
+		return issueTypeId;
+	}
+
+	public void setIssueTypeId(String issueTypeId) {
+		this.issueTypeId = issueTypeId;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public void setPassword(String password) {
+		this.password = password;
+	}
+
+	public int getIssueCacheSize() {
+		return issueCacheSize;
+	}
+
+	public void setIssueCacheSize(int issueCacheSize) {
+		this.issueCacheSize = issueCacheSize;
+	}
+
+	public long getIssueCacheTtl() {
+		return issueCacheTtl;
+	}
+
+	public void setIssueCacheTtl(long issueCacheTtl) {
+		this.issueCacheTtl = issueCacheTtl;
+	}
+
+	public String getFingerprintField() {
+		return fingerprintField;
+	}
+
+	/**
+	 * @param fingerprintField labels or customfield_ and the id of the field, empty for none
+	 * @throws IllegalArgumentException for anything else
+	 */
+	public void setFingerprintField(String fingerprintField) {
+		if (fingerprintField != null && fingerprintField.trim().length() == 0) {
+			fingerprintField = null;
+		}
+		if (fingerprintField != null && !FINGERPRINT_FIELD.matcher(fingerprintField.trim()).matches()) {
+			throw new IllegalArgumentException("fingerprintField must be labels or customfield_<id>, not "
+					+ fingerprintField);
+		}
+		this.fingerprintField = fingerprintField != null ? fingerprintField.trim() : null;
+	}
+
+	public String getEnvironmentIncludes() {
+		return environmentIncludes;
+	}
+
+	public void setEnvironmentIncludes(String environmentIncludes) {
+		this.environmentIncludes = environmentIncludes;
+	}
+
+	public String getEnvironmentExcludes() {
+		return environmentExcludes;
+	}
+
+	public void setEnvironmentExcludes(String environmentExcludes) {
+		this.environmentExcludes = environmentExcludes;
+	}
+
+	public int getCommentIndexSize() {
+		return commentIndexSize;
+	}
+
+	public void setCommentIndexSize(int commentIndexSize) {
+		this.commentIndexSize = commentIndexSize;
+	}
+
+	public boolean isSeedComments() {
+		return seedComments;
+	}
+
+	public void setSeedComments(boolean seedComments) {
+		this.seedComments = seedComments;
+	}
+
+	public String getDedupIndexFile() {
+		return dedupIndexFile;
+	}
+
+	public void setDedupIndexFile(String dedupIndexFile) {
+		this.dedupIndexFile = dedupIndexFile;
+	}
+
+	public int getDedupIndexSize() {
+		return dedupIndexSize;
+	}
+
+	public void setDedupIndexSize(int dedupIndexSize) {
+		this.dedupIndexSize = dedupIndexSize;
+	}
+
+	public long getDedupIndexTtl() {
+		return dedupIndexTtl;
+	}
+
+	public void setDedupIndexTtl(long dedupIndexTtl) {
+		this.dedupIndexTtl = dedupIndexTtl;
+	}
+
+	public int getMaxStackFrames() {
+		return maxStackFrames;
+	}
+
+	public void setMaxStackFrames(int maxStackFrames) {
+		this.maxStackFrames = maxStackFrames;
+	}
+
+	public int getMaxDescriptionLength() {
+		return maxDescriptionLength;
+	}
+
+	public void setMaxDescriptionLength(int maxDescriptionLength) {
+		this.maxDescriptionLength = maxDescriptionLength;
+	}
+
+	public boolean isCollapseFrameworkFrames() {
+		return collapseFrameworkFrames;
+	}
+
+	public void setCollapseFrameworkFrames(boolean collapseFrameworkFrames) {
+		this.collapseFrameworkFrames = collapseFrameworkFrames;
+	}
+
+	public boolean isCompactDescription() {
+		return compactDescription;
+	}
+
+	public void setCompactDescription(boolean compactDescription) {
+		this.compactDescription = compactDescription;
+	}
+
+	public long getOpenIssueSyncInterval() {
+		return openIssueSyncInterval;
+	}
+
+	public void setOpenIssueSyncInterval(long openIssueSyncInterval) {
+		this.openIssueSyncInterval = openIssueSyncInterval;
+	}
+
+	public int getOpenIssuePageSize() {
+		return openIssuePageSize;
+	}
+
+	public void setOpenIssuePageSize(int openIssuePageSize) {
+		this.openIssuePageSize = openIssuePageSize;
+	}
+}
@@ -0,0 +1,304 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Duplicate knowledge kept in a memory mapped file, so that it survives
+ * restarts. The file is an open addressing hash table of fixed size slots
+ * keyed by fingerprint. A slot holds the issue key, the time it was seen
+ * and digests of the last few comments added to the issue. Only open issues
+ * are put in, a closed one is noticed when commenting fails and forgotten.
+ * When no free slot is found within a few probes the least recently seen
+ * one is reused. The file must not be shared by several processes.
+ */
+public class DedupIndex {
+
+	public static class Entry {
+
+		private final String issueKey;
+		private final long updated;
+
+		private Entry(String issueKey, long updated) {
+			this.issueKey = issueKey;
+			this.updated = updated;
+		}
+
+		public String getIssueKey() {
+			return issueKey;
+		}
+
+		public long getUpdated() {
+			return updated;
+		}
+	}
+
+	private static final int MAGIC = 0x4c324a32;
+	private static final int HEADER = 16;
+	private static final int SLOT = 256;
+	private static final int MAX_PROBES = 16;
+	private static final int DIGEST = 20;
+	private static final int MAX_DIGESTS = 8;
+
+	private static final byte EMPTY = 0;
+	private static final byte USED = 1;
+	private static final byte DELETED = 2;
+
+	// slot layout
+	private static final int STATE = 0;
+	private static final int DIGEST_COUNT = 1;
+	private static final int DIGEST_NEXT = 2;
+	private static final int FINGERPRINT = 4;
+	private static final int UPDATED = 24;
+	private static final int KEY = 32;
+	private static final int KEY_SIZE = 32;
+	private static final int DIGESTS = 64;
+
+	private final int capacity;
+	private final MappedByteBuffer buffer;
+	private final Map<String, Integer> slotsByKey = new HashMap<String, Integer>();
+
+	public DedupIndex(File file, int capacity) throws IOException {
+
+		this.capacity = capacity;
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			boolean compatible = raf.length() == HEADER + (long) capacity * SLOT;
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity * SLOT);
+			if (!compatible || buffer.getInt(0) != MAGIC || buffer.getInt(4) != capacity) {
+				clear();
+			}
+		} finally {
+			raf.close();
+		}
+
+		for (int slot = 0; slot < capacity; slot++) {
+			if (buffer.get(offset(slot) + STATE) == USED) {
+				slotsByKey.put(readString(offset(slot) + KEY), slot);
+			}
+		}
+	}
+
+	public synchronized Entry get(String fingerprint) {
+
+		int slot = find(toBytes(fingerprint));
+
+		if (slot < 0) {
+			return null;
+		}
+
+		int offset = offset(slot);
+		return new Entry(readString(offset + KEY), buffer.getLong(offset + UPDATED));
+	}
+
+	public synchronized void put(String fingerprint, String issueKey) {
+
+		byte[] bytes = toBytes(fingerprint);
+		int slot = find(bytes);
+
+		if (slot < 0) {
+			slot = free(bytes);
+		}
+
+		int offset = offset(slot);
+
+		if (buffer.get(offset + STATE) == USED) {
+			String previous = readString(offset + KEY);
+			slotsByKey.remove(previous);
+			if (!previous.equals(issueKey)) {
+				buffer.put(offset + DIGEST_COUNT, (byte) 0);
+				buffer.put(offset + DIGEST_NEXT, (byte) 0);
+			}
+		} else {
+			buffer.put(offset + DIGEST_COUNT, (byte) 0);
+			buffer.put(offset + DIGEST_NEXT, (byte) 0);
+		}
+
+		buffer.position(offset + FINGERPRINT);
+		buffer.put(bytes);
+		buffer.putLong(offset + UPDATED, System.currentTimeMillis());
+		writeString(offset + KEY, KEY_SIZE, issueKey);
+		buffer.put(offset + STATE, USED);
+
+		Integer other = slotsByKey.put(issueKey, slot);
+		if (other != null && other != slot) {
+			// the issue has one slot, an older fingerprint of it is dropped
+			buffer.put(offset(other) + STATE, DELETED);
+		}
+	}
+
+	public synchronized boolean containsComment(String issueKey, String digest) {
+
+		Integer slot = slotsByKey.get(issueKey);
+
+		if (slot == null) {
+			return false;
+		}
+
+		byte[] bytes = toBytes(digest);
+		int offset = offset(slot);
+		int count = buffer.get(offset + DIGEST_COUNT);
+
+		for (int i = 0; i < count; i++) {
+			if (matches(offset + DIGESTS + i * DIGEST, bytes)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public synchronized void addComment(String issueKey, String digest) {
+
+		Integer slot = slotsByKey.get(issueKey);
+
+		if (slot == null || containsComment(issueKey, digest)) {
+			return;
+		}
+
+		int offset = offset(slot);
+		int count = buffer.get(offset + DIGEST_COUNT);
+		int next = buffer.get(offset + DIGEST_NEXT);
+
+		buffer.position(offset + DIGESTS + next * DIGEST);
+		buffer.put(toBytes(digest));
+		buffer.put(offset + DIGEST_NEXT, (byte) ((next + 1) % MAX_DIGESTS));
+		buffer.put(offset + DIGEST_COUNT, (byte) Math.min(count + 1, MAX_DIGESTS));
+	}
+
+	/**
+	 * @return true if the issue was known
+	 */
+	public synchronized boolean forget(String issueKey) {
+
+		Integer slot = slotsByKey.remove(issueKey);
+
+		if (slot == null) {
+			return false;
+		}
+
+		buffer.put(offset(slot) + STATE, DELETED);
+		return true;
+	}
+
+	public synchronized int size() {
+		return slotsByKey.size();
+	}
+
+	public synchronized void close() {
+		buffer.force();
+	}
+
+	private int find(byte[] fingerprint) {
+
+		int home = home(fingerprint);
+
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int slot = (home + probe) % capacity;
+			int offset = offset(slot);
+			byte state = buffer.get(offset + STATE);
+			if (state == EMPTY) {
+				return -1;
+			}
+			if (state == USED && matches(offset + FINGERPRINT, fingerprint)) {
+				return slot;
+			}
+		}
+
+		return -1;
+	}
+
+	private int free(byte[] fingerprint) {
+
+		int home = home(fingerprint);
+		int oldest = home % capacity;
+
+		for (int probe = 0; probe < MAX_PROBES; probe++) {
+			int slot = (home + probe) % capacity;
+			int offset = offset(slot);
+			if (buffer.get(offset + STATE) != USED) {
+				return slot;
+			}
+			if (buffer.getLong(offset + UPDATED) < buffer.getLong(offset(oldest) + UPDATED)) {
+				oldest = slot;
+			}
+		}
+
+		return oldest;
+	}
+
+	private int home(byte[] fingerprint) {
+		int hash = ((fingerprint[0] & 0xff) << 24) | ((fingerprint[1] & 0xff) << 16)
+				| ((fingerprint[2] & 0xff) << 8) | (fingerprint[3] & 0xff);
+		return (hash & Integer.MAX_VALUE) % capacity;
+	}
+
+	private boolean matches(int offset, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			if (buffer.get(offset + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String readString(int offset) {
+		char[] chars = new char[buffer.get(offset)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) buffer.get(offset + 1 + i);
+		}
+		return new String(chars);
+	}
+
+	private void writeString(int offset, int size, String value) {
+		String s = value == null ? "" : value;
+		int length = Math.min(s.length(), size - 1);
+		buffer.put(offset, (byte) length);
+		for (int i = 0; i < length; i++) {
+			buffer.put(offset + 1 + i, (byte) s.charAt(i));
+		}
+	}
+
+	private void clear() {
+		byte[] zeros = new byte[Math.min(buffer.capacity(), 64 * 1024)];
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+		}
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, capacity);
+	}
+
+	private static int offset(int slot) {
+		return HEADER + slot * SLOT;
+	}
+
+	private static byte[] toBytes(String hex) {
+		byte[] bytes = new byte[DIGEST];
+		for (int i = 0; i < DIGEST; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzipped text with everything known about an event: the complete stack
+ * trace and the environment. It is compressed while it is rendered, the
+ * uncompressed text is never built.
+ */
+public class DiagnosticsAttachment implements Attachment {
+
+	private static final String NEWLINE = "\n";
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Event event;
+	private final EnvironmentRenderer environmentRenderer;
+
+	public DiagnosticsAttachment(Event event, EnvironmentRenderer environmentRenderer) {
+		this.event = event;
+		this.environmentRenderer = environmentRenderer;
+	}
+
+	@Override
+	public String getFileName() {
+		return "diagnostics.txt.gz";
+	}
+
+	@Override
+	public String getContentType() {
+		return "application/gzip";
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+
+		GZIPOutputStream gzip = new GZIPOutputStream(out, BUFFER_SIZE);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, "UTF-8"), BUFFER_SIZE);
+
+		writer.write(String.valueOf(event.getMessage()));
+		writer.write(NEWLINE);
+		writer.write(event.getLevel() + " " + event.getLoggerName() + " in "
+				+ event.getThreadName() + " at " + new Date(event.getTimeStamp()));
+		writer.write(NEWLINE);
+
+		if (event.hasThrowable()) {
+			writer.write(NEWLINE);
+			if (event.getThrowable() != null) {
+				PrintWriter printWriter = new PrintWriter(writer);
+				event.getThrowable().printStackTrace(printWriter);
+				printWriter.flush();
+			} else {
+				for (String line : event.getThrowableLines()) {
+					writer.write(line);
+					writer.write(NEWLINE);
+				}
+			}
+		}
+
+		writer.write(NEWLINE);
+		writer.write(environmentRenderer.render());
+		writer.write(NEWLINE);
+
+		writer.flush();
+		gzip.finish();
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Renders environment variables and system properties for the issue
+ * environment field. The result is kept until the system properties change,
+ * which is noticed by their hash code.
+ */
+public class EnvironmentRenderer {
+
+	private final Pattern includes;
+	private final Pattern excludes;
+	private String environment;
+	private volatile Snapshot snapshot;
+
+	/**
+	 * @param includes comma separated key patterns with * wildcards, null includes all
+	 * @param excludes comma separated key patterns with * wildcards, null excludes none
+	 */
+	public EnvironmentRenderer(String includes, String excludes) {
+		this.includes = toPattern(includes);
+		this.excludes = toPattern(excludes);
+	}
+
+	public String render() {
+
+		Properties properties = System.getProperties();
+		int hash = properties.hashCode();
+		Snapshot current = snapshot;
+
+		if (current != null && current.properties == properties && current.hash == hash) {
+			return current.text;
+		}
+
+		if (environment == null) {
+			environment = renderMap(System.getenv());
+		}
+
+		StringBuilder result = new StringBuilder(environment);
+		result.append("\n\n");
+		result.append(renderMap(properties));
+
+		current = new Snapshot(properties, hash, result.toString());
+		snapshot = current;
+		return current.text;
+	}
+
+	private String renderMap(Map<?, ?> map) {
+
+		StringBuilder result = new StringBuilder();
+
+		for (Entry<?, ?> e : map.entrySet()) {
+			String key = String.valueOf(e.getKey());
+			if (accepts(key)) {
+				result.append(key);
+				result.append("=");
+				result.append(e.getValue());
+				result.append("; ");
+			}
+		}
+
+		return result.toString();
+	}
+
+	private boolean accepts(String key) {
+		return (includes == null || includes.matcher(key).matches())
+				&& (excludes == null || !excludes.matcher(key).matches());
+	}
+
+	private static Pattern toPattern(String patterns) {
+
+		if (StringUtils.isBlank(patterns)) {
+			return null;
+		}
+
+		StringBuilder regex = new StringBuilder();
+
+		for (String pattern : patterns.split(",")) {
+			if (regex.length() > 0) {
+				regex.append("|");
+			}
+			for (String part : pattern.trim().split("\\*", -1)) {
+				regex.append(Pattern.quote(part));
+				regex.append(".*");
+			}
+			regex.setLength(regex.length() - 2);
+		}
+
+		return Pattern.compile(regex.toString());
+	}
+
+	private static class Snapshot {
+
+		private final Properties properties;
+		private final int hash;
+		private final String text;
+
+		private Snapshot(Properties properties, int hash, String text) {
+			this.properties = properties;
+			this.hash = hash;
+			this.text = text;
+		}
+	}
+}
@@ -15,14 +15,15 @@
 */
 package ee.ignite.logtojira;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+/**
+ * Where the core reports its own problems, the adapters pass them on to the
+ * error handling of their logging framework.
+ */
+public interface ErrorReporter {
 
-public abstract class Util {
+	/**
+	 * @param e may be null
+	 */
+	void error(String message, Exception e);
 
-	public static String toString(Throwable t) {
-		StringWriter sw = new StringWriter();
-		t.printStackTrace(new PrintWriter(sw));
-		return sw.toString();
-	}
 }
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Logging event as the core knows it, independent of the logging framework
+ * it came from. The adapters build it on the logging thread, so it holds
+ * only copies: the rendered message, the NDC and the MDC as they were when
+ * the event was logged.
+ *
+ * The stack trace is available as the throwable itself or only as its
+ * lines, like in an event read back from the spool.
+ */
+public class Event implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	private static final Pattern LINE_BREAK = Pattern.compile("\r?\n");
+
+	private final String loggerName;
+	private final String level;
+	private final long timeStamp;
+	private final String message;
+	private final String threadName;
+	private final String ndc;
+	private final Map<String, String> mdc;
+	private final transient Throwable throwable;
+	private volatile String[] throwableLines;
+
+	/**
+	 * @param level name of the level, like ERROR
+	 * @param ndc may be null
+	 * @param mdc copied, entries with null values are left out, may be null
+	 * @param throwable may be null
+	 * @param throwableLines the rendered stack trace if the throwable itself is gone, may be null
+	 */
+	public Event(String loggerName, String level, long timeStamp, String message, String threadName, String ndc,
+			Map<String, ?> mdc, Throwable throwable, String[] throwableLines) {
+		this.loggerName = loggerName;
+		this.level = level;
+		this.timeStamp = timeStamp;
+		this.message = message;
+		this.threadName = threadName;
+		this.ndc = ndc;
+		this.mdc = copy(mdc);
+		this.throwable = throwable;
+		this.throwableLines = throwableLines;
+	}
+
+	/**
+	 * Takes over everything but the stack trace.
+	 */
+	protected Event(Event event) {
+		this.loggerName = event.loggerName;
+		this.level = event.level;
+		this.timeStamp = event.timeStamp;
+		this.message = event.message;
+		this.threadName = event.threadName;
+		this.ndc = event.ndc;
+		this.mdc = event.mdc;
+		this.throwable = null;
+		this.throwableLines = null;
+	}
+
+	private static Map<String, String> copy(Map<String, ?> mdc) {
+
+		if (mdc == null || mdc.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, String> copy = new HashMap<String, String>();
+		for (Map.Entry<String, ?> entry : mdc.entrySet()) {
+			if (entry.getKey() != null && entry.getValue() != null) {
+				copy.put(entry.getKey(), entry.getValue().toString());
+			}
+		}
+		return Collections.unmodifiableMap(copy);
+	}
+
+	public String getLoggerName() {
+		return loggerName;
+	}
+
+	public String getLevel() {
+		return level;
+	}
+
+	public long getTimeStamp() {
+		return timeStamp;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public String getThreadName() {
+		return threadName;
+	}
+
+	public String getNdc() {
+		return ndc;
+	}
+
+	public Map<String, String> getMdc() {
+		return mdc;
+	}
+
+	/**
+	 * @return null if the event has no stack trace or only its lines
+	 */
+	public Throwable getThrowable() {
+		return throwable;
+	}
+
+	public boolean hasThrowable() {
+		return throwable != null || throwableLines != null;
+	}
+
+	/**
+	 * The stack trace in the layout of printStackTrace, rendered from the
+	 * throwable on first use. The array is shared and must not be changed.
+	 *
+	 * @return null if the event has no stack trace
+	 */
+	public String[] getThrowableLines() {
+
+		String[] lines = throwableLines;
+
+		if (lines == null && throwable != null) {
+			StringWriter text = new StringWriter();
+			PrintWriter writer = new PrintWriter(text);
+			throwable.printStackTrace(writer);
+			writer.flush();
+			lines = LINE_BREAK.split(text.toString());
+			throwableLines = lines;
+		}
+
+		return lines;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// the throwable is not written, its lines are
+		getThrowableLines();
+		out.defaultWriteObject();
+	}
+}
@@ -13,15 +13,10 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
 */
-package ee.ignite.logtojira.plugin;
+package ee.ignite.logtojira;
 
-import org.apache.log4j.spi.LoggingEvent;
+public interface EventProcessor {
 
-public class MDCPlugin extends AbstractPlugin {
-
-	@Override
-	public String getText(LoggingEvent loggingEvent) {
-		return super.getText(loggingEvent) + ": " + loggingEvent.getProperties().toString();
-	}
+	void process(Event event);
 
 }
@@ -0,0 +1,211 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Event held for later processing without the throwable, which would keep
+ * its whole object graph reachable. The stack trace is kept as ids of lines
+ * in a {@link FrameDictionary} and put together again in the layout of
+ * printStackTrace when asked for.
+ */
+public class EventSnapshot extends Event {
+
+	private static final long serialVersionUID = 1L;
+	private static final String FRAME_PREFIX = "\tat ";
+	private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+
+	private final transient FrameDictionary dictionary;
+	private final transient int[] lines;
+	private final transient String[] literals;
+	private transient volatile String[] rendered;
+
+	private EventSnapshot(Event event, FrameDictionary dictionary, Lines lines) {
+		super(event);
+		this.dictionary = dictionary;
+		this.lines = lines != null ? lines.ids() : null;
+		this.literals = lines != null ? lines.literals() : null;
+	}
+
+	public static EventSnapshot capture(Event event, FrameDictionary dictionary) {
+
+		if (event instanceof EventSnapshot) {
+			return (EventSnapshot) event;
+		}
+
+		Lines lines = null;
+
+		if (event.getThrowable() != null) {
+			lines = new Lines(dictionary);
+			Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+			lines.add(event.getThrowable(), NO_FRAMES, "", "", seen);
+		} else if (event.hasThrowable()) {
+			lines = new Lines(dictionary);
+			lines.add(event.getThrowableLines());
+		}
+
+		return new EventSnapshot(event, dictionary, lines);
+	}
+
+	@Override
+	public boolean hasThrowable() {
+		return lines != null;
+	}
+
+	/**
+	 * Looked up in the dictionary on first use, the lines are mostly the
+	 * strings it already holds. The array is shared and must not be changed.
+	 */
+	@Override
+	public String[] getThrowableLines() {
+
+		if (lines == null) {
+			return null;
+		}
+
+		String[] result = rendered;
+		if (result == null) {
+			result = new String[lines.length];
+			for (int i = 0; i < lines.length; i++) {
+				result[i] = lines[i] >= 0 ? dictionary.get(lines[i]) : literals[-1 - lines[i]];
+			}
+			rendered = result;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Written as a plain event with the rendered lines, the ids mean nothing
+	 * to the dictionary of another appender or JVM.
+	 */
+	private Object writeReplace() {
+		return new Event(getLoggerName(), getLevel(), getTimeStamp(), getMessage(), getThreadName(), getNdc(),
+				getMdc(), null, getThrowableLines());
+	}
+
+	/**
+	 * Lines of a stack trace as ids in the dictionary, or as negative indexes
+	 * into literals for headers, which carry messages, and for lines that did
+	 * not fit into the dictionary.
+	 */
+	private static class Lines {
+
+		private final FrameDictionary dictionary;
+		private final List<String> literals = new ArrayList<String>(2);
+		private int[] ids = new int[32];
+		private int size = 0;
+
+		Lines(FrameDictionary dictionary) {
+			this.dictionary = dictionary;
+		}
+
+		void add(Throwable throwable, StackTraceElement[] enclosing, String caption, String prefix,
+				Set<Throwable> seen) {
+
+			if (!seen.add(throwable)) {
+				literal(prefix + caption + "[CIRCULAR REFERENCE:" + throwable + "]");
+				return;
+			}
+
+			StackTraceElement[] trace = throwable.getStackTrace();
+			int m = trace.length - 1;
+			int n = enclosing.length - 1;
+			while (m >= 0 && n >= 0 && trace[m].equals(enclosing[n])) {
+				m--;
+				n--;
+			}
+			int inCommon = trace.length - 1 - m;
+
+			literal(prefix + caption + throwable);
+			for (int i = 0; i <= m; i++) {
+				if (prefix.length() == 0) {
+					add(dictionary.frame(trace[i]), trace[i]);
+				} else {
+					line(prefix + FRAME_PREFIX + trace[i]);
+				}
+			}
+			if (inCommon != 0) {
+				line(prefix + "\t... " + inCommon + " more");
+			}
+
+			for (Throwable suppressed : StackTraceRenderer.suppressed(throwable)) {
+				add(suppressed, trace, "Suppressed: ", prefix + "\t", seen);
+			}
+
+			if (throwable.getCause() != null) {
+				add(throwable.getCause(), trace, "Caused by: ", prefix, seen);
+			}
+		}
+
+		void add(String[] rendered) {
+			for (String line : rendered) {
+				String trimmed = line.trim();
+				if (trimmed.startsWith("at ") || trimmed.startsWith("... ")) {
+					line(line);
+				} else {
+					literal(line);
+				}
+			}
+		}
+
+		private void add(int id, StackTraceElement frame) {
+			if (id == FrameDictionary.FULL) {
+				literal(FRAME_PREFIX + frame);
+			} else {
+				append(id);
+			}
+		}
+
+		private void line(String line) {
+			int id = dictionary.line(line);
+			if (id == FrameDictionary.FULL) {
+				literal(line);
+			} else {
+				append(id);
+			}
+		}
+
+		private void literal(String line) {
+			literals.add(line);
+			append(-literals.size());
+		}
+
+		private void append(int id) {
+			if (size == ids.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(ids, 0, grown, 0, size);
+				ids = grown;
+			}
+			ids[size++] = id;
+		}
+
+		int[] ids() {
+			int[] trimmed = new int[size];
+			System.arraycopy(ids, 0, trimmed, 0, size);
+			return trimmed;
+		}
+
+		String[] literals() {
+			return literals.toArray(new String[literals.size()]);
+		}
+	}
+}
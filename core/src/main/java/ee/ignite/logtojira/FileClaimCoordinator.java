@@ -0,0 +1,266 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Claims fingerprints with file locks in a directory shared by all nodes. The
+ * claim file of a fingerprint is locked while its issue is created and then
+ * holds the issue key and creation time. Nodes that waited for the lock find
+ * the key there and attach to that issue instead of creating another, until
+ * the key is older than the time to live and JIRA search is trusted again.
+ * Claim files that have not been written for the time to live are deleted
+ * by the next claim after it, at most once per time to live. A claim waits
+ * up to the timeout for the lock, on the logging thread unless the appender
+ * is async.
+ */
+public class FileClaimCoordinator implements ClaimCoordinator {
+
+	private static final long POLL_INTERVAL = 20;
+	private static final int STRIPES = 64;
+	private static final String SUFFIX = ".claim";
+
+	private final File directory;
+	private final long timeout;
+	private final long ttl;
+	private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+	private final ConcurrentMap<String, Claim> held = new ConcurrentHashMap<String, Claim>();
+	private final AtomicLong nextSweep = new AtomicLong();
+
+	public FileClaimCoordinator(File directory, long timeout, long ttl) throws IOException {
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create claim directory " + directory);
+		}
+
+		this.directory = directory;
+		this.timeout = timeout;
+		this.ttl = ttl;
+
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+	}
+
+	@Override
+	public String claim(String fingerprint) throws IOException {
+
+		long deadline = System.currentTimeMillis() + timeout;
+
+		sweepIfDue();
+
+		// file locks are held by the whole JVM, threads of this JVM queue here
+		ReentrantLock local = stripe(fingerprint);
+		try {
+			if (!local.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+				throw new IOException("Claim of " + fingerprint + " not obtained in " + timeout + " ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while claiming " + fingerprint);
+		}
+
+		File file = new File(directory, fingerprint + SUFFIX);
+		FileChannel channel = null;
+
+		try {
+			channel = new RandomAccessFile(file, "rw").getChannel();
+			FileLock lock = lock(channel, fingerprint, deadline);
+
+			while (!file.exists()) {
+				// swept while waiting for the lock, claim the new file
+				lock.release();
+				channel.close();
+				channel = new RandomAccessFile(file, "rw").getChannel();
+				lock = lock(channel, fingerprint, deadline);
+			}
+
+			String issueKey = readIssueKey(channel);
+			if (issueKey != null) {
+				lock.release();
+				channel.close();
+				local.unlock();
+				return issueKey;
+			}
+
+			held.put(fingerprint, new Claim(channel, lock, local));
+			return null;
+		} catch (IOException e) {
+			if (channel != null) {
+				channel.close();
+			}
+			local.unlock();
+			throw e;
+		}
+	}
+
+	@Override
+	public void release(String fingerprint, String issueKey) {
+
+		Claim claim = held.get(fingerprint);
+
+		if (claim == null || !claim.local.isHeldByCurrentThread()) {
+			return;
+		}
+
+		held.remove(fingerprint);
+
+		try {
+			if (issueKey != null) {
+				byte[] content = (issueKey + " " + System.currentTimeMillis()).getBytes("UTF-8");
+				claim.channel.truncate(0);
+				claim.channel.write(ByteBuffer.wrap(content), 0);
+				claim.channel.force(false);
+			}
+			claim.lock.release();
+		} catch (IOException e) {
+			// closing the channel below releases the lock anyway
+		} finally {
+			try {
+				claim.channel.close();
+			} catch (IOException e) {
+				// nothing left to do
+			}
+			claim.local.unlock();
+		}
+	}
+
+	private ReentrantLock stripe(String fingerprint) {
+		return stripes[(fingerprint.hashCode() & Integer.MAX_VALUE) % STRIPES];
+	}
+
+	private void sweepIfDue() {
+
+		long now = System.currentTimeMillis();
+		long due = nextSweep.get();
+
+		if (now >= due && nextSweep.compareAndSet(due, now + Math.max(ttl, POLL_INTERVAL))) {
+			sweep(now - ttl);
+		}
+	}
+
+	/**
+	 * Deletes the claim files last written before the given time that no
+	 * node holds a lock on.
+	 */
+	private void sweep(long before) {
+
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(SUFFIX);
+			}
+		});
+
+		if (files == null) {
+			return;
+		}
+
+		for (File file : files) {
+
+			if (file.lastModified() >= before) {
+				continue;
+			}
+
+			// keeps out the threads of this JVM, which would fail on the file lock
+			ReentrantLock local = stripe(file.getName().substring(0, file.getName().length() - SUFFIX.length()));
+			if (!local.tryLock()) {
+				continue;
+			}
+
+			try {
+				FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+				try {
+					FileLock lock = channel.tryLock();
+					if (lock != null && file.lastModified() < before) {
+						file.delete();
+					}
+				} finally {
+					channel.close();
+				}
+			} catch (IOException e) {
+				// gone already
+			} finally {
+				local.unlock();
+			}
+		}
+	}
+
+	private FileLock lock(FileChannel channel, String fingerprint, long deadline) throws IOException {
+
+		FileLock lock;
+
+		while ((lock = channel.tryLock()) == null) {
+			if (System.currentTimeMillis() >= deadline) {
+				throw new IOException("Claim of " + fingerprint + " not obtained in " + timeout + " ms");
+			}
+			try {
+				Thread.sleep(POLL_INTERVAL);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while claiming " + fingerprint);
+			}
+		}
+
+		return lock;
+	}
+
+	private String readIssueKey(FileChannel channel) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), 256));
+		channel.read(buffer, 0);
+		String[] content = new String(buffer.array(), 0, buffer.position(), "UTF-8").trim().split(" ");
+
+		if (content.length != 2) {
+			return null;
+		}
+
+		try {
+			if (System.currentTimeMillis() - Long.parseLong(content[1]) < ttl) {
+				return content[0];
+			}
+		} catch (NumberFormatException e) {
+			// a claim file from a crashed writer is claimed again
+		}
+
+		return null;
+	}
+
+	private static class Claim {
+
+		private final FileChannel channel;
+		private final FileLock lock;
+		private final ReentrantLock local;
+
+		private Claim(FileChannel channel, FileLock lock, ReentrantLock local) {
+			this.channel = channel;
+			this.lock = lock;
+			this.local = local;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Stack trace lines shared by the events of an appender, so that an event
+ * keeps only ids of the frames it has in common with the others. Holds at
+ * most capacity lines and never forgets one, as events refer to them by id.
+ */
+public class FrameDictionary {
+
+	public static final int FULL = -1;
+
+	private static final String FRAME_PREFIX = "\tat ";
+
+	private final ConcurrentMap<Object, Integer> ids = new ConcurrentHashMap<Object, Integer>();
+	private final AtomicReferenceArray<String> lines;
+	private final AtomicInteger size = new AtomicInteger();
+
+	public FrameDictionary(int capacity) {
+		lines = new AtomicReferenceArray<String>(capacity);
+	}
+
+	/**
+	 * The frame is only turned into a line the first time it is seen.
+	 *
+	 * @return id of the line of the frame, or FULL
+	 */
+	public int frame(StackTraceElement frame) {
+		Integer id = ids.get(frame);
+		return id != null ? id : add(frame, FRAME_PREFIX + frame);
+	}
+
+	/**
+	 * @return id of the line, or FULL
+	 */
+	public int line(String line) {
+		Integer id = ids.get(line);
+		return id != null ? id : add(line, line);
+	}
+
+	public String get(int id) {
+		return lines.get(id);
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	public int capacity() {
+		return lines.length();
+	}
+
+	/**
+	 * Two threads adding the same line both take an id, one of them stays
+	 * unused.
+	 */
+	private int add(Object key, String line) {
+
+		int id = reserve();
+		if (id == FULL) {
+			return FULL;
+		}
+
+		lines.set(id, line);
+		Integer existing = ids.putIfAbsent(key, id);
+		return existing != null ? existing : id;
+	}
+
+	private int reserve() {
+		for (;;) {
+			int current = size.get();
+			if (current >= lines.length()) {
+				return FULL;
+			}
+			if (size.compareAndSet(current, current + 1)) {
+				return current;
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU map from duplicate fingerprint to the key of the JIRA issue
+ * that was found or created for it. Entries expire after a fixed time to
+ * live, so issues closed in JIRA are eventually noticed.
+ */
+public class IssueKeyCache {
+
+	private final long ttl;
+	private final Map<String, Entry> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public IssueKeyCache(final int maxSize, long ttl) {
+		this.ttl = ttl;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	public synchronized String get(String fingerprint) {
+
+		Entry entry = entries.get(fingerprint);
+
+		if (entry != null && entry.expires < System.currentTimeMillis()) {
+			entries.remove(fingerprint);
+			entry = null;
+		}
+
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		hits.incrementAndGet();
+		return entry.issueKey;
+	}
+
+	public synchronized void put(String fingerprint, String issueKey) {
+		entries.put(fingerprint, new Entry(issueKey, System.currentTimeMillis() + ttl));
+	}
+
+	/**
+	 * @return true if some fingerprint was mapped to the issue
+	 */
+	public synchronized boolean invalidate(String issueKey) {
+
+		boolean found = false;
+
+		for (Iterator<Entry> i = entries.values().iterator(); i.hasNext();) {
+			if (i.next().issueKey.equals(issueKey)) {
+				i.remove();
+				found = true;
+			}
+		}
+
+		return found;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	private static class Entry {
+
+		private final String issueKey;
+		private final long expires;
+
+		private Entry(String issueKey, long expires) {
+			this.issueKey = issueKey;
+			this.expires = expires;
+		}
+	}
+}
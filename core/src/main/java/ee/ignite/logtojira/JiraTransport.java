@@ -0,0 +1,63 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.rmi.RemoteException;
+
+import ee.ignite.logtojira.soap.RemoteAuthenticationException;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+import ee.ignite.logtojira.soap.RemotePermissionException;
+import ee.ignite.logtojira.soap.RemoteValidationException;
+
+/**
+ * The JIRA operations the appender uses. Issues and comments are passed as
+ * the SOAP beans and failures are reported with the SOAP exceptions whatever
+ * the protocol: the subclasses of {@link ee.ignite.logtojira.soap.RemoteException}
+ * when JIRA refused the call and a plain {@link RemoteException} when JIRA
+ * could not be reached.
+ */
+public interface JiraTransport {
+
+	String login(String username, String password) throws RemoteException,
+			RemoteAuthenticationException, ee.ignite.logtojira.soap.RemoteException;
+
+	boolean logout(String token) throws RemoteException;
+
+	RemoteIssue[] getIssuesFromJqlSearch(String token, String jql, int maxResults) throws RemoteException,
+			ee.ignite.logtojira.soap.RemoteException;
+
+	RemoteIssue createIssue(String token, RemoteIssue issue) throws RemoteException,
+			RemoteAuthenticationException, RemotePermissionException,
+			ee.ignite.logtojira.soap.RemoteException, RemoteValidationException;
+
+	RemoteIssue updateIssue(String token, String issueKey, RemoteFieldValue[] fieldValues)
+			throws RemoteException, ee.ignite.logtojira.soap.RemoteException;
+
+	void addComment(String token, String issueKey, RemoteComment comment) throws RemoteException,
+			RemoteAuthenticationException, RemotePermissionException,
+			ee.ignite.logtojira.soap.RemoteException;
+
+	RemoteComment[] getComments(String token, String issueKey) throws RemoteException,
+			RemoteAuthenticationException, RemotePermissionException,
+			ee.ignite.logtojira.soap.RemoteException;
+
+	void addAttachment(String token, String issueKey, Attachment attachment) throws RemoteException,
+			RemoteAuthenticationException, RemotePermissionException,
+			ee.ignite.logtojira.soap.RemoteException;
+
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.axis.AxisFault;
+import org.apache.axis.Message;
+import org.apache.axis.MessageContext;
+import org.apache.axis.handlers.BasicHandler;
+
+/**
+ * Axis transport sender on top of HttpURLConnection, which speaks HTTP/1.1
+ * and keeps connections alive between calls, unlike the HTTP/1.0 sender that
+ * Axis uses by default. Responses are read completely so that the connection
+ * goes back to the JVM wide keep-alive cache, whose size per host is set by
+ * the http.maxConnections system property. Connections in use at the same
+ * time are limited separately.
+ */
+public class KeepAliveHTTPSender extends BasicHandler {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int connectTimeout;
+	private final int readTimeout;
+	private final Semaphore connections;
+	private final boolean compressRequests;
+	private final boolean compressResponses;
+
+	public KeepAliveHTTPSender(int connectTimeout, int readTimeout, int maxConnections,
+			boolean compressRequests, boolean compressResponses) {
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.connections = new Semaphore(maxConnections, true);
+		this.compressRequests = compressRequests;
+		this.compressResponses = compressResponses;
+	}
+
+	@Override
+	public void invoke(MessageContext msgContext) throws AxisFault {
+
+		acquire();
+
+		try {
+			send(msgContext);
+		} catch (IOException e) {
+			throw AxisFault.makeFault(e);
+		} finally {
+			connections.release();
+		}
+	}
+
+	private void acquire() throws AxisFault {
+
+		try {
+			if (connectTimeout > 0) {
+				if (!connections.tryAcquire(connectTimeout, TimeUnit.MILLISECONDS)) {
+					throw new AxisFault("No free JIRA connection in " + connectTimeout + " ms");
+				}
+			} else {
+				connections.acquire();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw AxisFault.makeFault(e);
+		}
+	}
+
+	private void send(MessageContext msgContext) throws IOException {
+
+		Message request = msgContext.getRequestMessage();
+		URL url = new URL(msgContext.getStrProp(MessageContext.TRANS_URL));
+
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setDoOutput(true);
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Content-Type", request.getContentType(msgContext.getSOAPConstants()));
+		connection.setRequestProperty("SOAPAction",
+				"\"" + (msgContext.useSOAPAction() ? msgContext.getSOAPActionURI() : "") + "\"");
+
+		if (compressResponses) {
+			connection.setRequestProperty("Accept-Encoding", "gzip");
+		}
+
+		if (compressRequests) {
+			connection.setRequestProperty("Content-Encoding", "gzip");
+			GZIPOutputStream out = new GZIPOutputStream(connection.getOutputStream());
+			writeRequest(request, out);
+			out.finish();
+			out.close();
+		} else {
+			OutputStream out = connection.getOutputStream();
+			writeRequest(request, out);
+			out.close();
+		}
+
+		int status = connection.getResponseCode();
+		String contentType = connection.getContentType();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		byte[] body = in == null ? new byte[0] : readFully(in, connection.getContentEncoding());
+
+		// a SOAP fault comes with status 500 and is turned into an exception by Axis
+		boolean fault = status == 500 && contentType != null && contentType.indexOf("xml") >= 0;
+		if ((status < 200 || status > 299) && !fault) {
+			throw new AxisFault("HTTP", "(" + status + ")" + connection.getResponseMessage(), null, null);
+		}
+
+		Message response = new Message(new ByteArrayInputStream(body), false, contentType, null);
+		response.setMessageType(Message.RESPONSE);
+		msgContext.setResponseMessage(response);
+	}
+
+	private void writeRequest(Message request, OutputStream out) throws IOException {
+		try {
+			request.writeTo(out);
+		} catch (javax.xml.soap.SOAPException e) {
+			throw new IOException(e.toString());
+		}
+	}
+
+	private byte[] readFully(InputStream in, String contentEncoding) throws IOException {
+
+		InputStream body = "gzip".equalsIgnoreCase(contentEncoding) ? new GZIPInputStream(in) : in;
+
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = body.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			body.close();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency distribution in power of two microsecond buckets. Recording only
+ * increments atomic counters, so it never blocks the caller.
+ */
+public class LatencyHistogram {
+
+	private static final int BUCKETS = 40;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+
+		long micros = Math.max(0, nanos / 1000);
+
+		buckets.incrementAndGet(bucket(micros));
+		total.addAndGet(micros);
+
+		long current = max.get();
+		while (micros > current && !max.compareAndSet(current, micros)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * Bucket 0 holds 0, bucket i holds [2^(i-1), 2^i) microseconds.
+	 */
+	static int bucket(long micros) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/**
+	 * Percentiles are the upper bounds of their buckets, so they may be up to
+	 * twice the real value, but never above the maximum seen.
+	 */
+	public LatencySnapshot snapshot() {
+
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+
+		long maxMicros = max.get();
+		long mean = count > 0 ? total.get() / count : 0;
+
+		return new LatencySnapshot(count, mean, percentile(counts, count, 0.5, maxMicros),
+				percentile(counts, count, 0.9, maxMicros), percentile(counts, count, 0.99, maxMicros), maxMicros);
+	}
+
+	private long percentile(long[] counts, long count, double quantile, long maxMicros) {
+
+		long rank = (long) Math.ceil(quantile * count);
+		long seen = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && seen > 0) {
+				long upper = i == 0 ? 0 : (1L << i) - 1;
+				return Math.min(upper, maxMicros);
+			}
+		}
+
+		return 0;
+	}
+}
@@ -0,0 +1,1271 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.xml.rpc.ServiceException;
+
+import ee.ignite.logtojira.AsyncDispatcher.OverflowPolicy;
+import ee.ignite.logtojira.plugin.EventPlugin;
+import ee.ignite.logtojira.rest.RestJiraTransport;
+import ee.ignite.logtojira.soap.RemoteAuthenticationException;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteIssue;
+import ee.ignite.logtojira.soap.RemotePermissionException;
+import ee.ignite.logtojira.soap.RemoteValidationException;
+
+/**
+ * Sends logged errors to JIRA, for any logging framework. The adapters of
+ * the frameworks set the params, copy their events into {@link Event}s on
+ * the logging thread and report the problems of this class through an
+ * {@link ErrorReporter}.
+ */
+public class LogToJira {
+
+	private static final String SECTION_SEPARATOR = "\n----\n";
+	private static final String SOAP = "soap";
+	private static final String REST = "rest";
+	private static final String SOAP_PATH = "/rpc/soap/";
+	private static final long SUPPRESSED_IDLE_TIME = 60000;
+	private static final long SUPPRESSED_FLUSH_INTERVAL = 1000;
+
+	private String name;
+	private volatile ErrorReporter errorReporter = new ErrorReporter() {
+		@Override
+		public void error(String message, Exception e) {
+			System.err.println("log-to-jira: " + message);
+			if (e != null) {
+				e.printStackTrace();
+			}
+		}
+	};
+	private Config config = new Config();
+	private volatile AppenderService service;
+	private URL url;
+	private volatile JiraTransport transport;
+	private String transportType = SOAP;
+	private boolean keepAlive = false;
+	private int connectTimeout = 10000;
+	private int readTimeout = 30000;
+	private int maxConnections = 5;
+	private boolean compressRequests = false;
+	private boolean compressResponses = false;
+	private volatile boolean enabled = true;
+	private List<EventPlugin> plugins = new ArrayList<EventPlugin>();
+	private boolean async = false;
+	private int queueSize = 1024;
+	private int workers = 1;
+	private boolean virtualThreads = false;
+	private boolean lockFreeQueue = false;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+	private long blockTimeout = 1000;
+	private long shutdownTimeout = 5000;
+	private boolean compactEvents = false;
+	private int frameDictionarySize = 16384;
+	private FrameDictionary frameDictionary;
+	private volatile AsyncDispatcher dispatcher;
+	private long sessionRefreshInterval = 0;
+	private volatile SessionManager sessionManager;
+	private ScheduledExecutorService openIssueSync;
+	private long coalesceWindow = 0;
+	private int coalesceMaxPending = 1000;
+	private Coalescer coalescer;
+	private boolean combineComments = false;
+	private int rateLimit = 0;
+	private int identityRateLimit = 0;
+	private RateLimiter rateLimiter;
+	private ScheduledExecutorService suppressedFlush;
+	private int failureThreshold = 0;
+	private long openTimeout = 30000;
+	private CircuitBreaker circuitBreaker;
+	private String spoolDirectory;
+	private int spoolSegmentSize = 1024 * 1024;
+	private int spoolMaxSegments = 16;
+	private Spool spool;
+	private SpoolReplayer spoolReplayer;
+	private DedupIndex dedupIndex;
+	private String claimDirectory;
+	private long claimTimeout = 10000;
+	private long claimTtl = 60000;
+	private ClaimCoordinator claimCoordinator;
+	private boolean warmUp = false;
+	private int warmUpBufferSize = 256;
+	private volatile WarmUp warmer;
+	private final Metrics metrics = new Metrics();
+	private boolean jmx = false;
+	private ObjectName objectName;
+
+	public void start() {
+
+		metrics.setGauges(new AppenderGauges());
+		if (jmx) {
+			registerMetrics();
+		}
+
+		if (config.getDedupIndexFile() != null) {
+			try {
+				dedupIndex = new DedupIndex(new File(config.getDedupIndexFile()), config.getDedupIndexSize());
+			} catch (IOException e) {
+				errorReporter.error("JIRA dedup index not available", e);
+			}
+		}
+
+		if (rateLimit > 0 || identityRateLimit > 0) {
+			rateLimiter = new RateLimiter(rateLimit, identityRateLimit);
+			startSuppressedFlush();
+		}
+
+		if (claimDirectory != null && claimCoordinator == null) {
+			try {
+				claimCoordinator = new FileClaimCoordinator(new File(claimDirectory), claimTimeout, claimTtl);
+			} catch (IOException e) {
+				errorReporter.error("JIRA claim directory not available", e);
+			}
+		}
+
+		if (failureThreshold > 0) {
+			circuitBreaker = new CircuitBreaker(failureThreshold, openTimeout);
+			if (spoolDirectory != null) {
+				openSpool();
+			}
+		}
+
+		if (compactEvents) {
+			frameDictionary = new FrameDictionary(frameDictionarySize);
+		}
+
+		if (coalesceWindow > 0) {
+			coalescer = new Coalescer(coalesceWindow, coalesceMaxPending, new Coalescer.Handler() {
+				@Override
+				public void flush(String identity, Occurrences occurrences) {
+					flushOccurrences(identity, occurrences);
+				}
+			});
+		}
+
+		if (async) {
+			if (virtualThreads && !AsyncDispatcher.isVirtualThreadsSupported()) {
+				errorReporter.error("JIRA virtual threads not supported by this JVM, using platform threads", null);
+			}
+			AsyncDispatcher created = new AsyncDispatcher(new EventProcessor() {
+				@Override
+				public void process(Event event) {
+					LogToJira.this.process(event);
+				}
+			}, queueSize, workers, overflowPolicy, blockTimeout, virtualThreads, lockFreeQueue);
+			created.setEvictionListener(new AsyncDispatcher.EvictionListener() {
+				@Override
+				public void evicted(Event event) {
+					metrics.eventDropped();
+					errorReporter.error("JIRA queue full, oldest event dropped", null);
+				}
+			});
+			created.setFailureListener(new AsyncDispatcher.FailureListener() {
+				@Override
+				public void failed(Event event, RuntimeException e) {
+					metrics.error(e);
+					errorReporter.error("JIRA problem", e);
+				}
+			});
+			dispatcher = created;
+		}
+
+		if (warmUp) {
+			warmer = new WarmUp(new Runnable() {
+				@Override
+				public void run() {
+					getService();
+					startSessionRefresh();
+					startOpenIssueSync();
+				}
+			}, new EventProcessor() {
+				@Override
+				public void process(Event event) {
+					handle(event);
+				}
+			}, warmUpBufferSize);
+		} else {
+			startSessionRefresh();
+			startOpenIssueSync();
+		}
+	}
+
+	private void registerMetrics() {
+		try {
+			objectName = new ObjectName("ee.ignite.logtojira:type=LogToJiraAppender,name="
+					+ ObjectName.quote(getName() != null ? getName() : "jira"));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+		} catch (JMException e) {
+			objectName = null;
+			errorReporter.error("JIRA metrics not registered", e);
+		}
+	}
+
+	private void startSessionRefresh() {
+		if (sessionRefreshInterval > 0) {
+			getSessionManager().startRefresh(sessionRefreshInterval);
+		}
+	}
+
+	/**
+	 * The service is built here and not on the sync thread, so that events
+	 * and the sync never race to build it.
+	 */
+	private void startOpenIssueSync() {
+
+		if (config.getOpenIssueSyncInterval() <= 0) {
+			return;
+		}
+
+		final AppenderService service = getService();
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogToJira-open-issue-sync");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		synchronized (this) {
+			if (openIssueSync != null) {
+				executor.shutdown();
+				return;
+			}
+			openIssueSync = executor;
+		}
+
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				String token = null;
+				try {
+					token = getSessionManager().getToken();
+					service.syncOpenIssues(token);
+				} catch (RemoteAuthenticationException e) {
+					getSessionManager().invalidate(token);
+				} catch (RemoteException e) {
+					// events search JIRA themselves until the index is loaded
+					metrics.error(e);
+					errorReporter.error("JIRA open issue sync failed", e);
+				}
+			}
+		}, 0, config.getOpenIssueSyncInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	private void startSuppressedFlush() {
+
+		suppressedFlush = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogToJira-rate-limit-flush");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		suppressedFlush.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					flushSuppressed(SUPPRESSED_IDLE_TIME);
+				} catch (RuntimeException e) {
+					// keep the timer alive
+					errorReporter.error("JIRA problem", e);
+				}
+			}
+		}, SUPPRESSED_FLUSH_INTERVAL, SUPPRESSED_FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	private void openSpool() {
+
+		try {
+			spool = new Spool(new File(spoolDirectory), spoolSegmentSize, spoolMaxSegments);
+		} catch (IOException e) {
+			errorReporter.error("JIRA spool not available", e);
+			return;
+		}
+
+		spoolReplayer = new SpoolReplayer(spool, circuitBreaker, new SpoolReplayer.Handler() {
+			@Override
+			public boolean replay(Event event) {
+				if (event instanceof CoalescedEvent) {
+					Occurrences occurrences = ((CoalescedEvent) event).getOccurrences();
+					return deliver(occurrences.getFirst(), null, null, occurrences);
+				}
+				return deliver(event, null, null, null);
+			}
+		}, openTimeout);
+	}
+
+	public void append(Event event) {
+
+		if (!enabled) {
+			return;
+		}
+
+		metrics.eventReceived();
+
+		WarmUp currentWarmer = warmer;
+		if (currentWarmer != null && !currentWarmer.isReady()) {
+			event = prepare(event);
+			if (!currentWarmer.offer(event)) {
+				metrics.eventDropped();
+				errorReporter.error("JIRA client not ready and warm-up buffer full, event dropped", null);
+			}
+			return;
+		}
+
+		handle(event);
+	}
+
+	private void handle(Event event) {
+
+		AsyncDispatcher current = dispatcher;
+
+		if (current != null) {
+			dispatchAsync(current, event);
+		} else {
+			process(event);
+		}
+	}
+
+	private void dispatchAsync(AsyncDispatcher current, Event event) {
+
+		event = prepare(event);
+
+		if (!current.dispatch(event)) {
+			metrics.eventDropped();
+			errorReporter.error("JIRA queue full, event dropped", null);
+		}
+	}
+
+	/**
+	 * With compactEvents the event is held as a snapshot that does not keep
+	 * the throwable while it waits.
+	 */
+	private Event prepare(Event event) {
+		FrameDictionary dictionary = frameDictionary;
+		return dictionary != null ? EventSnapshot.capture(event, dictionary) : event;
+	}
+
+	protected void process(Event event) {
+
+		if (event instanceof CoalescedEvent) {
+			CoalescedEvent coalesced = (CoalescedEvent) event;
+			Occurrences occurrences = coalesced.getOccurrences();
+			send(occurrences.getFirst(), null, coalesced.getIdentity(), occurrences);
+			return;
+		}
+
+		RemoteIssue newIssue = null;
+		String fingerprint = null;
+
+		if (coalescer != null) {
+			try {
+				newIssue = getService().createIssue(event);
+				fingerprint = getService().fingerprint(newIssue);
+			} catch (RemoteException e) {
+				errorReporter.error("JIRA problem", e);
+				return;
+			}
+			event = prepare(event);
+			if (coalescer.add(fingerprint, event)) {
+				return;
+			}
+		}
+
+		send(event, newIssue, fingerprint, null);
+	}
+
+	/**
+	 * Hands a closed window over to the async workers, so that the timer of
+	 * the coalescer is not held up by JIRA. Without workers, or when they
+	 * have no room or are shutting down, the window is sent right here.
+	 */
+	private void flushOccurrences(String fingerprint, Occurrences occurrences) {
+
+		AsyncDispatcher current = dispatcher;
+
+		if (current == null || !current.offer(new CoalescedEvent(fingerprint, occurrences))) {
+			send(occurrences.getFirst(), null, fingerprint, occurrences);
+		}
+	}
+
+	/**
+	 * Limits are checked on {@link RateLimiter#key(Event)}, so that an event
+	 * over the limit costs no rendering.
+	 *
+	 * @param newIssue the issue created from the event, or null to create it
+	 *        when needed
+	 * @param fingerprint fingerprint of that issue, or null to compute it
+	 *        when needed
+	 */
+	private void send(Event event, RemoteIssue newIssue, String fingerprint, Occurrences occurrences) {
+
+		if (rateLimiter != null) {
+			String key = RateLimiter.key(event);
+			if (!rateLimiter.tryAcquire(key, event)) {
+				metrics.eventRateLimited();
+				return;
+			}
+			int suppressed = rateLimiter.takeSuppressed(key);
+			if (suppressed > 0) {
+				if (occurrences == null) {
+					occurrences = new Occurrences(event);
+				}
+				occurrences.addSuppressed(suppressed);
+			}
+		}
+
+		sendUnlimited(event, newIssue, fingerprint, occurrences);
+	}
+
+	private void sendUnlimited(Event event, RemoteIssue newIssue, String fingerprint, Occurrences occurrences) {
+
+		if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+			spool(event, occurrences);
+			return;
+		}
+
+		if (!deliver(event, newIssue, fingerprint, occurrences) && circuitBreaker != null) {
+			spool(event, occurrences);
+		}
+	}
+
+	/**
+	 * Sends the first suppressed event of each identity that has gone quiet,
+	 * so that its count is not held back until the next event gets through.
+	 * Each takes a token of the global limit, identities left without one are
+	 * sent on a later run.
+	 */
+	private void flushSuppressed(long idle) {
+		for (Occurrences occurrences : rateLimiter.takeIdle(idle).values()) {
+			sendUnlimited(occurrences.getFirst(), null, null, occurrences);
+		}
+	}
+
+	/**
+	 * @return false if JIRA could not be reached
+	 */
+	private boolean deliver(Event event, RemoteIssue newIssue, String fingerprint, Occurrences occurrences) {
+
+		try {
+			logToJira(event, newIssue, fingerprint, occurrences);
+			if (circuitBreaker != null) {
+				circuitBreaker.recordSuccess();
+			}
+		} catch (RemoteAuthenticationException e) {
+			metrics.error(e);
+			errorReporter.error("JIRA auth failed", e);
+		} catch (ee.ignite.logtojira.soap.RemoteException e) {
+			// JIRA did answer, so it is reachable
+			if (circuitBreaker != null) {
+				circuitBreaker.recordSuccess();
+			}
+			metrics.error(e);
+			errorReporter.error("JIRA problem", e);
+		} catch (RemoteException e) {
+			if (circuitBreaker != null) {
+				circuitBreaker.recordFailure();
+			}
+			metrics.error(e);
+			errorReporter.error("JIRA problem", e);
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Keeps the event on disk until JIRA is reachable again, together with
+	 * the occurrences it stands for. Without a spool the event is lost.
+	 */
+	private void spool(Event event, Occurrences occurrences) {
+
+		if (spool == null) {
+			metrics.eventDropped();
+			return;
+		}
+
+		// the event is the first of the occurrences
+		Event record = occurrences != null ? new CoalescedEvent(null, occurrences) : event;
+
+		try {
+			if (!spool.append(SpoolReplayer.serialize(record))) {
+				metrics.eventDropped();
+				errorReporter.error("JIRA event too large for spool, event dropped", null);
+			}
+		} catch (IOException e) {
+			metrics.eventDropped();
+			errorReporter.error("JIRA spool problem", e);
+		}
+	}
+
+	private void logToJira(Event event, RemoteIssue newIssue, String fingerprint, Occurrences occurrences)
+			throws RemoteException, RemoteAuthenticationException, ee.ignite.logtojira.soap.RemoteException,
+			RemoteValidationException, RemotePermissionException {
+
+		String token = getSessionManager().getToken();
+
+		if (newIssue == null) {
+			newIssue = getService().createIssue(event);
+		}
+
+		try {
+			logToJira(event, newIssue, fingerprint, occurrences, token, true);
+		} catch (RemoteAuthenticationException e) {
+			// session has expired on the JIRA side, log in again and retry once
+			getSessionManager().invalidate(token);
+			logToJira(event, newIssue, fingerprint, occurrences, getSessionManager().getToken(), true);
+		}
+	}
+
+	private void logToJira(Event event, RemoteIssue newIssue, String fingerprint, Occurrences occurrences,
+			String token, boolean retry) throws RemoteException,
+			RemoteAuthenticationException, ee.ignite.logtojira.soap.RemoteException,
+			RemoteValidationException, RemotePermissionException {
+
+		RemoteIssue duplicate = getService().getLatestDuplicate(newIssue, token);
+
+		if (duplicate == null) {
+			RemoteIssue created = createIssue(newIssue, fingerprint, event, token);
+			addComments(created, event, occurrences, token);
+			return;
+		}
+
+		try {
+			addComments(duplicate, event, occurrences, token);
+			metrics.eventDeduplicated();
+		} catch (RemoteAuthenticationException e) {
+			throw e;
+		} catch (ee.ignite.logtojira.soap.RemoteException e) {
+			// cached issue was deleted or closed meanwhile, look it up again
+			if (!getService().forgetIssue(duplicate) || !retry) {
+				throw e;
+			}
+			logToJira(event, newIssue, fingerprint, occurrences, token, false);
+		}
+	}
+
+	/**
+	 * Creates the issue unless another node holding the claim of its
+	 * fingerprint has just created it, in which case that issue is returned.
+	 */
+	private RemoteIssue createIssue(RemoteIssue newIssue, String fingerprint, Event event, String token)
+			throws RemoteException {
+
+		if (claimCoordinator == null) {
+			return createUnclaimedIssue(newIssue, event, token);
+		}
+
+		if (fingerprint == null) {
+			fingerprint = getService().fingerprint(newIssue);
+		}
+
+		String claimedKey;
+
+		try {
+			claimedKey = claimCoordinator.claim(fingerprint);
+		} catch (IOException e) {
+			errorReporter.error("JIRA claim failed", e);
+			return createUnclaimedIssue(newIssue, event, token);
+		}
+
+		if (claimedKey != null) {
+			metrics.eventDeduplicated();
+			RemoteIssue claimed = new RemoteIssue();
+			claimed.setKey(claimedKey);
+			claimed.setSummary(newIssue.getSummary());
+			claimed.setDescription(newIssue.getDescription());
+			return claimed;
+		}
+
+		String createdKey = null;
+
+		try {
+			RemoteIssue created = createUnclaimedIssue(newIssue, event, token);
+			createdKey = created.getKey();
+			return created;
+		} finally {
+			claimCoordinator.release(fingerprint, createdKey);
+		}
+	}
+
+	private RemoteIssue createUnclaimedIssue(RemoteIssue newIssue, Event event, String token)
+			throws RemoteException {
+
+		RemoteIssue created = getTransport().createIssue(token, newIssue);
+		metrics.issueCreated();
+		getService().issueCreated(newIssue, created, token);
+
+		if (config.isCompactDescription()) {
+			attachDiagnostics(created, event, token);
+		}
+
+		return created;
+	}
+
+	/**
+	 * Without the attachment the issue still has its compact description, so
+	 * a failed upload is only reported.
+	 */
+	private void attachDiagnostics(RemoteIssue issue, Event event, String token) {
+		try {
+			getTransport().addAttachment(token, issue.getKey(), getService().createDiagnostics(event));
+		} catch (RemoteException e) {
+			metrics.error(e);
+			errorReporter.error("JIRA attachment failed", e);
+		}
+	}
+
+	private void addComments(RemoteIssue issue, Event event, Occurrences occurrences, String token)
+			throws RemotePermissionException, RemoteAuthenticationException,
+				ee.ignite.logtojira.soap.RemoteException, RemoteException {
+
+		// the summary of a coalescing window goes into one comment with the plugin output
+		if (combineComments || occurrences != null && occurrences.isWorthDescribing()) {
+			addCombinedComment(issue, event, occurrences, token);
+			return;
+		}
+
+		for (EventPlugin plugin : plugins) {
+			RemoteComment comment = createComment(plugin, event);
+			if (!getService().duplicateExists(comment, issue, token)) {
+				getTransport().addComment(token, issue.getKey(), comment);
+				metrics.commentAdded();
+				getService().commentAdded(comment, issue);
+			}
+		}
+	}
+
+	private RemoteComment createComment(EventPlugin plugin, Event event) {
+		long start = System.nanoTime();
+		RemoteComment comment = getService().createComment(plugin, event);
+		metrics.pluginRendered(plugin.getClass().getName(), System.nanoTime() - start);
+		return comment;
+	}
+
+	/**
+	 * Adds the output of all plugins as sections of one comment. Sections are
+	 * checked for duplicates one by one, so a section that is already present
+	 * in some earlier comment is left out.
+	 */
+	private void addCombinedComment(RemoteIssue issue, Event event, Occurrences occurrences,
+			String token) throws RemotePermissionException, RemoteAuthenticationException,
+				ee.ignite.logtojira.soap.RemoteException, RemoteException {
+
+		List<RemoteComment> sections = new ArrayList<RemoteComment>();
+
+		for (EventPlugin plugin : plugins) {
+			RemoteComment comment = createComment(plugin, event);
+			if (!sections.contains(comment) && !getService().duplicateExists(comment, issue, token)) {
+				sections.add(comment);
+			}
+		}
+
+		StringBuilder body = new StringBuilder();
+
+		for (RemoteComment section : sections) {
+			appendSection(body, section.getBody());
+		}
+
+		if (occurrences != null && occurrences.isWorthDescribing()) {
+			appendSection(body, occurrences.describe());
+		}
+
+		if (body.length() == 0) {
+			return;
+		}
+
+		RemoteComment combined = new RemoteComment();
+		combined.setBody(body.toString());
+		getTransport().addComment(token, issue.getKey(), combined);
+		metrics.commentAdded();
+
+		for (RemoteComment section : sections) {
+			getService().commentAdded(section, issue);
+		}
+	}
+
+	private void appendSection(StringBuilder body, String section) {
+		if (body.length() > 0) {
+			body.append(SECTION_SEPARATOR);
+		}
+		body.append(section);
+	}
+
+	public void close() {
+
+		if (warmer != null) {
+			if (!warmer.close(shutdownTimeout)) {
+				errorReporter.error("JIRA client not ready in " + shutdownTimeout + " ms, "
+						+ warmer.getDroppedCount() + " events dropped", null);
+			}
+			warmer = null;
+		}
+
+		if (dispatcher != null) {
+			if (!dispatcher.close(shutdownTimeout)) {
+				errorReporter.error("JIRA queue not drained in " + shutdownTimeout + " ms, "
+						+ dispatcher.getDroppedCount() + " events dropped", null);
+			}
+			dispatcher = null;
+		}
+
+		if (coalescer != null) {
+			coalescer.close();
+			coalescer = null;
+		}
+
+		if (suppressedFlush != null) {
+			suppressedFlush.shutdownNow();
+			suppressedFlush = null;
+			flushSuppressed(0);
+		}
+
+		synchronized (this) {
+			if (openIssueSync != null) {
+				openIssueSync.shutdownNow();
+				openIssueSync = null;
+			}
+		}
+
+		if (spoolReplayer != null) {
+			spoolReplayer.close();
+			spoolReplayer = null;
+		}
+
+		if (dedupIndex != null) {
+			dedupIndex.close();
+		}
+
+		if (sessionManager != null) {
+			try {
+				sessionManager.close();
+			} catch (RemoteException e) {
+				errorReporter.error("JIRA logout failed", e);
+			}
+		}
+
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				errorReporter.error("JIRA metrics not unregistered", e);
+			}
+			objectName = null;
+		}
+	}
+
+	public void setUrl(String url) {
+		try {
+			this.url = new URL(url);
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * The JIRA client is built on first use, when all transport params are
+	 * known regardless of the order they were set in.
+	 */
+	protected JiraTransport getTransport() {
+
+		if (transport != null) {
+			return transport;
+		}
+
+		synchronized (config) {
+			if (transport == null && url != null) {
+				JiraTransport created = REST.equals(transportType) ? createRestTransport() : createSoapTransport();
+				if (created != null) {
+					transport = new MeteredJiraTransport(created, metrics);
+				}
+			}
+		}
+
+		return transport;
+	}
+
+	private JiraTransport createSoapTransport() {
+
+		KeepAliveHTTPSender sender = keepAlive
+				? new KeepAliveHTTPSender(connectTimeout, readTimeout, maxConnections, compressRequests,
+						compressResponses)
+				: null;
+
+		try {
+			return SoapJiraTransport.create(url, sender);
+		} catch (ServiceException e) {
+			errorReporter.error("JIRA connection problem", e);
+			return null;
+		}
+	}
+
+	/**
+	 * REST lives under the JIRA base url, the SOAP part of the url is dropped.
+	 */
+	private JiraTransport createRestTransport() {
+
+		String base = url.toString();
+		int soapPath = base.indexOf(SOAP_PATH);
+		if (soapPath >= 0) {
+			base = base.substring(0, soapPath);
+		}
+
+		try {
+			return new RestJiraTransport(new URL(base), connectTimeout, readTimeout, compressResponses);
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	protected SessionManager getSessionManager() {
+
+		if (sessionManager != null) {
+			return sessionManager;
+		}
+
+		// async workers may get here concurrently, each would open a session
+		synchronized (config) {
+			if (sessionManager == null) {
+				sessionManager = new SessionManager(config, getTransport());
+			}
+		}
+
+		return sessionManager;
+	}
+
+	protected AppenderService getService() {
+
+		if (service != null) {
+			return service;
+		}
+
+		// the service holds the issue cache, workers must all share one
+		synchronized (config) {
+			if (service == null) {
+				service = new AppenderServiceImpl(config, getTransport(), dedupIndex);
+			}
+		}
+
+		return service;
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setErrorReporter(ErrorReporter errorReporter) {
+		this.errorReporter = errorReporter;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setUsername(String username) {
+		config.setUsername(username);
+	}
+
+	public void setPassword(String password) {
+		config.setPassword(password);
+	}
+
+	public void setProject(String project) {
+		config.setProject(project);
+	}
+
+	public void setIssueTypeId(String issueTypeId) {
+		config.setIssueTypeId(issueTypeId);
+	}
+
+	public void setIssueCacheSize(int issueCacheSize) {
+		config.setIssueCacheSize(issueCacheSize);
+	}
+
+	public void setIssueCacheTtl(long issueCacheTtl) {
+		config.setIssueCacheTtl(issueCacheTtl);
+	}
+
+	/**
+	 * A bad field is reported and left unset, duplicates are then found by
+	 * summary and description.
+	 */
+	public void setFingerprintField(String fingerprintField) {
+		try {
+			config.setFingerprintField(fingerprintField);
+		} catch (IllegalArgumentException e) {
+			errorReporter.error("JIRA " + e.getMessage(), null);
+		}
+	}
+
+	public void setEnvironmentIncludes(String environmentIncludes) {
+		config.setEnvironmentIncludes(environmentIncludes);
+	}
+
+	public void setEnvironmentExcludes(String environmentExcludes) {
+		config.setEnvironmentExcludes(environmentExcludes);
+	}
+
+	public void setCommentIndexSize(int commentIndexSize) {
+		config.setCommentIndexSize(commentIndexSize);
+	}
+
+	public void setSeedComments(boolean seedComments) {
+		config.setSeedComments(seedComments);
+	}
+
+	public void setDedupIndexFile(String dedupIndexFile) {
+		config.setDedupIndexFile(dedupIndexFile);
+	}
+
+	public void setDedupIndexSize(int dedupIndexSize) {
+		config.setDedupIndexSize(dedupIndexSize);
+	}
+
+	public void setDedupIndexTtl(long dedupIndexTtl) {
+		config.setDedupIndexTtl(dedupIndexTtl);
+	}
+
+	public void setMaxStackFrames(int maxStackFrames) {
+		config.setMaxStackFrames(maxStackFrames);
+	}
+
+	public void setMaxDescriptionLength(int maxDescriptionLength) {
+		config.setMaxDescriptionLength(maxDescriptionLength);
+	}
+
+	public void setCollapseFrameworkFrames(boolean collapseFrameworkFrames) {
+		config.setCollapseFrameworkFrames(collapseFrameworkFrames);
+	}
+
+	public void setOpenIssueSyncInterval(long openIssueSyncInterval) {
+		config.setOpenIssueSyncInterval(openIssueSyncInterval);
+	}
+
+	public void setOpenIssuePageSize(int openIssuePageSize) {
+		config.setOpenIssuePageSize(openIssuePageSize);
+	}
+
+	public void setCompactDescription(boolean compactDescription) {
+		config.setCompactDescription(compactDescription);
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public void setAsync(boolean async) {
+		this.async = async;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	public void setLockFreeQueue(boolean lockFreeQueue) {
+		this.lockFreeQueue = lockFreeQueue;
+	}
+
+	public void setOverflowPolicy(String overflowPolicy) {
+		this.overflowPolicy = OverflowPolicy.valueOf(
+				overflowPolicy.trim().toUpperCase().replace('-', '_'));
+	}
+
+	public void setBlockTimeout(long blockTimeout) {
+		this.blockTimeout = blockTimeout;
+	}
+
+	public void setShutdownTimeout(long shutdownTimeout) {
+		this.shutdownTimeout = shutdownTimeout;
+	}
+
+	public void setCoalesceWindow(long coalesceWindow) {
+		this.coalesceWindow = coalesceWindow;
+	}
+
+	public void setCoalesceMaxPending(int coalesceMaxPending) {
+		this.coalesceMaxPending = coalesceMaxPending;
+	}
+
+	public void setSessionRefreshInterval(long sessionRefreshInterval) {
+		this.sessionRefreshInterval = sessionRefreshInterval;
+	}
+
+	public void setRateLimit(int rateLimit) {
+		this.rateLimit = rateLimit;
+	}
+
+	public void setIdentityRateLimit(int identityRateLimit) {
+		this.identityRateLimit = identityRateLimit;
+	}
+
+	public void setClaimDirectory(String claimDirectory) {
+		this.claimDirectory = claimDirectory;
+	}
+
+	public void setClaimTimeout(long claimTimeout) {
+		this.claimTimeout = claimTimeout;
+	}
+
+	public void setClaimTtl(long claimTtl) {
+		this.claimTtl = claimTtl;
+	}
+
+	public void setClaimCoordinator(ClaimCoordinator claimCoordinator) {
+		this.claimCoordinator = claimCoordinator;
+	}
+
+	public void setTransport(String transport) {
+		String type = transport.trim().toLowerCase();
+		if (!SOAP.equals(type) && !REST.equals(type)) {
+			throw new IllegalArgumentException("Unknown transport " + transport);
+		}
+		this.transportType = type;
+	}
+
+	public void setJmx(boolean jmx) {
+		this.jmx = jmx;
+	}
+
+	public void setWarmUp(boolean warmUp) {
+		this.warmUp = warmUp;
+	}
+
+	public void setWarmUpBufferSize(int warmUpBufferSize) {
+		this.warmUpBufferSize = warmUpBufferSize;
+	}
+
+	public void setCompactEvents(boolean compactEvents) {
+		this.compactEvents = compactEvents;
+	}
+
+	public void setFrameDictionarySize(int frameDictionarySize) {
+		this.frameDictionarySize = frameDictionarySize;
+	}
+
+	public void setKeepAlive(boolean keepAlive) {
+		this.keepAlive = keepAlive;
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+	}
+
+	public void setCompressRequests(boolean compressRequests) {
+		this.compressRequests = compressRequests;
+	}
+
+	public void setCompressResponses(boolean compressResponses) {
+		this.compressResponses = compressResponses;
+	}
+
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	public void setOpenTimeout(long openTimeout) {
+		this.openTimeout = openTimeout;
+	}
+
+	public void setSpoolDirectory(String spoolDirectory) {
+		this.spoolDirectory = spoolDirectory;
+	}
+
+	public void setSpoolSegmentSize(int spoolSegmentSize) {
+		this.spoolSegmentSize = spoolSegmentSize;
+	}
+
+	public void setSpoolMaxSegments(int spoolMaxSegments) {
+		this.spoolMaxSegments = spoolMaxSegments;
+	}
+
+	public void setCombineComments(boolean combineComments) {
+		this.combineComments = combineComments;
+	}
+
+	public void setPlugins(List<EventPlugin> plugins) {
+		this.plugins = plugins;
+	}
+
+	public void setPlugins(String commaSeparatedPlugins)
+			throws InstantiationException, IllegalAccessException,
+				ClassNotFoundException {
+		for (String plugin : commaSeparatedPlugins.split(",")) {
+			Object instance = Class.forName(plugin.trim()).newInstance();
+			if (!(instance instanceof EventPlugin)) {
+				throw new IllegalArgumentException(plugin.trim() + " is not an EventPlugin");
+			}
+			plugins.add((EventPlugin) instance);
+		}
+	}
+
+	public void addPlugin(EventPlugin plugin) {
+		plugins.add(plugin);
+	}
+
+	/**
+	 * Sets a param by the name of its setter, for the adapters of logging
+	 * frameworks that hand params over as strings.
+	 *
+	 * @throws IllegalArgumentException if there is no such param or the value does not fit
+	 */
+	public void setParam(String name, String value) {
+
+		Method setter = setter(name);
+		if (setter == null) {
+			throw new IllegalArgumentException("Unknown param " + name);
+		}
+
+		Class<?> type = setter.getParameterTypes()[0];
+		Object converted;
+
+		try {
+			if (type == int.class) {
+				converted = Integer.valueOf(value.trim());
+			} else if (type == long.class) {
+				converted = Long.valueOf(value.trim());
+			} else if (type == boolean.class) {
+				converted = Boolean.valueOf(value.trim());
+			} else {
+				converted = value;
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Param " + name + " is not a number: " + value);
+		}
+
+		try {
+			setter.invoke(this, converted);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Param " + name + " not set", e);
+		} catch (InvocationTargetException e) {
+			throw new IllegalArgumentException("Param " + name + " not set: " + e.getCause(), e.getCause());
+		}
+	}
+
+	/**
+	 * Prefers the String setter where there are several, like for plugins.
+	 */
+	private Method setter(String name) {
+
+		if (name == null || name.length() == 0) {
+			return null;
+		}
+
+		String setterName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		Method found = null;
+
+		for (Method method : LogToJira.class.getMethods()) {
+			if (!method.getName().equals(setterName) || method.getParameterTypes().length != 1) {
+				continue;
+			}
+			Class<?> type = method.getParameterTypes()[0];
+			if (type == String.class) {
+				return method;
+			}
+			if (type == int.class || type == long.class || type == boolean.class) {
+				found = method;
+			}
+		}
+
+		return found;
+	}
+
+	private class AppenderGauges implements Metrics.Gauges {
+
+		@Override
+		public int getQueueSize() {
+			AsyncDispatcher current = dispatcher;
+			return current != null ? current.getQueueSize() : 0;
+		}
+
+		@Override
+		public int getCoalescePending() {
+			Coalescer current = coalescer;
+			return current != null ? current.getPendingCount() : 0;
+		}
+
+		@Override
+		public int getSpoolSegments() {
+			Spool current = spool;
+			return current != null ? current.getSegmentCount() : 0;
+		}
+
+		@Override
+		public String getCircuitState() {
+			return circuitBreaker != null ? circuitBreaker.getState().name() : null;
+		}
+
+		@Override
+		public long getIssueCacheHits() {
+			IssueKeyCache cache = getIssueKeyCache();
+			return cache != null ? cache.getHits() : 0;
+		}
+
+		@Override
+		public long getIssueCacheMisses() {
+			IssueKeyCache cache = getIssueKeyCache();
+			return cache != null ? cache.getMisses() : 0;
+		}
+
+		private IssueKeyCache getIssueKeyCache() {
+			AppenderService current = service;
+			return current instanceof AppenderServiceImpl ? ((AppenderServiceImpl) current).getIssueKeyCache() : null;
+		}
+	}
+}
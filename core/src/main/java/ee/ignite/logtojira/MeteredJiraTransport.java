@@ -0,0 +1,118 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.rmi.RemoteException;
+
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+/**
+ * Records how long each call to JIRA takes, failed calls included.
+ */
+public class MeteredJiraTransport implements JiraTransport {
+
+	private final JiraTransport transport;
+	private final Metrics metrics;
+
+	public MeteredJiraTransport(JiraTransport transport, Metrics metrics) {
+		this.transport = transport;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public String login(String username, String password) throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			return transport.login(username, password);
+		} finally {
+			metrics.operation("login", System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public boolean logout(String token) throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			return transport.logout(token);
+		} finally {
+			metrics.operation("logout", System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public RemoteIssue[] getIssuesFromJqlSearch(String token, String jql, int maxResults)
+			throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			return transport.getIssuesFromJqlSearch(token, jql, maxResults);
+		} finally {
+			metrics.operation("getIssuesFromJqlSearch", System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public RemoteIssue createIssue(String token, RemoteIssue issue) throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			return transport.createIssue(token, issue);
+		} finally {
+			metrics.operation("createIssue", System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public RemoteIssue updateIssue(String token, String issueKey, RemoteFieldValue[] fieldValues)
+			throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			return transport.updateIssue(token, issueKey, fieldValues);
+		} finally {
+			metrics.operation("updateIssue", System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void addComment(String token, String issueKey, RemoteComment comment) throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			transport.addComment(token, issueKey, comment);
+		} finally {
+			metrics.operation("addComment", System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public RemoteComment[] getComments(String token, String issueKey) throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			return transport.getComments(token, issueKey);
+		} finally {
+			metrics.operation("getComments", System.nanoTime() - start);
+		}
+	}
+
+	@Override
+	public void addAttachment(String token, String issueKey, Attachment attachment) throws RemoteException {
+		long start = System.nanoTime();
+		try {
+			transport.addAttachment(token, issueKey, attachment);
+		} finally {
+			metrics.operation("addAttachment", System.nanoTime() - start);
+		}
+	}
+}
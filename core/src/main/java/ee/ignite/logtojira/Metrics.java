@@ -0,0 +1,217 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms of one appender. Everything is recorded
+ * with atomic operations only, the state of the pipeline stages is read
+ * from {@link Gauges} when asked for.
+ */
+public class Metrics implements MetricsMXBean {
+
+	/**
+	 * Current state of the appender parts that come and go with its
+	 * configuration.
+	 */
+	public interface Gauges {
+
+		int getQueueSize();
+
+		int getCoalescePending();
+
+		int getSpoolSegments();
+
+		String getCircuitState();
+
+		long getIssueCacheHits();
+
+		long getIssueCacheMisses();
+	}
+
+	private final AtomicLong eventsReceived = new AtomicLong();
+	private final AtomicLong issuesCreated = new AtomicLong();
+	private final AtomicLong commentsAdded = new AtomicLong();
+	private final AtomicLong eventsDeduplicated = new AtomicLong();
+	private final AtomicLong eventsRateLimited = new AtomicLong();
+	private final AtomicLong eventsDropped = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, LatencyHistogram> operations =
+			new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> plugins =
+			new ConcurrentHashMap<String, LatencyHistogram>();
+	private volatile Gauges gauges;
+
+	public void setGauges(Gauges gauges) {
+		this.gauges = gauges;
+	}
+
+	public void eventReceived() {
+		eventsReceived.incrementAndGet();
+	}
+
+	public void issueCreated() {
+		issuesCreated.incrementAndGet();
+	}
+
+	public void commentAdded() {
+		commentsAdded.incrementAndGet();
+	}
+
+	public void eventDeduplicated() {
+		eventsDeduplicated.incrementAndGet();
+	}
+
+	public void eventRateLimited() {
+		eventsRateLimited.incrementAndGet();
+	}
+
+	public void eventDropped() {
+		eventsDropped.incrementAndGet();
+	}
+
+	public void error(Throwable error) {
+		String type = error.getClass().getSimpleName();
+		AtomicLong count = errors.get(type);
+		if (count == null) {
+			AtomicLong created = new AtomicLong();
+			count = errors.putIfAbsent(type, created);
+			if (count == null) {
+				count = created;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	public void operation(String name, long nanos) {
+		histogram(operations, name).record(nanos);
+	}
+
+	public void pluginRendered(String name, long nanos) {
+		histogram(plugins, name).record(nanos);
+	}
+
+	private LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms, String name) {
+		LatencyHistogram histogram = histograms.get(name);
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	@Override
+	public long getEventsReceived() {
+		return eventsReceived.get();
+	}
+
+	@Override
+	public long getIssuesCreated() {
+		return issuesCreated.get();
+	}
+
+	@Override
+	public long getCommentsAdded() {
+		return commentsAdded.get();
+	}
+
+	@Override
+	public long getEventsDeduplicated() {
+		return eventsDeduplicated.get();
+	}
+
+	@Override
+	public long getEventsRateLimited() {
+		return eventsRateLimited.get();
+	}
+
+	@Override
+	public long getEventsDropped() {
+		return eventsDropped.get();
+	}
+
+	@Override
+	public Map<String, Long> getErrors() {
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : errors.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().get());
+		}
+		return result;
+	}
+
+	@Override
+	public Map<String, LatencySnapshot> getOperationLatencies() {
+		return snapshots(operations);
+	}
+
+	@Override
+	public Map<String, LatencySnapshot> getPluginRenderTimes() {
+		return snapshots(plugins);
+	}
+
+	private Map<String, LatencySnapshot> snapshots(Map<String, LatencyHistogram> histograms) {
+		Map<String, LatencySnapshot> result = new TreeMap<String, LatencySnapshot>();
+		for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return result;
+	}
+
+	@Override
+	public int getQueueSize() {
+		return gauges != null ? gauges.getQueueSize() : 0;
+	}
+
+	@Override
+	public int getCoalescePending() {
+		return gauges != null ? gauges.getCoalescePending() : 0;
+	}
+
+	@Override
+	public int getSpoolSegments() {
+		return gauges != null ? gauges.getSpoolSegments() : 0;
+	}
+
+	@Override
+	public String getCircuitState() {
+		return gauges != null ? gauges.getCircuitState() : null;
+	}
+
+	@Override
+	public long getIssueCacheHits() {
+		return gauges != null ? gauges.getIssueCacheHits() : 0;
+	}
+
+	@Override
+	public long getIssueCacheMisses() {
+		return gauges != null ? gauges.getIssueCacheMisses() : 0;
+	}
+
+	@Override
+	public double getIssueCacheHitRate() {
+		long hits = getIssueCacheHits();
+		long total = hits + getIssueCacheMisses();
+		return total > 0 ? (double) hits / total : 0;
+	}
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.Map;
+
+/**
+ * What the appender tells about itself over JMX. Latencies are per JIRA
+ * operation and per plugin, errors are counted by exception class.
+ */
+public interface MetricsMXBean {
+
+	long getEventsReceived();
+
+	long getIssuesCreated();
+
+	long getCommentsAdded();
+
+	long getEventsDeduplicated();
+
+	long getEventsRateLimited();
+
+	long getEventsDropped();
+
+	Map<String, Long> getErrors();
+
+	Map<String, LatencySnapshot> getOperationLatencies();
+
+	Map<String, LatencySnapshot> getPluginRenderTimes();
+
+	int getQueueSize();
+
+	int getCoalescePending();
+
+	int getSpoolSegments();
+
+	String getCircuitState();
+
+	long getIssueCacheHits();
+
+	long getIssueCacheMisses();
+
+	double getIssueCacheHitRate();
+}
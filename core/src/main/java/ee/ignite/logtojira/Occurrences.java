@@ -0,0 +1,137 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Summary of the events with the same duplicate identity that were seen
+ * during one coalescing window.
+ */
+public class Occurrences implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int MAX_DISTINCT = 50;
+	private static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss,SSS";
+
+	private final Event first;
+	private int count;
+	private int suppressed;
+	private long firstTimestamp;
+	private long lastTimestamp;
+	private final Set<String> threads = new LinkedHashSet<String>();
+	private final Set<String> properties = new LinkedHashSet<String>();
+
+	public Occurrences(Event first) {
+		this.first = first;
+		this.firstTimestamp = first.getTimeStamp();
+		this.lastTimestamp = first.getTimeStamp();
+		add(first);
+	}
+
+	public synchronized void add(Event event) {
+
+		count++;
+		firstTimestamp = Math.min(firstTimestamp, event.getTimeStamp());
+		lastTimestamp = Math.max(lastTimestamp, event.getTimeStamp());
+
+		addDistinct(threads, event.getThreadName());
+
+		for (Entry<String, String> e : event.getMdc().entrySet()) {
+			addDistinct(properties, e.getKey() + "=" + e.getValue());
+		}
+	}
+
+	private void addDistinct(Set<String> values, String value) {
+		if (values.size() < MAX_DISTINCT) {
+			values.add(value);
+		}
+	}
+
+	/**
+	 * Records events that were not sent to JIRA because of rate limits.
+	 */
+	public synchronized void addSuppressed(int suppressed) {
+		this.suppressed += suppressed;
+	}
+
+	public synchronized int getSuppressed() {
+		return suppressed;
+	}
+
+	/**
+	 * @return true if there is more to tell than the first event itself
+	 */
+	public synchronized boolean isWorthDescribing() {
+		return count > 1 || suppressed > 0;
+	}
+
+	public Event getFirst() {
+		return first;
+	}
+
+	public synchronized int getCount() {
+		return count;
+	}
+
+	private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+	}
+
+	public synchronized String describe() {
+
+		DateFormat format = new SimpleDateFormat(DATE_FORMAT);
+		StringBuilder res = new StringBuilder();
+
+		// a single event speaks for itself, only what it stands for is told
+		if (count > 1) {
+			res.append("Occurred ");
+			res.append(count);
+			res.append(" times between ");
+			res.append(format.format(new Date(firstTimestamp)));
+			res.append(" and ");
+			res.append(format.format(new Date(lastTimestamp)));
+			res.append("\nThreads: ");
+			res.append(StringUtils.join(threads, ", "));
+
+			if (!properties.isEmpty()) {
+				res.append("\nMDC: ");
+				res.append(StringUtils.join(properties, ", "));
+			}
+		}
+
+		if (suppressed > 0) {
+			if (res.length() > 0) {
+				res.append("\n");
+			}
+			res.append(suppressed);
+			res.append(" more occurrences were not sent because of rate limits");
+		}
+
+		return res.toString();
+	}
+}
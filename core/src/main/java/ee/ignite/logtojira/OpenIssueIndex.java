@@ -0,0 +1,180 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+/**
+ * Local copy of the open issues of the project, keyed like duplicates are
+ * found: by summary and description. It is loaded once in pages and then
+ * kept up to date with the issues updated since the last sync, so issues
+ * resolved or reopened in JIRA come and go without a search per event.
+ *
+ * Until the first load is done {@link #isLoaded()} is false and duplicates
+ * have to be searched for as before.
+ */
+public class OpenIssueIndex {
+
+	private static final String OPEN_STATUSES = "status in (Open, \"In Progress\", Reopened)";
+	private static final String CLOSED_STATUSES = "status not in (Open, \"In Progress\", Reopened)";
+
+	/**
+	 * Covers clock differences with JIRA and syncs that overlap with updates.
+	 */
+	private static final long OVERLAP = 2 * 60 * 1000;
+
+	private final String project;
+	private final int pageSize;
+	private final JiraTransport jiraService;
+	private final AppenderService fingerprints;
+	private final ConcurrentMap<String, String> keys = new ConcurrentHashMap<String, String>();
+	private final ConcurrentMap<String, String> fingerprintsByKey = new ConcurrentHashMap<String, String>();
+	private volatile boolean loaded = false;
+	private long lastSync;
+
+	public OpenIssueIndex(String project, int pageSize, JiraTransport jiraService, AppenderService fingerprints) {
+		this.project = project;
+		this.pageSize = pageSize;
+		this.jiraService = jiraService;
+		this.fingerprints = fingerprints;
+	}
+
+	/**
+	 * Loads all open issues on the first call, later only the issues updated
+	 * since the previous call.
+	 */
+	public synchronized void sync(String token) throws RemoteException {
+
+		long started = System.currentTimeMillis();
+
+		if (!loaded) {
+			for (RemoteIssue issue : search(token, OPEN_STATUSES)) {
+				put(issue);
+			}
+			loaded = true;
+		} else {
+			String updated = " AND updated >= -" + ((started - lastSync + OVERLAP) / 60000 + 1) + "m";
+			for (RemoteIssue issue : search(token, OPEN_STATUSES + updated)) {
+				put(issue);
+			}
+			for (RemoteIssue issue : search(token, CLOSED_STATUSES + updated)) {
+				remove(issue.getKey());
+			}
+		}
+
+		lastSync = started;
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return key of the open issue with the same summary and description, or null
+	 */
+	public String get(RemoteIssue issue) {
+		return keys.get(fingerprint(issue));
+	}
+
+	public void put(RemoteIssue issue) {
+
+		String fingerprint = fingerprint(issue);
+		String old = fingerprintsByKey.put(issue.getKey(), fingerprint);
+
+		if (old != null && !old.equals(fingerprint)) {
+			keys.remove(old, issue.getKey());
+		}
+		// like the search, the earliest of several open duplicates is kept
+		keys.putIfAbsent(fingerprint, issue.getKey());
+	}
+
+	public boolean remove(String issueKey) {
+
+		String fingerprint = fingerprintsByKey.remove(issueKey);
+
+		if (fingerprint == null || !keys.remove(fingerprint, issueKey)) {
+			return false;
+		}
+
+		// another open duplicate takes over, removals are rare enough to scan
+		for (Map.Entry<String, String> entry : fingerprintsByKey.entrySet()) {
+			if (entry.getValue().equals(fingerprint)) {
+				keys.putIfAbsent(fingerprint, entry.getKey());
+				break;
+			}
+		}
+
+		return true;
+	}
+
+	public int size() {
+		return keys.size();
+	}
+
+	/**
+	 * JIRA may give the description back with other line endings and
+	 * without the trailing line break.
+	 */
+	private String fingerprint(RemoteIssue issue) {
+		RemoteIssue normalized = new RemoteIssue();
+		normalized.setSummary(issue.getSummary());
+		normalized.setDescription(StringUtils.stripEnd(
+				StringUtils.defaultString(issue.getDescription()).replace("\r\n", "\n"), null));
+		return fingerprints.fingerprint(normalized);
+	}
+
+	/**
+	 * Pages through a search in key order. JIRA may return less than asked
+	 * for in one page, so only an empty page ends the search.
+	 */
+	private List<RemoteIssue> search(String token, String condition) throws RemoteException {
+
+		List<RemoteIssue> result = new ArrayList<RemoteIssue>();
+		String lastKey = null;
+
+		while (true) {
+			StringBuilder JQL = new StringBuilder();
+			JQL.append("project = ");
+			JQL.append(project);
+			JQL.append(" AND ");
+			JQL.append(condition);
+			if (lastKey != null) {
+				JQL.append(" AND key > ");
+				JQL.append(lastKey);
+			}
+			JQL.append(" ORDER BY key ASC");
+
+			RemoteIssue[] page = jiraService.getIssuesFromJqlSearch(token, JQL.toString(), pageSize);
+
+			if (page.length == 0 || page[page.length - 1].getKey().equals(lastKey)) {
+				return result;
+			}
+
+			result.addAll(Arrays.asList(page));
+			lastKey = page[page.length - 1].getKey();
+		}
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many events are sent to JIRA, both in total per second and per
+ * identity per minute. Events over the limit are counted, so that the next
+ * event of the same identity that gets through can mention them. Counts of
+ * identities that stay quiet, or that are evicted to make room for others,
+ * are handed out by {@link #takeIdle(long)} together with the first
+ * suppressed event, kept without its throwable.
+ */
+public class RateLimiter {
+
+	private static final int MAX_IDENTITIES = 1000;
+	private static final String CAUSED_BY = "Caused by: ";
+
+	private final TokenBucket global;
+	private final int identityRate;
+	private final Map<String, Identity> identities;
+	private final Map<String, Occurrences> evicted = new LinkedHashMap<String, Occurrences>();
+	private final AtomicLong suppressed = new AtomicLong();
+
+	/**
+	 * @param globalRate events per second, 0 for no limit
+	 * @param identityRate events of one identity per minute, 0 for no limit
+	 */
+	public RateLimiter(int globalRate, int identityRate) {
+		this.global = globalRate > 0 ? new TokenBucket(globalRate, 1000) : null;
+		this.identityRate = identityRate;
+		this.identities = new LinkedHashMap<String, Identity>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Identity> eldest) {
+				if (size() <= MAX_IDENTITIES) {
+					return false;
+				}
+				Occurrences occurrences = eldest.getValue().take();
+				if (occurrences != null && evicted.size() < MAX_IDENTITIES) {
+					evicted.put(eldest.getKey(), occurrences);
+				}
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Identity of an event that is cheap to tell on every event: the message,
+	 * the first frame and the classes of the throwable and its causes. The
+	 * duplicate fingerprint needs the whole rendered stack trace.
+	 */
+	public static String key(Event event) {
+
+		StringBuilder key = new StringBuilder();
+		key.append(event.getMessage());
+
+		Throwable throwable = event.getThrowable();
+
+		if (throwable != null) {
+			StackTraceElement[] trace = throwable.getStackTrace();
+			if (trace.length > 0) {
+				key.append('\n').append(trace[0].getClassName()).append('.').append(trace[0].getMethodName());
+			}
+			Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+			for (Throwable t = throwable; t != null && seen.add(t); t = t.getCause()) {
+				key.append('\n').append(t.getClass().getName());
+			}
+		} else if (event.hasThrowable()) {
+			// the header of each throwable up to its message, and the first frame
+			boolean framed = false;
+			for (String line : event.getThrowableLines()) {
+				if (line.startsWith("\tat ")) {
+					if (!framed) {
+						framed = true;
+						key.append('\n').append(line, 4, end(line.indexOf('('), line));
+					}
+				} else if (!line.startsWith("\t")) {
+					int start = line.startsWith(CAUSED_BY) ? CAUSED_BY.length() : 0;
+					key.append('\n').append(line, start, end(line.indexOf(':', start), line));
+				}
+			}
+		}
+
+		return key.toString();
+	}
+
+	private static int end(int index, String line) {
+		return index >= 0 ? index : line.length();
+	}
+
+	/**
+	 * The global bucket is asked first, so that an identity does not spend
+	 * its token on an event that is suppressed anyway. A global token taken
+	 * for an event the identity suppresses is returned.
+	 */
+	public boolean tryAcquire(String identity, Event event) {
+
+		Identity counters = identity(identity);
+
+		if (global != null && !global.tryAcquire()) {
+			counters.suppress(event);
+			suppressed.incrementAndGet();
+			return false;
+		}
+
+		if (counters.bucket != null && !counters.bucket.tryAcquire()) {
+			if (global != null) {
+				global.release();
+			}
+			counters.suppress(event);
+			suppressed.incrementAndGet();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return how many events of the identity were suppressed since the last call
+	 */
+	public int takeSuppressed(String identity) {
+		return identity(identity).takeCount();
+	}
+
+	/**
+	 * Takes the suppressed events of evicted identities, and of identities
+	 * that have not had one suppressed for idle milliseconds. Each identity
+	 * is represented by its first suppressed event, with the others counted
+	 * as suppressed. Every identity taken costs a token of the global limit,
+	 * those left without one stay for a later call.
+	 */
+	public synchronized Map<String, Occurrences> takeIdle(long idle) {
+
+		Map<String, Occurrences> result = new LinkedHashMap<String, Occurrences>();
+
+		for (Iterator<Map.Entry<String, Occurrences>> it = evicted.entrySet().iterator(); it.hasNext();) {
+			if (global != null && !global.tryAcquire()) {
+				return result;
+			}
+			Map.Entry<String, Occurrences> entry = it.next();
+			result.put(entry.getKey(), entry.getValue());
+			it.remove();
+		}
+
+		long before = System.currentTimeMillis() - idle;
+		for (Map.Entry<String, Identity> entry : identities.entrySet()) {
+			Identity counters = entry.getValue();
+			if (result.containsKey(entry.getKey()) || !counters.isIdle(before)) {
+				continue;
+			}
+			if (global != null && !global.tryAcquire()) {
+				break;
+			}
+			Occurrences occurrences = counters.takeIfBefore(before);
+			if (occurrences != null) {
+				result.put(entry.getKey(), occurrences);
+			} else if (global != null) {
+				global.release();
+			}
+		}
+
+		return result;
+	}
+
+	public long getSuppressedCount() {
+		return suppressed.get();
+	}
+
+	private synchronized Identity identity(String identity) {
+
+		Identity counters = identities.get(identity);
+
+		if (counters == null) {
+			counters = new Identity(identityRate > 0 ? new TokenBucket(identityRate, 60000) : null);
+			identities.put(identity, counters);
+		}
+
+		return counters;
+	}
+
+	private static class Identity {
+
+		private final TokenBucket bucket;
+		private int suppressed;
+		private Event first;
+		private long lastSuppressed;
+
+		private Identity(TokenBucket bucket) {
+			this.bucket = bucket;
+		}
+
+		synchronized void suppress(Event event) {
+			if (suppressed++ == 0) {
+				first = detach(event);
+			}
+			lastSuppressed = System.currentTimeMillis();
+		}
+
+		synchronized int takeCount() {
+			int result = suppressed;
+			suppressed = 0;
+			first = null;
+			return result;
+		}
+
+		synchronized boolean isIdle(long time) {
+			return suppressed > 0 && lastSuppressed <= time;
+		}
+
+		synchronized Occurrences takeIfBefore(long time) {
+			return lastSuppressed <= time ? take() : null;
+		}
+
+		synchronized Occurrences take() {
+
+			if (suppressed == 0) {
+				return null;
+			}
+
+			Occurrences occurrences = new Occurrences(first);
+			occurrences.addSuppressed(suppressed - 1);
+			suppressed = 0;
+			first = null;
+			return occurrences;
+		}
+
+		/**
+		 * The throwable may hold on to much more than its stack trace, which
+		 * is all that is sent.
+		 */
+		private static Event detach(Event event) {
+
+			if (event.getThrowable() == null) {
+				return event;
+			}
+
+			return new Event(event.getLoggerName(), event.getLevel(), event.getTimeStamp(), event.getMessage(),
+					event.getThreadName(), event.getNdc(), event.getMdc(), null, event.getThrowableLines());
+		}
+	}
+}
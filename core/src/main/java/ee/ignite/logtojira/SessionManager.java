@@ -0,0 +1,138 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one JIRA session token shared by all events and threads. The token
+ * is obtained lazily, dropped when JIRA rejects it and given back with
+ * logout when replaced by a refresh or on {@link #close()}.
+ */
+public class SessionManager {
+
+	private final Config config;
+	private final JiraTransport jiraService;
+	private volatile String token;
+	private String retired;
+	private ScheduledExecutorService refresher;
+
+	public SessionManager(Config config, JiraTransport jiraService) {
+		this.config = config;
+		this.jiraService = jiraService;
+	}
+
+	public String getToken() throws RemoteException {
+
+		String current = token;
+		if (current != null) {
+			return current;
+		}
+
+		synchronized (this) {
+			if (token == null) {
+				token = jiraService.login(config.getUsername(), config.getPassword());
+			}
+			return token;
+		}
+	}
+
+	/**
+	 * Forgets the token if it is still the current one, so that the next
+	 * {@link #getToken()} logs in again.
+	 */
+	public synchronized void invalidate(String expired) {
+		if (expired != null && expired.equals(token)) {
+			token = null;
+		}
+	}
+
+	/**
+	 * Replaces the current session with a fresh one before JIRA expires it.
+	 * Calls in flight may still use the replaced token, so it is given back
+	 * only on the next refresh, one interval later.
+	 */
+	public void refresh() throws RemoteException {
+
+		String fresh = jiraService.login(config.getUsername(), config.getPassword());
+		String old;
+
+		synchronized (this) {
+			old = retired;
+			retired = token;
+			token = fresh;
+		}
+
+		if (old != null) {
+			jiraService.logout(old);
+		}
+	}
+
+	public synchronized void startRefresh(long interval) {
+
+		if (refresher != null || interval <= 0) {
+			return;
+		}
+
+		refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogToJira-session-refresh");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		refresher.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					refresh();
+				} catch (RemoteException e) {
+					// JIRA unreachable, the current token may still be good
+				}
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	public void close() throws RemoteException {
+
+		String old;
+		String oldRetired;
+
+		synchronized (this) {
+			if (refresher != null) {
+				refresher.shutdownNow();
+				refresher = null;
+			}
+			old = token;
+			oldRetired = retired;
+			token = null;
+			retired = null;
+		}
+
+		if (oldRetired != null) {
+			jiraService.logout(oldRetired);
+		}
+		if (old != null) {
+			jiraService.logout(old);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.rmi.RemoteException;
+
+import javax.xml.rpc.ServiceException;
+
+import org.apache.axis.EngineConfiguration;
+import org.apache.axis.SimpleTargetedChain;
+import org.apache.axis.configuration.BasicClientConfig;
+
+import ee.ignite.logtojira.soap.JiraSoapService;
+import ee.ignite.logtojira.soap.JiraSoapServiceServiceLocator;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+/**
+ * Talks to JIRA through the generated Axis stubs.
+ */
+public class SoapJiraTransport implements JiraTransport {
+
+	private final JiraSoapService jiraService;
+
+	public SoapJiraTransport(JiraSoapService jiraService) {
+		this.jiraService = jiraService;
+	}
+
+	/**
+	 * Builds the Axis client, which loads most of Axis. The appender calls
+	 * this only on first use, so Axis stays out of application startup.
+	 *
+	 * @param sender HTTP/1.1 sender to use instead of the Axis one, or null
+	 */
+	public static SoapJiraTransport create(URL url, KeepAliveHTTPSender sender) throws ServiceException {
+
+		JiraSoapServiceServiceLocator locator = sender != null
+				? new JiraSoapServiceServiceLocator(createConfig(sender))
+				: new JiraSoapServiceServiceLocator();
+
+		return new SoapJiraTransport(locator.getJirasoapserviceV2(url));
+	}
+
+	private static EngineConfiguration createConfig(KeepAliveHTTPSender sender) {
+		BasicClientConfig engineConfig = new BasicClientConfig();
+		engineConfig.deployTransport("http", new SimpleTargetedChain(sender));
+		engineConfig.deployTransport("https", new SimpleTargetedChain(sender));
+		return engineConfig;
+	}
+
+	@Override
+	public String login(String username, String password) throws RemoteException {
+		return jiraService.login(username, password);
+	}
+
+	@Override
+	public boolean logout(String token) throws RemoteException {
+		return jiraService.logout(token);
+	}
+
+	@Override
+	public RemoteIssue[] getIssuesFromJqlSearch(String token, String jql, int maxResults)
+			throws RemoteException {
+		return jiraService.getIssuesFromJqlSearch(token, jql, maxResults);
+	}
+
+	@Override
+	public RemoteIssue createIssue(String token, RemoteIssue issue) throws RemoteException {
+		return jiraService.createIssue(token, issue);
+	}
+
+	@Override
+	public RemoteIssue updateIssue(String token, String issueKey, RemoteFieldValue[] fieldValues)
+			throws RemoteException {
+		return jiraService.updateIssue(token, issueKey, fieldValues);
+	}
+
+	@Override
+	public void addComment(String token, String issueKey, RemoteComment comment) throws RemoteException {
+		jiraService.addComment(token, issueKey, comment);
+	}
+
+	@Override
+	public RemoteComment[] getComments(String token, String issueKey) throws RemoteException {
+		return jiraService.getComments(token, issueKey);
+	}
+
+	/**
+	 * SOAP takes the content as one array, only its compressed form is kept
+	 * in memory.
+	 */
+	@Override
+	public void addAttachment(String token, String issueKey, Attachment attachment) throws RemoteException {
+
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		try {
+			attachment.writeTo(content);
+		} catch (IOException e) {
+			throw new RemoteException("JIRA attachment not written", e);
+		}
+
+		jiraService.addAttachmentsToIssue(token, issueKey, new String[] { attachment.getFileName() },
+				new byte[][] { content.toByteArray() });
+	}
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Append-only queue of records kept in memory mapped segment files. A record
+ * is its length followed by its bytes, the length is written last so that a
+ * record cut short by a crash reads as the end of the segment. The first
+ * four bytes of a segment hold the read position, so records that were taken
+ * out are not read again after a restart. When the segment limit is reached
+ * the oldest segment is dropped.
+ */
+public class Spool {
+
+	private static final String PREFIX = "spool-";
+	private static final String SUFFIX = ".seg";
+	private static final int HEADER = 4;
+
+	private final File directory;
+	private final int segmentSize;
+	private final int maxSegments;
+	private final LinkedList<Segment> segments = new LinkedList<Segment>();
+	private long nextSequence;
+	private long droppedSegments;
+	private Segment peeked;
+	private int peekedPosition;
+
+	public Spool(File directory, int segmentSize, int maxSegments) throws IOException {
+
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create spool directory " + directory);
+		}
+
+		String[] names = directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+			}
+		});
+
+		long[] sequences = new long[names.length];
+		for (int i = 0; i < names.length; i++) {
+			sequences[i] = Long.parseLong(names[i].substring(PREFIX.length(), names[i].length() - SUFFIX.length()));
+		}
+		Arrays.sort(sequences);
+
+		for (long sequence : sequences) {
+			segments.add(new Segment(file(sequence)));
+			nextSequence = sequence + 1;
+		}
+	}
+
+	/**
+	 * @return false if the record is larger than a segment and was not stored
+	 */
+	public synchronized boolean append(byte[] record) throws IOException {
+
+		if (HEADER + 4 + record.length > segmentSize) {
+			return false;
+		}
+
+		Segment tail = segments.isEmpty() ? null : segments.getLast();
+
+		if (tail == null || !tail.fits(record.length)) {
+			if (segments.size() >= maxSegments) {
+				segments.removeFirst().delete();
+				droppedSegments++;
+			}
+			tail = new Segment(file(nextSequence++));
+			segments.add(tail);
+		}
+
+		tail.write(record);
+		return true;
+	}
+
+	/**
+	 * @return the oldest record that was not taken yet, or null
+	 */
+	public synchronized byte[] poll() {
+
+		Segment head = head();
+
+		if (head == null) {
+			return null;
+		}
+
+		byte[] record = head.peek();
+		head.skip();
+		return record;
+	}
+
+	/**
+	 * Returns the oldest record without taking it, so that it can be taken
+	 * with {@link #remove()} once it has been handled.
+	 *
+	 * @return the oldest record that was not taken yet, or null
+	 */
+	public synchronized byte[] peek() {
+
+		Segment head = head();
+
+		if (head == null) {
+			return null;
+		}
+
+		peeked = head;
+		peekedPosition = head.readPosition;
+		return head.peek();
+	}
+
+	/**
+	 * Takes the record returned by the last {@link #peek()}, unless its
+	 * segment was dropped meanwhile.
+	 */
+	public synchronized void remove() {
+
+		Segment head = head();
+
+		if (head != null && head == peeked && head.readPosition == peekedPosition) {
+			head.skip();
+		}
+
+		peeked = null;
+	}
+
+	/**
+	 * Drops the segments that were read to the end, except the last one.
+	 *
+	 * @return the first segment with records left, or null
+	 */
+	private Segment head() {
+
+		while (!segments.isEmpty()) {
+			Segment head = segments.getFirst();
+			if (head.hasMore()) {
+				return head;
+			}
+			if (head == segments.getLast()) {
+				return null;
+			}
+			segments.removeFirst().delete();
+		}
+
+		return null;
+	}
+
+	public synchronized boolean isEmpty() {
+
+		for (Segment segment : segments) {
+			if (segment.hasMore()) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	public synchronized long getDroppedSegments() {
+		return droppedSegments;
+	}
+
+	private File file(long sequence) {
+		return new File(directory, PREFIX + sequence + SUFFIX);
+	}
+
+	private class Segment {
+
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private int readPosition;
+		private int writePosition;
+
+		private Segment(File file) throws IOException {
+
+			this.file = file;
+
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+			} finally {
+				raf.close();
+			}
+
+			readPosition = Math.max(HEADER, buffer.getInt(0));
+			writePosition = HEADER;
+			while (writePosition + 4 <= segmentSize) {
+				int length = buffer.getInt(writePosition);
+				if (length <= 0 || writePosition + 4 + length > segmentSize) {
+					break;
+				}
+				writePosition += 4 + length;
+			}
+		}
+
+		private boolean fits(int length) {
+			return writePosition + 4 + length <= segmentSize;
+		}
+
+		private void write(byte[] record) {
+			buffer.position(writePosition + 4);
+			buffer.put(record);
+			buffer.putInt(writePosition, record.length);
+			writePosition += 4 + record.length;
+		}
+
+		private boolean hasMore() {
+			return readPosition < writePosition;
+		}
+
+		private byte[] peek() {
+			byte[] record = new byte[buffer.getInt(readPosition)];
+			buffer.position(readPosition + 4);
+			buffer.get(record);
+			return record;
+		}
+
+		private void skip() {
+			readPosition += 4 + buffer.getInt(readPosition);
+			buffer.putInt(0, readPosition);
+		}
+
+		private void delete() {
+			// the mapping itself is released when the buffer is collected
+			file.delete();
+		}
+	}
+}
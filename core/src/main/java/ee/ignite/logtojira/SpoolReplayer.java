@@ -0,0 +1,177 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically hands spooled events back to the {@link Handler}, oldest
+ * first, for as long as the circuit breaker lets calls through. An event is
+ * taken out of the spool only once the handler has delivered it, an event
+ * that fails again stays at the head of the spool for the next replay.
+ */
+public class SpoolReplayer {
+
+	public interface Handler {
+
+		/**
+		 * @return false if JIRA could not be reached and the event should
+		 *         stay in the spool
+		 */
+		boolean replay(Event event);
+
+	}
+
+	/**
+	 * Classes an event and its occurrences are written with.
+	 */
+	private static final Set<String> EVENT_CLASSES = new HashSet<String>(Arrays.asList(Event.class.getName(),
+			Occurrences.class.getName(), String.class.getName(), String[].class.getName(),
+			HashMap.class.getName(), HashSet.class.getName(), LinkedHashSet.class.getName(),
+			Collections.unmodifiableMap(new HashMap<String, String>()).getClass().getName(),
+			Collections.emptyMap().getClass().getName()));
+
+	private final Spool spool;
+	private final CircuitBreaker circuitBreaker;
+	private final Handler handler;
+	private final ScheduledExecutorService executor;
+
+	public SpoolReplayer(Spool spool, CircuitBreaker circuitBreaker, Handler handler, long interval) {
+
+		this.spool = spool;
+		this.circuitBreaker = circuitBreaker;
+		this.handler = handler;
+
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "LogToJira-spool-replay");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				replay();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return number of events taken out of the spool
+	 */
+	public int replay() {
+
+		int replayed = 0;
+
+		while (!spool.isEmpty() && circuitBreaker.allowRequest()) {
+			byte[] record = spool.peek();
+			if (record == null) {
+				break;
+			}
+			Event event;
+			try {
+				event = deserialize(record);
+			} catch (IOException e) {
+				spool.remove();
+				continue;
+			}
+			try {
+				if (!handler.replay(event)) {
+					break;
+				}
+			} catch (RuntimeException e) {
+				// taken out all the same, it would fail every replay, the
+				// handler reports its own errors
+			}
+			spool.remove();
+			replayed++;
+		}
+
+		return replayed;
+	}
+
+	public void close() {
+		executor.shutdownNow();
+	}
+
+	public static byte[] serialize(Event event) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(event);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads only the classes an event is written with, anything else in the
+	 * spool directory is rejected before it is instantiated. An event that
+	 * was written with its occurrences comes back as a
+	 * {@link CoalescedEvent}.
+	 */
+	public static Event deserialize(byte[] record) throws IOException {
+		ObjectInputStream in = new EventInputStream(new ByteArrayInputStream(record));
+		try {
+			Object event = in.readObject();
+			if (event instanceof Occurrences) {
+				return new CoalescedEvent(null, (Occurrences) event);
+			}
+			if (!(event instanceof Event)) {
+				// a string or a map on its own
+				throw new IOException("Spool record is not an event");
+			}
+			return (Event) event;
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e.toString());
+		} finally {
+			in.close();
+		}
+	}
+
+	private static class EventInputStream extends ObjectInputStream {
+
+		private EventInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			if (!EVENT_CLASSES.contains(desc.getName())) {
+				throw new InvalidClassException(desc.getName(), "not allowed in a spool record");
+			}
+			return super.resolveClass(desc);
+		}
+	}
+}
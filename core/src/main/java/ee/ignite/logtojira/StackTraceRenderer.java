@@ -0,0 +1,295 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Renders stack traces in the layout of printStackTrace, with frames in
+ * common with the enclosing trace folded into "... n more", but bounded in
+ * frames and characters. Runs of reflection and proxy frames may be
+ * collapsed into one line without a count, as their number changes when the
+ * JVM replaces native reflection with generated accessors. Without limits
+ * and collapsing the result is that of printStackTrace.
+ */
+public class StackTraceRenderer {
+
+	private static final String SEPARATOR = System.getProperty("line.separator");
+	private static final String FRAME_PREFIX = "\tat ";
+	private static final String FRAMEWORK_FRAMES = "\t... reflection and proxy frames";
+	private static final String TRUNCATED = "\t... truncated";
+	private static final String[] FRAMEWORK_PACKAGES = { "sun.reflect.", "java.lang.reflect.",
+			"jdk.internal.reflect.", "com.sun.proxy.", "net.sf.cglib.", "org.springframework.cglib." };
+	private static final String[] FRAMEWORK_CLASSES = { "$$EnhancerBy", "$$FastClassBy", "$Proxy" };
+	private static final StackTraceElement[] NO_FRAMES = new StackTraceElement[0];
+	private static final Throwable[] NO_THROWABLES = new Throwable[0];
+	private static final Method GET_SUPPRESSED = method(Throwable.class, "getSuppressed");
+
+	private static final int MAX_BUFFER_CAPACITY = 64 * 1024;
+	private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(4096);
+		}
+	};
+
+	private final int maxFrames;
+	private final int maxChars;
+	private final boolean collapseFramework;
+
+	/**
+	 * Collapses reflection and proxy frames.
+	 */
+	public StackTraceRenderer(int maxFrames, int maxChars) {
+		this(maxFrames, maxChars, true);
+	}
+
+	/**
+	 * @param maxFrames frames to render in total, 0 for no limit
+	 * @param maxChars length of the result, 0 for no limit
+	 * @param collapseFramework collapse runs of reflection and proxy frames
+	 */
+	public StackTraceRenderer(int maxFrames, int maxChars, boolean collapseFramework) {
+		this.maxFrames = maxFrames > 0 ? maxFrames : Integer.MAX_VALUE;
+		this.maxChars = maxChars > 0 ? maxChars : Integer.MAX_VALUE;
+		this.collapseFramework = collapseFramework;
+	}
+
+	/**
+	 * Renders the throwable of the event, or its lines if the throwable is
+	 * gone.
+	 */
+	public String render(Event event) {
+		return event.getThrowable() != null ? render(event.getThrowable()) : render(event.getThrowableLines());
+	}
+
+	public String render(Throwable throwable) {
+		Output out = new Output(BUFFER.get());
+		Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+		render(out, throwable, NO_FRAMES, "", "", seen);
+		return out.finish();
+	}
+
+	/**
+	 * Applies the same limits to a stack trace that is only available as
+	 * lines, like in a deserialized event.
+	 */
+	public String render(String[] lines) {
+
+		Output out = new Output(BUFFER.get());
+
+		for (String line : lines) {
+			String trimmed = line.trim();
+			if (trimmed.startsWith("at ")) {
+				out.frame(className(trimmed), line);
+			} else if (trimmed.startsWith("... ")) {
+				out.more(line);
+			} else {
+				out.header(line);
+			}
+		}
+
+		return out.finish();
+	}
+
+	private void render(Output out, Throwable throwable, StackTraceElement[] enclosing, String caption,
+			String prefix, Set<Throwable> seen) {
+
+		if (!seen.add(throwable)) {
+			out.header(prefix + caption + "[CIRCULAR REFERENCE:" + throwable + "]");
+			return;
+		}
+
+		StackTraceElement[] trace = throwable.getStackTrace();
+		int m = trace.length - 1;
+		int n = enclosing.length - 1;
+		while (m >= 0 && n >= 0 && trace[m].equals(enclosing[n])) {
+			m--;
+			n--;
+		}
+		int inCommon = trace.length - 1 - m;
+
+		out.header(prefix + caption + throwable);
+		for (int i = 0; i <= m; i++) {
+			out.frame(trace[i].getClassName(), prefix + FRAME_PREFIX + trace[i]);
+		}
+		if (inCommon != 0) {
+			out.more(prefix + "\t... " + inCommon + " more");
+		}
+
+		for (Throwable suppressed : suppressed(throwable)) {
+			render(out, suppressed, trace, "Suppressed: ", prefix + "\t", seen);
+		}
+
+		if (throwable.getCause() != null) {
+			render(out, throwable.getCause(), trace, "Caused by: ", prefix, seen);
+		}
+	}
+
+	/**
+	 * Leaves out the class loader and module that Java 9 and later put in
+	 * front, like in "at java.base/java.lang.reflect.Method.invoke(...)" or
+	 * "at app//a.Service.find(...)". A slash followed by 0x belongs to the
+	 * name of a hidden class, like a lambda.
+	 */
+	static String className(String frame) {
+		int end = frame.indexOf('(');
+		String method = end > 0 ? frame.substring(3, end) : frame.substring(3);
+		int slash = method.lastIndexOf('/');
+		while (slash >= 0 && method.startsWith("0x", slash + 1)) {
+			slash = method.lastIndexOf('/', slash - 1);
+		}
+		method = method.substring(slash + 1);
+		int dot = method.lastIndexOf('.');
+		return dot > 0 ? method.substring(0, dot) : method;
+	}
+
+	static boolean isFramework(String className) {
+		for (String prefix : FRAMEWORK_PACKAGES) {
+			if (className.startsWith(prefix)) {
+				return true;
+			}
+		}
+		for (String marker : FRAMEWORK_CLASSES) {
+			if (className.contains(marker)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static Throwable[] suppressed(Throwable throwable) {
+		if (GET_SUPPRESSED == null) {
+			return NO_THROWABLES;
+		}
+		try {
+			return (Throwable[]) GET_SUPPRESSED.invoke(throwable);
+		} catch (Exception e) {
+			return NO_THROWABLES;
+		}
+	}
+
+	/**
+	 * Throwable.getSuppressed exists since Java 7.
+	 */
+	private static Method method(Class<?> type, String name) {
+		try {
+			return type.getMethod(name);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private class Output {
+
+		private final StringBuilder text;
+		private int frames = 0;
+		private int omitted = 0;
+		private boolean inFramework = false;
+		private boolean full = false;
+
+		private Output(StringBuilder text) {
+			this.text = text;
+			text.setLength(0);
+		}
+
+		void header(String line) {
+			endSection();
+			append(line);
+		}
+
+		void more(String line) {
+			endSection();
+			append(line);
+		}
+
+		void frame(String className, String line) {
+
+			if (frames >= maxFrames) {
+				omitted++;
+				return;
+			}
+
+			if (collapseFramework && isFramework(className)) {
+				if (!inFramework) {
+					inFramework = true;
+					frames++;
+					append(FRAMEWORK_FRAMES);
+				}
+				return;
+			}
+
+			inFramework = false;
+			frames++;
+			append(line);
+		}
+
+		private void endSection() {
+			if (omitted > 0) {
+				append("\t... " + omitted + " frames omitted");
+				omitted = 0;
+			}
+			inFramework = false;
+		}
+
+		private void append(String line) {
+
+			if (full) {
+				return;
+			}
+
+			if ((long) text.length() + line.length() + SEPARATOR.length() > maxChars) {
+				full = true;
+				truncate();
+				return;
+			}
+
+			text.append(line).append(SEPARATOR);
+		}
+
+		/**
+		 * Drops whole lines until the marker fits within maxChars.
+		 */
+		private void truncate() {
+
+			int room = maxChars - TRUNCATED.length() - SEPARATOR.length();
+
+			while (text.length() > Math.max(room, 0)) {
+				int end = text.lastIndexOf(SEPARATOR, text.length() - SEPARATOR.length() - 1);
+				text.setLength(end >= 0 ? end + SEPARATOR.length() : 0);
+			}
+
+			if (room >= 0) {
+				text.append(TRUNCATED).append(SEPARATOR);
+			}
+		}
+
+		String finish() {
+
+			endSection();
+			String result = text.toString();
+
+			if (text.capacity() > MAX_BUFFER_CAPACITY) {
+				BUFFER.remove();
+			}
+
+			return result;
+		}
+	}
+}
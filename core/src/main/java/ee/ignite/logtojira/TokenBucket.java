@@ -0,0 +1,58 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+public class TokenBucket {
+
+	private final double capacity;
+	private final double tokensPerMilli;
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * @param capacity tokens available at once and per period
+	 * @param period milliseconds it takes to refill an empty bucket
+	 */
+	public TokenBucket(int capacity, long period) {
+		this.capacity = capacity;
+		this.tokensPerMilli = (double) capacity / period;
+		this.tokens = capacity;
+		this.lastRefill = System.currentTimeMillis();
+	}
+
+	public synchronized boolean tryAcquire() {
+
+		long now = System.currentTimeMillis();
+		if (now > lastRefill) {
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+			lastRefill = now;
+		}
+
+		if (tokens < 1) {
+			return false;
+		}
+
+		tokens--;
+		return true;
+	}
+
+	/**
+	 * Returns a token that was acquired but not used.
+	 */
+	public synchronized void release() {
+		tokens = Math.min(capacity, tokens + 1);
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public abstract class Util {
+
+	/**
+	 * @return hex encoded SHA-1 of the given strings, nulls are treated as empty
+	 */
+	public static String sha1(String... parts) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (String part : parts) {
+				if (part != null) {
+					digest.update(part.getBytes("UTF-8"));
+				}
+				digest.update((byte) 0);
+			}
+			return toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] digits = "0123456789abcdef".toCharArray();
+		char[] result = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			result[i * 2] = digits[(bytes[i] >> 4) & 0xf];
+			result[i * 2 + 1] = digits[bytes[i] & 0xf];
+		}
+		return new String(result);
+	}
+}
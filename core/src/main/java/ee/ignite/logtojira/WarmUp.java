@@ -0,0 +1,131 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a slow initialization on a daemon thread and holds back events that
+ * arrive meanwhile. Once the initialization is done the held events are
+ * handed to the processor in arrival order, later events go straight through.
+ */
+public class WarmUp {
+
+	private final EventProcessor processor;
+	private final int bufferSize;
+	private final Thread thread;
+	private List<Event> pending = new ArrayList<Event>();
+	private volatile boolean ready = false;
+	private long dropped = 0;
+
+	public WarmUp(final Runnable initialization, EventProcessor processor, int bufferSize) {
+
+		this.processor = processor;
+		this.bufferSize = bufferSize;
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					initialization.run();
+				} catch (RuntimeException e) {
+					// the first event initializes again and reports the problem
+				}
+				drain();
+			}
+		}, "LogToJira-warm-up");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Holds the event back until the initialization is done, or processes it
+	 * right away when it is done already.
+	 *
+	 * @return false if the buffer was full and the event was dropped
+	 */
+	public boolean offer(Event event) {
+
+		synchronized (this) {
+			if (!ready) {
+				if (pending.size() >= bufferSize) {
+					dropped++;
+					return false;
+				}
+				pending.add(event);
+				return true;
+			}
+		}
+
+		processor.process(event);
+		return true;
+	}
+
+	private void drain() {
+
+		while (true) {
+			List<Event> events;
+
+			synchronized (this) {
+				if (pending.isEmpty()) {
+					ready = true;
+					return;
+				}
+				events = pending;
+				pending = new ArrayList<Event>();
+			}
+
+			for (Event event : events) {
+				try {
+					processor.process(event);
+				} catch (RuntimeException e) {
+					// keep draining, the processor reports its own errors
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until the held events are processed or the timeout runs out.
+	 *
+	 * @return true if no event is left behind
+	 */
+	public boolean close(long timeout) {
+
+		try {
+			thread.join(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			int left = pending.size();
+			dropped += left;
+			pending.clear();
+			ready = true;
+			return left == 0 && !thread.isAlive();
+		}
+	}
+
+	public synchronized long getDroppedCount() {
+		return dropped;
+	}
+}
@@ -15,13 +15,13 @@
 */
 package ee.ignite.logtojira.plugin;
 
-import org.apache.log4j.spi.LoggingEvent;
+import ee.ignite.logtojira.Event;
 
-public class SystemPropertiesPlugin extends AbstractPlugin {
+/**
+ * Adds a comment with its text to the issue of every event.
+ */
+public interface EventPlugin {
 
-	@Override
-	public String getText(LoggingEvent loggingEvent) {
-		return super.getText(loggingEvent) + ": " + System.getProperties();
-	}
+	String getText(Event event);
 
 }
@@ -15,23 +15,29 @@
 */
 package ee.ignite.logtojira.plugin;
 
-import org.apache.log4j.spi.LoggingEvent;
+import java.util.Iterator;
+import java.util.Map.Entry;
 
-public class RuntimePlugin extends AbstractPlugin {
+import ee.ignite.logtojira.Event;
+
+public class MDCPlugin extends AbstractStreamingPlugin {
 
 	@Override
-	public String getText(LoggingEvent loggingEvent) {
-		StringBuilder res = new StringBuilder(super.getText(loggingEvent));
-		res.append(":\n");
-		res.append("Available processors: ");
-		res.append(Runtime.getRuntime().availableProcessors());
-		res.append("\nFree memory: ");
-		res.append(Runtime.getRuntime().freeMemory());
-		res.append("\nMax memory: ");
-		res.append(Runtime.getRuntime().maxMemory());
-		res.append("\nTotal memory: ");
-		res.append(Runtime.getRuntime().totalMemory());
-		return  res.toString();
+	public void appendTo(StringBuilder out, Event event) {
+		super.appendTo(out, event);
+		out.append(": {");
+
+		for (Iterator<Entry<String, String>> i = event.getMdc().entrySet().iterator(); i.hasNext();) {
+			Entry<String, String> e = i.next();
+			out.append(e.getKey());
+			out.append('=');
+			out.append(e.getValue());
+			if (i.hasNext()) {
+				out.append(", ");
+			}
+		}
+
+		out.append('}');
 	}
 
 }
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.plugin;
+
+import ee.ignite.logtojira.Event;
+
+public class RuntimePlugin extends AbstractStreamingPlugin {
+
+	private volatile String constantPart;
+
+	@Override
+	public void appendTo(StringBuilder out, Event event) {
+
+		// processor count is looked up once, memory figures change all the time
+		if (constantPart == null) {
+			StringBuilder res = new StringBuilder();
+			super.appendTo(res, event);
+			res.append(":\n");
+			res.append("Available processors: ");
+			res.append(Runtime.getRuntime().availableProcessors());
+			constantPart = res.toString();
+		}
+
+		out.append(constantPart);
+		out.append("\nFree memory: ");
+		out.append(Runtime.getRuntime().freeMemory());
+		out.append("\nMax memory: ");
+		out.append(Runtime.getRuntime().maxMemory());
+		out.append("\nTotal memory: ");
+		out.append(Runtime.getRuntime().totalMemory());
+	}
+
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.plugin;
+
+import ee.ignite.logtojira.Event;
+
+/**
+ * Plugin that writes its text into a buffer owned by the appender instead of
+ * building a string of its own. Plain {@link EventPlugin}s are still supported
+ * through {@link EventPlugin#getText(Event)}.
+ */
+public interface StreamingPlugin extends EventPlugin {
+
+	void appendTo(StringBuilder out, Event event);
+
+	/**
+	 * @return true if the text does not depend on the event, so the appender
+	 * renders it once and reuses it for later events
+	 */
+	boolean isEventIndependent();
+
+}
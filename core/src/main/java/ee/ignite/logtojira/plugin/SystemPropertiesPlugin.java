@@ -0,0 +1,52 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.plugin;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import ee.ignite.logtojira.Event;
+
+public class SystemPropertiesPlugin extends AbstractStreamingPlugin {
+
+	@Override
+	public void appendTo(StringBuilder out, Event event) {
+		super.appendTo(out, event);
+		out.append(": {");
+
+		for (Iterator<Entry<Object, Object>> i = System.getProperties().entrySet().iterator(); i.hasNext();) {
+			Entry<Object, Object> e = i.next();
+			out.append(e.getKey());
+			out.append('=');
+			out.append(e.getValue());
+			if (i.hasNext()) {
+				out.append(", ");
+			}
+		}
+
+		out.append('}');
+	}
+
+	/**
+	 * System properties are rendered once, like they were when the first event
+	 * was logged.
+	 */
+	@Override
+	public boolean isEventIndependent() {
+		return true;
+	}
+
+}
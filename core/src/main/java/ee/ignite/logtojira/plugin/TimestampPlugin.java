@@ -17,13 +17,15 @@ package ee.ignite.logtojira.plugin;
 
 import java.util.Date;
 
-import org.apache.log4j.spi.LoggingEvent;
+import ee.ignite.logtojira.Event;
 
-public class TimestampPlugin extends AbstractPlugin {
+public class TimestampPlugin extends AbstractStreamingPlugin {
 
 	@Override
-	public String getText(LoggingEvent loggingEvent) {
-		return super.getText(loggingEvent) + ": " + new Date();
+	public void appendTo(StringBuilder out, Event event) {
+		super.appendTo(out, event);
+		out.append(": ");
+		out.append(new Date());
 	}
 
 }
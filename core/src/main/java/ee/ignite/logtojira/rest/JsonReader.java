@@ -0,0 +1,350 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.rest;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Pull parser for JSON documents that reads tokens straight from the stream,
+ * so values that are not needed are skipped without being built. Only as
+ * much of JSON as JIRA responses need is supported.
+ */
+public class JsonReader {
+
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int NONEMPTY_OBJECT = 3;
+	private static final int DANGLING_NAME = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	private final Reader in;
+	private final char[] buffer = new char[4096];
+	private int position;
+	private int limit;
+	private int[] stack = new int[32];
+	private int depth = 1;
+	private Token peeked;
+	private final StringBuilder text = new StringBuilder();
+
+	public JsonReader(Reader in) {
+		this.in = in;
+		stack[0] = EMPTY_DOCUMENT;
+	}
+
+	public Token peek() throws IOException {
+
+		if (peeked != null) {
+			return peeked;
+		}
+
+		switch (stack[depth - 1]) {
+		case EMPTY_DOCUMENT:
+			stack[depth - 1] = NONEMPTY_DOCUMENT;
+			return peeked = value(nextNonWhitespace());
+		case NONEMPTY_DOCUMENT:
+			if (skipWhitespace() != -1) {
+				throw syntaxError("Data after the end of the document");
+			}
+			return peeked = Token.END_DOCUMENT;
+		case EMPTY_ARRAY:
+		case NONEMPTY_ARRAY:
+			int c = nextNonWhitespace();
+			if (c == ']') {
+				return peeked = Token.END_ARRAY;
+			}
+			if (stack[depth - 1] == NONEMPTY_ARRAY) {
+				expect(c, ',');
+				c = nextNonWhitespace();
+			}
+			stack[depth - 1] = NONEMPTY_ARRAY;
+			return peeked = value(c);
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			c = nextNonWhitespace();
+			if (c == '}') {
+				return peeked = Token.END_OBJECT;
+			}
+			if (stack[depth - 1] == NONEMPTY_OBJECT) {
+				expect(c, ',');
+				c = nextNonWhitespace();
+			}
+			expect(c, '"');
+			stack[depth - 1] = DANGLING_NAME;
+			return peeked = Token.NAME;
+		default:
+			expect(nextNonWhitespace(), ':');
+			stack[depth - 1] = NONEMPTY_OBJECT;
+			return peeked = value(nextNonWhitespace());
+		}
+	}
+
+	public boolean hasNext() throws IOException {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+
+	public void beginObject() throws IOException {
+		consume(Token.BEGIN_OBJECT);
+		push(EMPTY_OBJECT);
+	}
+
+	public void endObject() throws IOException {
+		consume(Token.END_OBJECT);
+		depth--;
+	}
+
+	public void beginArray() throws IOException {
+		consume(Token.BEGIN_ARRAY);
+		push(EMPTY_ARRAY);
+	}
+
+	public void endArray() throws IOException {
+		consume(Token.END_ARRAY);
+		depth--;
+	}
+
+	public String nextName() throws IOException {
+		consume(Token.NAME);
+		return readString();
+	}
+
+	/**
+	 * @return string value, numbers and booleans as their text, null for null
+	 */
+	public String nextString() throws IOException {
+
+		Token token = peek();
+		peeked = null;
+
+		switch (token) {
+		case STRING:
+			return readString();
+		case NUMBER:
+		case BOOLEAN:
+			return readLiteral();
+		case NULL:
+			readLiteral();
+			return null;
+		default:
+			throw syntaxError("Expected a value but was " + token);
+		}
+	}
+
+	public long nextLong() throws IOException {
+		String value = nextString();
+		try {
+			return Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Expected a number but was " + value);
+		}
+	}
+
+	public void skipValue() throws IOException {
+
+		switch (peek()) {
+		case BEGIN_OBJECT:
+			beginObject();
+			while (hasNext()) {
+				nextName();
+				skipValue();
+			}
+			endObject();
+			break;
+		case BEGIN_ARRAY:
+			beginArray();
+			while (hasNext()) {
+				skipValue();
+			}
+			endArray();
+			break;
+		default:
+			nextString();
+		}
+	}
+
+	private void consume(Token expected) throws IOException {
+		Token token = peek();
+		if (token != expected) {
+			throw syntaxError("Expected " + expected + " but was " + token);
+		}
+		peeked = null;
+	}
+
+	private void push(int context) {
+		if (depth == stack.length) {
+			int[] grown = new int[depth * 2];
+			System.arraycopy(stack, 0, grown, 0, depth);
+			stack = grown;
+		}
+		stack[depth++] = context;
+	}
+
+	private Token value(int c) throws IOException {
+		switch (c) {
+		case '{':
+			return Token.BEGIN_OBJECT;
+		case '[':
+			return Token.BEGIN_ARRAY;
+		case '"':
+			return Token.STRING;
+		case 't':
+		case 'f':
+			position--;
+			return Token.BOOLEAN;
+		case 'n':
+			position--;
+			return Token.NULL;
+		case -1:
+			throw syntaxError("Unexpected end of document");
+		default:
+			position--;
+			return Token.NUMBER;
+		}
+	}
+
+	private String readString() throws IOException {
+
+		text.setLength(0);
+
+		while (true) {
+			int c = read();
+			if (c == '"') {
+				return text.toString();
+			}
+			if (c == -1) {
+				throw syntaxError("Unterminated string");
+			}
+			if (c == '\\') {
+				c = read();
+				switch (c) {
+				case 'b':
+					text.append('\b');
+					break;
+				case 'f':
+					text.append('\f');
+					break;
+				case 'n':
+					text.append('\n');
+					break;
+				case 'r':
+					text.append('\r');
+					break;
+				case 't':
+					text.append('\t');
+					break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(read(), 16);
+						if (digit < 0) {
+							throw syntaxError("Malformed unicode escape");
+						}
+						code = code * 16 + digit;
+					}
+					text.append((char) code);
+					break;
+				case -1:
+					throw syntaxError("Unterminated string");
+				default:
+					text.append((char) c);
+				}
+			} else {
+				text.append((char) c);
+			}
+		}
+	}
+
+	private String readLiteral() throws IOException {
+
+		text.setLength(0);
+
+		while (true) {
+			int c = read();
+			if (c == -1) {
+				break;
+			}
+			if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+				position--;
+				break;
+			}
+			text.append((char) c);
+		}
+
+		String literal = text.toString();
+		if (literal.length() == 0) {
+			throw syntaxError("Expected a value");
+		}
+		return literal;
+	}
+
+	private void expect(int c, char expected) throws IOException {
+		if (c != expected) {
+			throw syntaxError("Expected '" + expected + "' but was " + (c == -1 ? "end of document" : "'" + (char) c + "'"));
+		}
+	}
+
+	private int nextNonWhitespace() throws IOException {
+		int c = skipWhitespace();
+		if (c != -1) {
+			position++;
+		}
+		return c;
+	}
+
+	/**
+	 * @return next character that is not whitespace without consuming it
+	 */
+	private int skipWhitespace() throws IOException {
+		while (true) {
+			if (position == limit && !fill()) {
+				return -1;
+			}
+			char c = buffer[position];
+			if (!Character.isWhitespace(c)) {
+				return c;
+			}
+			position++;
+		}
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill()) {
+			return -1;
+		}
+		return buffer[position++];
+	}
+
+	private boolean fill() throws IOException {
+		int read = in.read(buffer, 0, buffer.length);
+		if (read <= 0) {
+			return false;
+		}
+		position = 0;
+		limit = read;
+		return true;
+	}
+
+	private IOException syntaxError(String message) {
+		return new IOException("Malformed JSON: " + message);
+	}
+}
@@ -0,0 +1,566 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.rest;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.axis.AxisFault;
+
+import ee.ignite.logtojira.Attachment;
+import ee.ignite.logtojira.JiraTransport;
+import ee.ignite.logtojira.soap.RemoteAuthenticationException;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteCustomFieldValue;
+import ee.ignite.logtojira.soap.RemoteFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+import ee.ignite.logtojira.soap.RemotePermissionException;
+import ee.ignite.logtojira.soap.RemoteValidationException;
+
+/**
+ * Talks to the JIRA REST API with JSON. Requests are written and responses
+ * parsed as streams, without building documents or mapping beans by
+ * reflection. The token is the session cookie of a JIRA login.
+ */
+public class RestJiraTransport implements JiraTransport {
+
+	private static final String SESSION = "rest/auth/1/session";
+	private static final String SEARCH = "rest/api/2/search";
+	private static final String ISSUE = "rest/api/2/issue";
+	private static final String LABELS = "labels";
+	private static final int MAX_ERROR_LENGTH = 1000;
+	private static final int CHUNK_SIZE = 8192;
+
+	private final String baseUrl;
+	private final int connectTimeout;
+	private final int readTimeout;
+	private final boolean compressResponses;
+
+	public RestJiraTransport(URL baseUrl, int connectTimeout, int readTimeout, boolean compressResponses) {
+		String url = baseUrl.toString();
+		this.baseUrl = url.endsWith("/") ? url : url + "/";
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+		this.compressResponses = compressResponses;
+	}
+
+	@Override
+	public String login(String username, String password) throws RemoteException {
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			JsonWriter json = writer(body);
+			json.beginObject().name("username").value(username).name("password").value(password).endObject();
+			json.flush();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA request not written", e);
+		}
+
+		HttpURLConnection connection = execute("POST", SESSION, null, body);
+		String name = null;
+		String value = null;
+
+		try {
+			JsonReader reader = reader(connection);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("session".equals(reader.nextName())) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String field = reader.nextName();
+						if ("name".equals(field)) {
+							name = reader.nextString();
+						} else if ("value".equals(field)) {
+							value = reader.nextString();
+						} else {
+							reader.skipValue();
+						}
+					}
+					reader.endObject();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA response not read", e);
+		} finally {
+			close(connection);
+		}
+
+		if (name == null || value == null) {
+			throw fault(new ee.ignite.logtojira.soap.RemoteException(), "JIRA login returned no session");
+		}
+
+		return name + "=" + value;
+	}
+
+	@Override
+	public boolean logout(String token) throws RemoteException {
+		close(execute("DELETE", SESSION, token, null));
+		return true;
+	}
+
+	@Override
+	public RemoteIssue[] getIssuesFromJqlSearch(String token, String jql, int maxResults)
+			throws RemoteException {
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			JsonWriter json = writer(body);
+			json.beginObject();
+			json.name("jql").value(jql);
+			json.name("maxResults").value(maxResults);
+			json.name("fields").beginArray()
+					.value("summary").value("description").value("environment").value("status")
+					.endArray();
+			json.endObject();
+			json.flush();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA request not written", e);
+		}
+
+		HttpURLConnection connection = execute("POST", SEARCH, token, body);
+		List<RemoteIssue> issues = new ArrayList<RemoteIssue>();
+
+		try {
+			JsonReader reader = reader(connection);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("issues".equals(reader.nextName())) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						issues.add(readIssue(reader));
+					}
+					reader.endArray();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA response not read", e);
+		} finally {
+			close(connection);
+		}
+
+		return issues.toArray(new RemoteIssue[issues.size()]);
+	}
+
+	@Override
+	public RemoteIssue createIssue(String token, RemoteIssue issue) throws RemoteException {
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			JsonWriter json = writer(body);
+			json.beginObject().name("fields").beginObject();
+			json.name("project").beginObject().name("key").value(issue.getProject()).endObject();
+			json.name("issuetype").beginObject().name("id").value(issue.getType()).endObject();
+			json.name("summary").value(issue.getSummary());
+			json.name("description").value(issue.getDescription());
+			json.name("environment").value(issue.getEnvironment());
+			if (issue.getCustomFieldValues() != null) {
+				for (RemoteCustomFieldValue field : issue.getCustomFieldValues()) {
+					json.name(field.getCustomfieldId());
+					writeValues(json, field.getValues(), false);
+				}
+			}
+			json.endObject().endObject();
+			json.flush();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA request not written", e);
+		}
+
+		HttpURLConnection connection = execute("POST", ISSUE, token, body);
+		RemoteIssue created = new RemoteIssue();
+		created.setProject(issue.getProject());
+		created.setType(issue.getType());
+		created.setSummary(issue.getSummary());
+		created.setDescription(issue.getDescription());
+		created.setEnvironment(issue.getEnvironment());
+
+		try {
+			JsonReader reader = reader(connection);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if ("id".equals(name)) {
+					created.setId(reader.nextString());
+				} else if ("key".equals(name)) {
+					created.setKey(reader.nextString());
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA response not read", e);
+		} finally {
+			close(connection);
+		}
+
+		return created;
+	}
+
+	@Override
+	public RemoteIssue updateIssue(String token, String issueKey, RemoteFieldValue[] fieldValues)
+			throws RemoteException {
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			JsonWriter json = writer(body);
+			json.beginObject().name("fields").beginObject();
+			for (RemoteFieldValue field : fieldValues) {
+				json.name(field.getId());
+				writeValues(json, field.getValues(), LABELS.equals(field.getId()));
+			}
+			json.endObject().endObject();
+			json.flush();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA request not written", e);
+		}
+
+		close(execute("PUT", ISSUE + "/" + encode(issueKey), token, body));
+
+		RemoteIssue updated = new RemoteIssue();
+		updated.setKey(issueKey);
+		return updated;
+	}
+
+	@Override
+	public void addComment(String token, String issueKey, RemoteComment comment) throws RemoteException {
+
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try {
+			JsonWriter json = writer(body);
+			json.beginObject().name("body").value(comment.getBody()).endObject();
+			json.flush();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA request not written", e);
+		}
+
+		close(execute("POST", ISSUE + "/" + encode(issueKey) + "/comment", token, body));
+	}
+
+	@Override
+	public RemoteComment[] getComments(String token, String issueKey) throws RemoteException {
+
+		HttpURLConnection connection = execute("GET", ISSUE + "/" + encode(issueKey) + "/comment", token, null);
+		List<RemoteComment> comments = new ArrayList<RemoteComment>();
+
+		try {
+			JsonReader reader = reader(connection);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if ("comments".equals(reader.nextName())) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						comments.add(readComment(reader));
+					}
+					reader.endArray();
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA response not read", e);
+		} finally {
+			close(connection);
+		}
+
+		return comments.toArray(new RemoteComment[comments.size()]);
+	}
+
+	/**
+	 * Uploads the attachment as multipart form data in chunks, while the
+	 * attachment is writing it.
+	 */
+	@Override
+	public void addAttachment(String token, String issueKey, Attachment attachment) throws RemoteException {
+
+		HttpURLConnection connection = open("POST", ISSUE + "/" + encode(issueKey) + "/attachments", token);
+		String boundary = "logtojira" + Long.toHexString(System.nanoTime());
+
+		try {
+			connection.setDoOutput(true);
+			connection.setChunkedStreamingMode(CHUNK_SIZE);
+			connection.setRequestProperty("X-Atlassian-Token", "no-check");
+			connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+			OutputStream out = new BufferedOutputStream(connection.getOutputStream(), CHUNK_SIZE);
+			out.write(("--" + boundary + "\r\n"
+					+ "Content-Disposition: form-data; name=\"file\"; filename=\"" + attachment.getFileName() + "\"\r\n"
+					+ "Content-Type: " + attachment.getContentType() + "\r\n\r\n").getBytes("UTF-8"));
+			attachment.writeTo(out);
+			out.write(("\r\n--" + boundary + "--\r\n").getBytes("UTF-8"));
+			out.close();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA not reachable at " + baseUrl, e);
+		}
+
+		close(respond(connection));
+	}
+
+	private RemoteIssue readIssue(JsonReader reader) throws IOException {
+
+		RemoteIssue issue = new RemoteIssue();
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("id".equals(name)) {
+				issue.setId(reader.nextString());
+			} else if ("key".equals(name)) {
+				issue.setKey(reader.nextString());
+			} else if ("fields".equals(name)) {
+				readFields(reader, issue);
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		return issue;
+	}
+
+	private void readFields(JsonReader reader, RemoteIssue issue) throws IOException {
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("summary".equals(name)) {
+				issue.setSummary(reader.nextString());
+			} else if ("description".equals(name)) {
+				issue.setDescription(reader.nextString());
+			} else if ("environment".equals(name)) {
+				issue.setEnvironment(reader.nextString());
+			} else if ("status".equals(name) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					if ("id".equals(reader.nextName())) {
+						issue.setStatus(reader.nextString());
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+	}
+
+	private RemoteComment readComment(JsonReader reader) throws IOException {
+
+		RemoteComment comment = new RemoteComment();
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if ("id".equals(name)) {
+				comment.setId(reader.nextString());
+			} else if ("body".equals(name)) {
+				comment.setBody(reader.nextString());
+			} else if ("author".equals(name) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					if ("name".equals(reader.nextName())) {
+						comment.setAuthor(reader.nextString());
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		return comment;
+	}
+
+	/**
+	 * Fields with several values and label fields take an array, others a
+	 * single value.
+	 */
+	private void writeValues(JsonWriter json, String[] values, boolean array) throws IOException {
+
+		if (!array && values != null && values.length == 1) {
+			json.value(values[0]);
+			return;
+		}
+
+		json.beginArray();
+		if (values != null) {
+			for (String value : values) {
+				json.value(value);
+			}
+		}
+		json.endArray();
+	}
+
+	private HttpURLConnection execute(String method, String path, String token, ByteArrayOutputStream body)
+			throws RemoteException {
+
+		HttpURLConnection connection = open(method, path, token);
+
+		if (body != null) {
+			try {
+				connection.setDoOutput(true);
+				connection.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
+				// buffered by the connection, so headers and body go out in one write
+				OutputStream out = connection.getOutputStream();
+				body.writeTo(out);
+				out.close();
+			} catch (IOException e) {
+				throw new RemoteException("JIRA not reachable at " + baseUrl, e);
+			}
+		}
+
+		return respond(connection);
+	}
+
+	private HttpURLConnection open(String method, String path, String token) throws RemoteException {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+			connection.setConnectTimeout(connectTimeout);
+			connection.setReadTimeout(readTimeout);
+			connection.setRequestMethod(method);
+			connection.setRequestProperty("Accept", "application/json");
+			if (compressResponses) {
+				connection.setRequestProperty("Accept-Encoding", "gzip");
+			}
+			if (token != null) {
+				connection.setRequestProperty("Cookie", token);
+			}
+			return connection;
+		} catch (IOException e) {
+			throw new RemoteException("JIRA not reachable at " + baseUrl, e);
+		}
+	}
+
+	private HttpURLConnection respond(HttpURLConnection connection) throws RemoteException {
+
+		int status;
+
+		try {
+			status = connection.getResponseCode();
+		} catch (IOException e) {
+			throw new RemoteException("JIRA not reachable at " + baseUrl, e);
+		}
+
+		if (status >= 200 && status < 300) {
+			return connection;
+		}
+
+		String message = "JIRA answered " + status + ": " + readError(connection);
+
+		switch (status) {
+		case 400:
+			throw fault(new RemoteValidationException(), message);
+		case 401:
+			throw fault(new RemoteAuthenticationException(), message);
+		case 403:
+			throw fault(new RemotePermissionException(), message);
+		default:
+			if (status < 500) {
+				throw fault(new ee.ignite.logtojira.soap.RemoteException(), message);
+			}
+			// gateways answer for JIRA when it is down
+			throw new RemoteException(message);
+		}
+	}
+
+	private JsonReader reader(HttpURLConnection connection) throws IOException {
+		return new JsonReader(new InputStreamReader(body(connection.getInputStream(), connection), "UTF-8"));
+	}
+
+	private JsonWriter writer(ByteArrayOutputStream body) throws IOException {
+		return new JsonWriter(new OutputStreamWriter(body, "UTF-8"));
+	}
+
+	private InputStream body(InputStream in, HttpURLConnection connection) throws IOException {
+		return "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(in) : in;
+	}
+
+	private String readError(HttpURLConnection connection) {
+
+		StringBuilder error = new StringBuilder();
+
+		try {
+			InputStream in = connection.getErrorStream();
+			if (in == null) {
+				return connection.getResponseMessage();
+			}
+			InputStreamReader reader = new InputStreamReader(body(in, connection), "UTF-8");
+			char[] buffer = new char[1024];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				if (error.length() < MAX_ERROR_LENGTH) {
+					error.append(buffer, 0, Math.min(read, MAX_ERROR_LENGTH - error.length()));
+				}
+			}
+			reader.close();
+		} catch (IOException e) {
+			// the status alone has to do
+		}
+
+		return error.toString();
+	}
+
+	/**
+	 * Reads the rest of the response, so that the connection can be reused.
+	 */
+	private void close(HttpURLConnection connection) {
+		try {
+			InputStream in = connection.getInputStream();
+			byte[] buffer = new byte[1024];
+			while (in.read(buffer) != -1) {
+				// drain
+			}
+			in.close();
+		} catch (IOException e) {
+			connection.disconnect();
+		}
+	}
+
+	private static <T extends AxisFault> T fault(T fault, String message) {
+		fault.setFaultString(message);
+		return fault;
+	}
+
+	private static String encode(String value) throws RemoteException {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (IOException e) {
+			throw new RemoteException("Cannot encode " + value, e);
+		}
+	}
+}
@@ -0,0 +1,445 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.easymock.EasyMock.aryEq;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.Collections;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ee.ignite.logtojira.AppenderService;
+import ee.ignite.logtojira.AppenderServiceImpl;
+import ee.ignite.logtojira.Config;
+import ee.ignite.logtojira.JiraTransport;
+import ee.ignite.logtojira.plugin.AbstractStreamingPlugin;
+import ee.ignite.logtojira.plugin.MDCPlugin;
+import ee.ignite.logtojira.plugin.RuntimePlugin;
+import ee.ignite.logtojira.plugin.StreamingPlugin;
+import ee.ignite.logtojira.plugin.SystemPropertiesPlugin;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+
+public class AppenderServiceImplTest {
+
+	private static final String SUMMARY = "the summary";
+	private static final String DECRIPTION = "the description";
+	private static final String TRICKY_SUMMARY = "?!~\t\n,.*/-@#$%^&()_+фвмÄÜÕ";
+	private static final String TRICKY_DECRIPTION = "@#$%^&()_+фвмÄÜÕ?!~\t\n,.*/-";
+	private static final String PROJECT = "TST";
+	private static final String ISSUE_TYPE = "1";
+	private static final String TOKEN = "tokenValue";
+	private static final String KEY = "TST-1";
+
+	private static final String DUPLICATE_JQL =
+		"project = " + PROJECT +
+		" AND summary ~ \"\\\"" + SUMMARY + "\\\"\"" +
+		" AND description IS EMPTY" +
+		" AND status in (Open, \"In Progress\", Reopened)" +
+		" ORDER BY created";
+
+	private static final String DUPLICATE_WITH_DESCRIPTION_JQL =
+		"project = " + PROJECT +
+		" AND summary ~ \"\\\"" + SUMMARY + "\\\"\"" +
+		" AND description ~ \"\\\"" + DECRIPTION + "\\\"\"" +
+		" AND status in (Open, \"In Progress\", Reopened)" +
+		" ORDER BY created";
+
+	private static final String DUPLICATE_WITH_DESCRIPTION_TRICKY_JQL =
+		"project = " + PROJECT +
+		" AND summary ~ \"\\\"?!~\\t\\n,.*/-@#$%^&()_+\\u0444\\u0432\\u043C\\u00C4\\u00DC\\u00D5\\\"\"" +
+		" AND description ~ \"\\\"@#$%^&()_+\\u0444\\u0432\\u043C\\u00C4\\u00DC\\u00D5?!~\\t\\n,.*/-\\\"\"" +
+		" AND status in (Open, \"In Progress\", Reopened)" +
+		" ORDER BY created";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private AppenderService service;
+	private Config config;
+	private JiraTransport jiraService;
+
+	@Before
+	public void init() {
+		config = new Config();
+		config.setProject(PROJECT);
+		config.setIssueTypeId(ISSUE_TYPE);
+		jiraService = EasyMock.createMock(JiraTransport.class);
+		service = new AppenderServiceImpl(config, jiraService);
+	}
+
+	@Test
+	public void openIssueIndexAnswersWithoutSearchAndMissesAreSearched() throws RemoteException {
+		config.setOpenIssueSyncInterval(60000);
+		service = new AppenderServiceImpl(config, jiraService);
+		RemoteIssue open = new RemoteIssue();
+		open.setKey(KEY);
+		open.setSummary(SUMMARY);
+		open.setDescription(DECRIPTION);
+
+		expect(jiraService.getIssuesFromJqlSearch(eq(TOKEN), EasyMock.startsWith("project = TST AND status in"),
+				eq(config.getOpenIssuePageSize()))).andReturn(new RemoteIssue[] { open });
+		expect(jiraService.getIssuesFromJqlSearch(eq(TOKEN), EasyMock.contains("key > " + KEY),
+				eq(config.getOpenIssuePageSize()))).andReturn(new RemoteIssue[0]);
+		RemoteIssue createdElsewhere = new RemoteIssue();
+		createdElsewhere.setKey("TST-2");
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, DUPLICATE_JQL, 1))
+				.andReturn(new RemoteIssue[] { createdElsewhere });
+		replay(jiraService);
+
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(SUMMARY);
+		issue.setDescription(DECRIPTION);
+		RemoteIssue other = new RemoteIssue();
+		other.setSummary(SUMMARY);
+
+		service.syncOpenIssues(TOKEN);
+
+		assertEquals(KEY, service.getLatestDuplicate(issue, TOKEN).getKey());
+		assertEquals("TST-2", service.getLatestDuplicate(other, TOKEN).getKey());
+		verify(jiraService);
+	}
+
+	@Test
+	public void duplicateDoesNotExist() throws ee.ignite.logtojira.soap.RemoteException, RemoteException {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(SUMMARY);
+		issue.setDescription(DECRIPTION);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, DUPLICATE_WITH_DESCRIPTION_JQL, 1))
+				.andReturn(new RemoteIssue[] {});
+		replay(jiraService);
+
+		assertFalse(service.duplicateExists(issue, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test
+	public void duplicateBySummaryExists() throws RemoteException {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(SUMMARY);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, DUPLICATE_JQL, 1))
+				.andReturn(new RemoteIssue[] { issue });
+		replay(jiraService);
+
+		assertTrue(service.duplicateExists(issue, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test
+	public void duplicateDetectionHandlesSpecialChars() throws ee.ignite.logtojira.soap.RemoteException, RemoteException {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(TRICKY_SUMMARY);
+		issue.setDescription(TRICKY_DECRIPTION);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, DUPLICATE_WITH_DESCRIPTION_TRICKY_JQL, 1))
+				.andReturn(new RemoteIssue[] {});
+		replay(jiraService);
+
+		service.duplicateExists(issue, TOKEN);
+		verify(jiraService);
+	}
+
+	@Test
+	public void duplicateIsCached() throws RemoteException {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(SUMMARY);
+		RemoteIssue duplicate = new RemoteIssue();
+		duplicate.setKey(KEY);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, DUPLICATE_JQL, 1))
+				.andReturn(new RemoteIssue[] { duplicate });
+		replay(jiraService);
+
+		assertEquals(KEY, service.getLatestDuplicate(issue, TOKEN).getKey());
+		assertEquals(KEY, service.getLatestDuplicate(issue, TOKEN).getKey());
+		verify(jiraService);
+		assertEquals(1, ((AppenderServiceImpl) service).getIssueKeyCache().getHits());
+		assertEquals(1, ((AppenderServiceImpl) service).getIssueKeyCache().getMisses());
+	}
+
+	@Test
+	public void dedupIndexSurvivesRestart() throws RemoteException, IOException {
+		File file = new File(folder.getRoot(), "dedup.idx");
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(SUMMARY);
+		RemoteIssue duplicate = new RemoteIssue();
+		duplicate.setKey(KEY);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, DUPLICATE_JQL, 1))
+				.andReturn(new RemoteIssue[] { duplicate });
+		replay(jiraService);
+
+		DedupIndex index = new DedupIndex(file, 64);
+		service = new AppenderServiceImpl(config, jiraService, index);
+		service.getLatestDuplicate(issue, TOKEN);
+		service.commentAdded(comment("seen"), duplicate);
+		index.close();
+
+		service = new AppenderServiceImpl(config, jiraService, new DedupIndex(file, 64));
+		assertEquals(KEY, service.getLatestDuplicate(issue, TOKEN).getKey());
+		assertTrue(service.duplicateExists(comment("seen"), duplicate, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test
+	public void forgottenIssueIsSearchedAgain() throws RemoteException {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(SUMMARY);
+		issue.setKey(KEY);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, DUPLICATE_JQL, 1))
+				.andReturn(new RemoteIssue[] {});
+		replay(jiraService);
+
+		service.issueCreated(issue, issue, TOKEN);
+		assertEquals(KEY, service.getLatestDuplicate(issue, TOKEN).getKey());
+		assertTrue(service.forgetIssue(issue));
+		assertFalse(service.forgetIssue(issue));
+		assertNull(service.getLatestDuplicate(issue, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test
+	public void duplicateByFingerprintLabel() throws RemoteException {
+		config.setFingerprintField("labels");
+		RemoteIssue issue = service.createIssue(createTestEvent(new NullPointerException()));
+		RemoteIssue created = new RemoteIssue();
+		created.setKey(KEY);
+		String label = ((AppenderServiceImpl) service).fingerprintLabel(issue);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, "project = " + PROJECT
+				+ " AND labels = " + label
+				+ " AND status in (Open, \"In Progress\", Reopened) ORDER BY created", 1))
+				.andReturn(new RemoteIssue[] {});
+		expect(jiraService.updateIssue(eq(TOKEN), eq(KEY), aryEq(new RemoteFieldValue[] {
+				new RemoteFieldValue("labels", new String[] { label }) }))).andReturn(created);
+		replay(jiraService);
+
+		assertTrue(label.matches("fp-[0-9a-f]{16}"));
+		assertNull(service.getLatestDuplicate(issue, TOKEN));
+		service.issueCreated(issue, created, TOKEN);
+		verify(jiraService);
+	}
+
+	@Test
+	public void failedLabelUpdateIsRetried() throws RemoteException {
+		config.setFingerprintField("labels");
+		RemoteIssue issue = service.createIssue(createTestEvent(new NullPointerException()));
+		RemoteIssue created = new RemoteIssue();
+		created.setKey(KEY);
+
+		expect(jiraService.updateIssue(eq(TOKEN), eq(KEY), isA(RemoteFieldValue[].class)))
+				.andThrow(new RemoteException("Connection reset")).times(3);
+		replay(jiraService);
+
+		try {
+			service.issueCreated(issue, created, TOKEN);
+			fail();
+		} catch (RemoteException e) {
+			// reported by the caller
+		}
+		assertEquals(KEY, service.getLatestDuplicate(issue, TOKEN).getKey());
+		verify(jiraService);
+	}
+
+	@Test
+	public void fingerprintCustomField() throws RemoteException {
+		config.setFingerprintField("customfield_10010");
+		RemoteIssue issue = service.createIssue(createTestEvent(new NullPointerException()));
+		String label = ((AppenderServiceImpl) service).fingerprintLabel(issue);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, "project = " + PROJECT
+				+ " AND cf[10010] = \"" + label + "\""
+				+ " AND status in (Open, \"In Progress\", Reopened) ORDER BY created", 1))
+				.andReturn(new RemoteIssue[] {});
+		replay(jiraService);
+
+		assertEquals("customfield_10010", issue.getCustomFieldValues()[0].getCustomfieldId());
+		assertEquals(label, issue.getCustomFieldValues()[0].getValues()[0]);
+		assertNull(service.getLatestDuplicate(issue, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownFingerprintFieldIsRejected() {
+		config.setFingerprintField("summary");
+	}
+
+	@Test
+	public void fingerprintIgnoresLineNumbers() {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setSummary(SUMMARY);
+		issue.setDescription("java.lang.NullPointerException\n\tat a.B.c(B.java:10)\n\t... 3 more\n");
+		RemoteIssue moved = new RemoteIssue();
+		moved.setSummary(SUMMARY);
+		moved.setDescription("java.lang.NullPointerException\n\tat a.B.c(B.java:12)\n\t... 4 more\n");
+
+		assertEquals(service.fingerprint(issue), service.fingerprint(moved));
+	}
+
+	@Test
+	public void commentsAreSeededOnce() throws RemoteException {
+		config.setSeedComments(true);
+		RemoteIssue issue = new RemoteIssue();
+		issue.setKey(KEY);
+
+		expect(jiraService.getComments(TOKEN, KEY)).andReturn(new RemoteComment[] { comment("a") });
+		replay(jiraService);
+
+		assertTrue(service.duplicateExists(comment("a"), issue, TOKEN));
+		assertFalse(service.duplicateExists(comment("b"), issue, TOKEN));
+		service.commentAdded(comment("b"), issue);
+		assertTrue(service.duplicateExists(comment("b"), issue, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test
+	public void commentsOfCreatedIssueAreKnown() throws RemoteException {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setKey(KEY);
+		replay(jiraService);
+
+		service.issueCreated(issue, issue, TOKEN);
+		assertFalse(service.duplicateExists(comment("a"), issue, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test
+	public void unknownCommentIsSearched() throws RemoteException {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setKey(KEY);
+
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, "key = " + KEY + " AND comment ~ \"\\\"a\\\"\"", 1))
+				.andReturn(new RemoteIssue[] { issue });
+		replay(jiraService);
+
+		assertTrue(service.duplicateExists(comment("a"), issue, TOKEN));
+		assertTrue(service.duplicateExists(comment("a"), issue, TOKEN));
+		verify(jiraService);
+	}
+
+	@Test
+	public void eventIndependentPluginIsRenderedOnce() {
+		final int[] rendered = new int[1];
+		StreamingPlugin plugin = new AbstractStreamingPlugin() {
+			@Override
+			public void appendTo(StringBuilder out, Event event) {
+				rendered[0]++;
+				out.append("constant");
+			}
+
+			@Override
+			public boolean isEventIndependent() {
+				return true;
+			}
+		};
+
+		assertEquals("constant", service.createComment(plugin, createTestEvent()).getBody());
+		assertEquals("constant", service.createComment(plugin, createTestEvent()).getBody());
+		assertEquals(1, rendered[0]);
+	}
+
+	@Test
+	public void streamingPluginsKeepTheirText() {
+		Event event = new Event(AppenderServiceImplTest.class.getName(), "ERROR", 0, "tstmsg", "main", null,
+				Collections.singletonMap("user", "tester"), null, null);
+		assertEquals(MDCPlugin.class.getName() + ": " + event.getMdc(),
+				service.createComment(new MDCPlugin(), event).getBody());
+		assertEquals(SystemPropertiesPlugin.class.getName() + ": " + System.getProperties(),
+				service.createComment(new SystemPropertiesPlugin(), event).getBody());
+		assertTrue(service.createComment(new RuntimePlugin(), event).getBody().startsWith(
+				RuntimePlugin.class.getName() + ":\nAvailable processors: "));
+	}
+
+	@Test
+	public void createIssueWithoutException() throws RemoteException {
+		RemoteIssue result = service.createIssue(createTestEvent());
+		assertEquals("", result.getDescription());
+	}
+
+	@Test
+	public void createIssue() throws RemoteException {
+		Throwable e = new NullPointerException();
+		Event logEvent = createTestEvent(e);
+		RemoteIssue result = service.createIssue(logEvent);
+		assertEquals(config.getProject(), result.getProject());
+		assertEquals(config.getIssueTypeId(), result.getType());
+		assertEquals(logEvent.getMessage(), result.getSummary());
+		String separator = System.getProperty("line.separator");
+		assertTrue(result.getDescription().startsWith("java.lang.NullPointerException" + separator
+				+ "\tat ee.ignite.logtojira.AppenderServiceImplTest.createIssue(AppenderServiceImplTest.java:"));
+		assertEquals(new StackTraceRenderer(0, 0, false).render(e), result.getDescription());
+		assertFalse(result.getDescription().contains("\t... reflection and proxy frames"));
+
+		config.setCollapseFrameworkFrames(true);
+		service = new AppenderServiceImpl(config, jiraService);
+
+		result = service.createIssue(logEvent);
+		assertTrue(result.getDescription().contains(separator + "\t... reflection and proxy frames" + separator));
+	}
+
+	@Test
+	public void compactDescription() throws RemoteException {
+		config.setCompactDescription(true);
+		service = new AppenderServiceImpl(config, jiraService);
+		Throwable e = new NullPointerException();
+		e.setStackTrace(new Throwable().getStackTrace());
+
+		RemoteIssue result = service.createIssue(createTestEvent(e));
+
+		String separator = System.getProperty("line.separator");
+		assertTrue(result.getDescription().startsWith("java.lang.NullPointerException" + separator
+				+ "\tat ee.ignite.logtojira.AppenderServiceImplTest.compactDescription(AppenderServiceImplTest.java)"));
+		assertTrue(result.getDescription().split(separator).length <= 12);
+		assertNull(result.getEnvironment());
+	}
+
+	private RemoteComment comment(String body) {
+		RemoteComment comment = new RemoteComment();
+		comment.setBody(body);
+		return comment;
+	}
+
+	private Event createTestEvent(Throwable exception) {
+		return new Event(AppenderServiceImplTest.class.getName(), "ERROR", System.currentTimeMillis(), "tstmsg",
+				Thread.currentThread().getName(), null, null, exception, null);
+	}
+
+	private Event createTestEvent() {
+		return createTestEvent(null);
+	}
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ee.ignite.logtojira.AsyncDispatcher.OverflowPolicy;
+
+
+public class AsyncDispatcherTest {
+
+	private CountDownLatch started;
+	private CountDownLatch release;
+	private List<String> processed;
+	private EventProcessor processor;
+	private AsyncDispatcher dispatcher;
+
+	@Before
+	public void init() {
+		started = new CountDownLatch(1);
+		release = new CountDownLatch(1);
+		processed = Collections.synchronizedList(new ArrayList<String>());
+
+		processor = new EventProcessor() {
+			@Override
+			public void process(Event event) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				processed.add(event.getMessage());
+			}
+		};
+	}
+
+	@After
+	public void release() {
+		release.countDown();
+		if (dispatcher != null) {
+			dispatcher.close(1000);
+		}
+	}
+
+	@Test
+	public void dropNewest() throws InterruptedException {
+		dispatcher = createDispatcher(processor, 1, 1, OverflowPolicy.DROP_NEWEST, 0);
+		occupyWorker();
+
+		assertTrue(dispatcher.dispatch(createTestEvent("2")));
+		assertFalse(dispatcher.dispatch(createTestEvent("3")));
+
+		release.countDown();
+		assertTrue(dispatcher.close(1000));
+		assertEquals(Arrays.asList("1", "2"), processed);
+		assertEquals(1, dispatcher.getDroppedCount());
+	}
+
+	@Test
+	public void dropOldest() throws InterruptedException {
+		final List<String> evicted = new ArrayList<String>();
+		dispatcher = createDispatcher(processor, 1, 1, OverflowPolicy.DROP_OLDEST, 0);
+		dispatcher.setEvictionListener(new AsyncDispatcher.EvictionListener() {
+			@Override
+			public void evicted(Event event) {
+				evicted.add(event.getMessage());
+			}
+		});
+		occupyWorker();
+
+		assertTrue(dispatcher.dispatch(createTestEvent("2")));
+		assertTrue(dispatcher.dispatch(createTestEvent("3")));
+
+		release.countDown();
+		assertTrue(dispatcher.close(1000));
+		assertEquals(Arrays.asList("1", "3"), processed);
+		assertEquals(Arrays.asList("2"), evicted);
+		assertEquals(1, dispatcher.getDroppedCount());
+	}
+
+	@Test
+	public void failuresGoToListener() throws InterruptedException {
+		final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+		final List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<RuntimeException>());
+		final IllegalStateException failure = new IllegalStateException();
+		dispatcher = createDispatcher(new EventProcessor() {
+			@Override
+			public void process(Event event) {
+				if ("1".equals(event.getMessage())) {
+					throw failure;
+				}
+				processed.add(event.getMessage());
+			}
+		}, 10, 1, OverflowPolicy.DROP_NEWEST, 0);
+		dispatcher.setFailureListener(new AsyncDispatcher.FailureListener() {
+			@Override
+			public void failed(Event event, RuntimeException e) {
+				failed.add(event.getMessage());
+				failures.add(e);
+			}
+		});
+
+		dispatcher.dispatch(createTestEvent("1"));
+		dispatcher.dispatch(createTestEvent("2"));
+
+		assertTrue(dispatcher.close(1000));
+		assertEquals(Arrays.asList("1"), failed);
+		assertSame(failure, failures.get(0));
+		assertEquals(Arrays.asList("2"), processed);
+	}
+
+	@Test
+	public void blockGivesUpAfterTimeout() throws InterruptedException {
+		dispatcher = createDispatcher(processor, 1, 1, OverflowPolicy.BLOCK, 50);
+		occupyWorker();
+
+		assertTrue(dispatcher.dispatch(createTestEvent("2")));
+		long start = System.currentTimeMillis();
+		assertFalse(dispatcher.dispatch(createTestEvent("3")));
+		assertTrue(System.currentTimeMillis() - start >= 50);
+	}
+
+	@Test
+	public void closeGivesUpAfterTimeout() throws InterruptedException {
+		dispatcher = createDispatcher(processor, 10, 1, OverflowPolicy.DROP_NEWEST, 0);
+		occupyWorker();
+		dispatcher.dispatch(createTestEvent("2"));
+
+		assertFalse(dispatcher.close(50));
+		assertFalse(dispatcher.dispatch(createTestEvent("3")));
+		assertEquals(0, dispatcher.getQueueSize());
+	}
+
+	@Test
+	public void distinctMessagesAreProcessedInParallel() throws InterruptedException {
+		String other = "2";
+		while (AsyncDispatcher.stripe(other, 2) == AsyncDispatcher.stripe("1", 2)) {
+			other += "2";
+		}
+		final CountDownLatch otherProcessed = new CountDownLatch(1);
+		final String otherMessage = other;
+		EventProcessor striped = new EventProcessor() {
+			@Override
+			public void process(Event event) {
+				if (otherMessage.equals(event.getMessage())) {
+					otherProcessed.countDown();
+				} else {
+					processor.process(event);
+				}
+			}
+		};
+		dispatcher = createDispatcher(striped, 10, 2, OverflowPolicy.DROP_NEWEST, 0);
+		occupyWorker();
+
+		dispatcher.dispatch(createTestEvent("1"));
+		dispatcher.dispatch(createTestEvent(other));
+
+		assertTrue(otherProcessed.await(1, TimeUnit.SECONDS));
+		assertEquals(1, dispatcher.getQueueSize());
+		release.countDown();
+		assertTrue(dispatcher.close(1000));
+		assertEquals(Arrays.asList("1", "1"), processed);
+	}
+
+	protected AsyncDispatcher createDispatcher(EventProcessor processor, int queueSize, int workerCount,
+			OverflowPolicy overflowPolicy, long blockTimeout) {
+		return new AsyncDispatcher(processor, queueSize, workerCount, overflowPolicy, blockTimeout);
+	}
+
+	private void occupyWorker() throws InterruptedException {
+		dispatcher.dispatch(createTestEvent("1"));
+		assertTrue(started.await(1, TimeUnit.SECONDS));
+	}
+
+	private Event createTestEvent(String message) {
+		return new Event(AsyncDispatcherTest.class.getName(), "ERROR", System.currentTimeMillis(), message,
+				Thread.currentThread().getName(), null, null, null, null);
+	}
+}
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+
+public class BoundedConcurrentQueueTest {
+
+	private final BoundedConcurrentQueue<String> queue = new BoundedConcurrentQueue<String>(2);
+
+	@Test
+	public void boundIsKept() {
+		assertTrue(queue.offer("1"));
+		assertTrue(queue.offer("2"));
+		assertFalse(queue.offer("3"));
+		assertEquals(0, queue.remainingCapacity());
+
+		assertTrue(queue.remove("1"));
+		assertTrue(queue.offer("3"));
+
+		List<String> drained = new ArrayList<String>();
+		queue.drainTo(drained);
+		assertEquals(Arrays.asList("2", "3"), drained);
+		assertEquals(0, queue.size());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	public void waitingConsumerIsWokenByOffer() throws InterruptedException {
+		final List<String> taken = new ArrayList<String>();
+		Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					taken.add(queue.poll(5, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					// fails below
+				}
+			}
+		};
+		consumer.start();
+		Thread.sleep(50);
+
+		long start = System.nanoTime();
+		queue.offer("1");
+		consumer.join(1000);
+
+		assertEquals(Arrays.asList("1"), taken);
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Test
+	public void waitingProducerIsWokenByPoll() throws InterruptedException {
+		queue.offer("1");
+		queue.offer("2");
+
+		assertFalse(queue.offer("3", 20, TimeUnit.MILLISECONDS));
+
+		final CountDownLatch offered = new CountDownLatch(1);
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					if (queue.offer("3", 5, TimeUnit.SECONDS)) {
+						offered.countDown();
+					}
+				} catch (InterruptedException e) {
+					// fails below
+				}
+			}
+		}.start();
+		Thread.sleep(50);
+
+		assertEquals("1", queue.poll());
+		assertTrue(offered.await(1, TimeUnit.SECONDS));
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void eachPollLetsOneProducerIn() throws InterruptedException {
+		queue.offer("1");
+		queue.offer("2");
+
+		final AtomicInteger offered = new AtomicInteger();
+		List<Thread> producers = new ArrayList<Thread>();
+		for (int i = 0; i < 2; i++) {
+			Thread producer = new Thread() {
+				@Override
+				public void run() {
+					try {
+						if (queue.offer("3", 5, TimeUnit.SECONDS)) {
+							offered.incrementAndGet();
+						}
+					} catch (InterruptedException e) {
+						// fails below
+					}
+				}
+			};
+			producers.add(producer);
+			producer.start();
+		}
+		Thread.sleep(50);
+
+		queue.poll();
+		Thread.sleep(100);
+		assertEquals(1, offered.get());
+
+		queue.poll();
+		for (Thread producer : producers) {
+			producer.join(1000);
+		}
+		assertEquals(2, offered.get());
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void iteratorRemoveFreesSpace() {
+		queue.offer("1");
+		queue.offer("2");
+
+		Iterator<String> it = queue.iterator();
+		assertEquals("1", it.next());
+		it.remove();
+
+		assertEquals(1, queue.size());
+		assertTrue(queue.offer("3"));
+		assertEquals(Arrays.asList("2", "3"), new ArrayList<String>(queue));
+	}
+
+	@Test
+	public void nothingIsLostUnderContention() throws InterruptedException {
+		final BoundedConcurrentQueue<Integer> shared = new BoundedConcurrentQueue<Integer>(16);
+		final int producers = 8;
+		final int perProducer = 10000;
+		final AtomicInteger sum = new AtomicInteger();
+
+		Thread consumer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 0; i < producers * perProducer; i++) {
+						sum.addAndGet(shared.take());
+					}
+				} catch (InterruptedException e) {
+					// fails below
+				}
+			}
+		};
+		consumer.start();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producers; p++) {
+			Thread producer = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < perProducer; i++) {
+							shared.put(1);
+						}
+					} catch (InterruptedException e) {
+						// fails below
+					}
+				}
+			};
+			threads.add(producer);
+			producer.start();
+		}
+		for (Thread producer : threads) {
+			producer.join(10000);
+		}
+		consumer.join(10000);
+
+		assertEquals(producers * perProducer, sum.get());
+		assertEquals(0, shared.size());
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.Test;
+
+import ee.ignite.logtojira.CircuitBreaker.State;
+
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void opensAfterConsecutiveFailures() {
+		CircuitBreaker breaker = new CircuitBreaker(2, 60000);
+
+		breaker.recordFailure();
+		breaker.recordSuccess();
+		breaker.recordFailure();
+		assertTrue(breaker.allowRequest());
+
+		breaker.recordFailure();
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+	}
+
+	@Test
+	public void letsOneTrialThroughAfterTimeout() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker(1, 20);
+		breaker.recordFailure();
+
+		Thread.sleep(30);
+		assertTrue(breaker.allowRequest());
+		assertFalse(breaker.allowRequest());
+		assertEquals(State.HALF_OPEN, breaker.getState());
+
+		breaker.recordSuccess();
+		assertEquals(State.CLOSED, breaker.getState());
+		assertTrue(breaker.allowRequest());
+	}
+
+	@Test
+	public void failedTrialOpensAgain() throws InterruptedException {
+		CircuitBreaker breaker = new CircuitBreaker(3, 20);
+		for (int i = 0; i < 3; i++) {
+			breaker.recordFailure();
+		}
+
+		Thread.sleep(30);
+		assertTrue(breaker.allowRequest());
+		breaker.recordFailure();
+
+		assertEquals(State.OPEN, breaker.getState());
+		assertFalse(breaker.allowRequest());
+	}
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class CoalescerTest {
+
+	private List<Occurrences> flushed;
+	private Coalescer coalescer;
+
+	@Before
+	public void init() {
+		flushed = Collections.synchronizedList(new ArrayList<Occurrences>());
+		coalescer = new Coalescer(50, 2, new Coalescer.Handler() {
+			@Override
+			public void flush(String identity, Occurrences occurrences) {
+				flushed.add(occurrences);
+			}
+		});
+	}
+
+	@Test
+	public void sameIdentityIsFlushedOncePerWindow() throws InterruptedException {
+		Event first = createTestEvent("a", 1000);
+		coalescer.add("a", first);
+		coalescer.add("a", createTestEvent("a", 3000));
+		coalescer.add("a", createTestEvent("a", 2000));
+		coalescer.add("b", createTestEvent("b", 1000));
+		Thread.sleep(200);
+
+		assertEquals(2, flushed.size());
+		Occurrences a = flushed.get(0).getFirst() == first ? flushed.get(0) : flushed.get(1);
+		assertEquals(3, a.getCount());
+		assertTrue(a.describe().startsWith("Occurred 3 times between "));
+		assertTrue(a.describe().contains("Threads: " + Thread.currentThread().getName()));
+		assertEquals(0, coalescer.getPendingCount());
+	}
+
+	@Test
+	public void closeFlushesOpenWindows() {
+		coalescer.add("a", createTestEvent("a", 1000));
+		coalescer.close();
+
+		assertEquals(1, flushed.size());
+		assertEquals(1, flushed.get(0).getCount());
+	}
+
+	@Test
+	public void openWindowsAreCapped() {
+		assertTrue(coalescer.add("a", createTestEvent("a", 1000)));
+		assertTrue(coalescer.add("b", createTestEvent("b", 1000)));
+		assertFalse(coalescer.add("c", createTestEvent("c", 1000)));
+		assertTrue(coalescer.add("a", createTestEvent("a", 2000)));
+
+		assertEquals(2, coalescer.getPendingCount());
+	}
+
+	private Event createTestEvent(String message, long timestamp) {
+		return new Event(CoalescerTest.class.getName(), "ERROR", timestamp, message,
+				Thread.currentThread().getName(), null, null, null, null);
+	}
+}
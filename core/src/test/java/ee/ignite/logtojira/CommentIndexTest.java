@@ -0,0 +1,76 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+
+public class CommentIndexTest {
+
+	private static final String KEY = "TST-1";
+
+	@Test
+	public void untrackedIssueIsUnknown() {
+		CommentIndex index = new CommentIndex(10);
+		assertNull(index.contains(KEY, Util.sha1("a")));
+	}
+
+	@Test
+	public void completeIssueAnswersLocally() {
+		CommentIndex index = new CommentIndex(10);
+		index.track(KEY, Arrays.asList(Util.sha1("a")));
+
+		assertEquals(Boolean.TRUE, index.contains(KEY, Util.sha1("a")));
+		assertEquals(Boolean.FALSE, index.contains(KEY, Util.sha1("b")));
+	}
+
+	@Test
+	public void incompleteIssueAsksForUnknownComments() {
+		CommentIndex index = new CommentIndex(10);
+		index.add(KEY, Util.sha1("a"));
+
+		assertEquals(Boolean.TRUE, index.contains(KEY, Util.sha1("a")));
+		assertNull(index.contains(KEY, Util.sha1("b")));
+	}
+
+	@Test
+	public void evictedExactDigestFallsBackToBloomFilter() {
+		CommentIndex index = new CommentIndex(10);
+		index.track(KEY, Collections.<String>emptyList());
+		for (int i = 0; i < 100; i++) {
+			index.add(KEY, Util.sha1(String.valueOf(i)));
+		}
+
+		assertNull(index.contains(KEY, Util.sha1("0")));
+		assertEquals(Boolean.TRUE, index.contains(KEY, Util.sha1("99")));
+	}
+
+	@Test
+	public void leastRecentlyUsedIssueIsEvicted() {
+		CommentIndex index = new CommentIndex(1);
+		index.track(KEY, Collections.<String>emptyList());
+		index.track("TST-2", Collections.<String>emptyList());
+
+		assertNull(index.contains(KEY, Util.sha1("a")));
+		assertEquals(Boolean.FALSE, index.contains("TST-2", Util.sha1("a")));
+	}
+}
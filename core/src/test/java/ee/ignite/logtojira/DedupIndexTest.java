@@ -0,0 +1,99 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class DedupIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void entriesSurviveReopen() throws IOException {
+		File file = new File(folder.getRoot(), "dedup.idx");
+		DedupIndex index = new DedupIndex(file, 64);
+		index.put(Util.sha1("a"), "TST-1");
+		index.addComment("TST-1", Util.sha1("comment"));
+		index.close();
+
+		index = new DedupIndex(file, 64);
+
+		assertEquals(1, index.size());
+		assertEquals("TST-1", index.get(Util.sha1("a")).getIssueKey());
+		assertTrue(index.containsComment("TST-1", Util.sha1("comment")));
+		assertFalse(index.containsComment("TST-1", Util.sha1("other")));
+		assertNull(index.get(Util.sha1("b")));
+	}
+
+	@Test
+	public void onlyLatestCommentsAreKept() throws IOException {
+		DedupIndex index = new DedupIndex(new File(folder.getRoot(), "dedup.idx"), 64);
+		index.put(Util.sha1("a"), "TST-1");
+
+		for (int i = 0; i < 9; i++) {
+			index.addComment("TST-1", Util.sha1("comment" + i));
+		}
+
+		assertFalse(index.containsComment("TST-1", Util.sha1("comment0")));
+		assertTrue(index.containsComment("TST-1", Util.sha1("comment8")));
+	}
+
+	@Test
+	public void forgottenIssueIsNotFound() throws IOException {
+		DedupIndex index = new DedupIndex(new File(folder.getRoot(), "dedup.idx"), 64);
+		index.put(Util.sha1("a"), "TST-1");
+
+		assertTrue(index.forget("TST-1"));
+		assertFalse(index.forget("TST-1"));
+		assertNull(index.get(Util.sha1("a")));
+		assertFalse(index.containsComment("TST-1", Util.sha1("comment")));
+	}
+
+	@Test
+	public void fullIndexReusesSlots() throws IOException {
+		DedupIndex index = new DedupIndex(new File(folder.getRoot(), "dedup.idx"), 4);
+
+		for (int i = 0; i < 20; i++) {
+			index.put(Util.sha1("fp" + i), "TST-" + i);
+		}
+
+		assertEquals(4, index.size());
+		assertEquals("TST-19", index.get(Util.sha1("fp19")).getIssueKey());
+	}
+
+	@Test
+	public void fileOfOtherSizeIsCleared() throws IOException {
+		File file = new File(folder.getRoot(), "dedup.idx");
+		new DedupIndex(file, 64).put(Util.sha1("a"), "TST-1");
+
+		DedupIndex index = new DedupIndex(file, 128);
+
+		assertEquals(0, index.size());
+		assertNull(index.get(Util.sha1("a")));
+	}
+}
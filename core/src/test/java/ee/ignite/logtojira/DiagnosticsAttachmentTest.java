@@ -0,0 +1,80 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+
+public class DiagnosticsAttachmentTest {
+
+	private final EnvironmentRenderer environmentRenderer = new EnvironmentRenderer("java.version", null);
+
+	@Test
+	public void fullStackTraceAndEnvironment() throws IOException {
+		Throwable e = new IllegalStateException("boom");
+		StackTraceElement[] trace = new StackTraceElement[200];
+		for (int i = 0; i < trace.length; i++) {
+			trace[i] = new StackTraceElement("a.B", "m" + i, "B.java", i);
+		}
+		e.setStackTrace(trace);
+
+		String text = write(new DiagnosticsAttachment(createTestEvent(e), environmentRenderer));
+
+		assertTrue(text.startsWith("tstmsg\nERROR " + DiagnosticsAttachmentTest.class.getName() + " in "));
+		assertTrue(text.contains("java.lang.IllegalStateException: boom"));
+		assertTrue(text.contains("\tat a.B.m199(B.java:199)"));
+		assertTrue(text.contains("java.version=" + System.getProperty("java.version")));
+	}
+
+	@Test
+	public void renderedLinesOfSpooledEvent() throws IOException {
+		Event spooled = SpoolReplayer.deserialize(SpoolReplayer.serialize(
+				createTestEvent(new IllegalStateException("boom"))));
+
+		String text = write(new DiagnosticsAttachment(spooled, environmentRenderer));
+
+		assertTrue(text.contains("java.lang.IllegalStateException: boom\n\tat "));
+	}
+
+	private String write(Attachment attachment) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		attachment.writeTo(out);
+		assertEquals("diagnostics.txt.gz", attachment.getFileName());
+
+		InputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()));
+		ByteArrayOutputStream text = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			text.write(buffer, 0, read);
+		}
+		return text.toString("UTF-8").replace(System.getProperty("line.separator"), "\n");
+	}
+
+	private Event createTestEvent(Throwable exception) {
+		return new Event(DiagnosticsAttachmentTest.class.getName(), "ERROR", System.currentTimeMillis(), "tstmsg",
+				Thread.currentThread().getName(), null, null, exception, null);
+	}
+}
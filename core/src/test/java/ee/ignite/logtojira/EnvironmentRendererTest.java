@@ -0,0 +1,61 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+public class EnvironmentRendererTest {
+
+	private static final String PROPERTY = "logtojira.test.property";
+
+	@After
+	public void clear() {
+		System.clearProperty(PROPERTY);
+	}
+
+	@Test
+	public void renderedOnceWhilePropertiesDoNotChange() {
+		EnvironmentRenderer renderer = new EnvironmentRenderer(null, null);
+		assertSame(renderer.render(), renderer.render());
+	}
+
+	@Test
+	public void renderedAgainWhenPropertiesChange() {
+		EnvironmentRenderer renderer = new EnvironmentRenderer(null, null);
+		assertFalse(renderer.render().contains(PROPERTY));
+
+		System.setProperty(PROPERTY, "value");
+		assertTrue(renderer.render().contains(PROPERTY + "=value; "));
+	}
+
+	@Test
+	public void includesAndExcludes() {
+		System.setProperty(PROPERTY, "value");
+		EnvironmentRenderer renderer = new EnvironmentRenderer("java.*, logtojira.*", "java.class.path,*.property");
+		String result = renderer.render();
+
+		assertTrue(result.contains("java.version="));
+		assertFalse(result.contains("java.class.path="));
+		assertFalse(result.contains(PROPERTY));
+		assertFalse(result.contains("user.dir="));
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+
+public class EventSnapshotTest {
+
+	private static final String LOGGER = EventSnapshotTest.class.getName();
+
+	@Test
+	public void snapshotKeepsEventState() {
+		Event event = new Event(LOGGER, "ERROR", 1234L, "message", "worker-1", "request",
+				Collections.singletonMap("user", "admin"), failure(), null);
+
+		EventSnapshot snapshot = EventSnapshot.capture(event, new FrameDictionary(1024));
+
+		assertEquals("ERROR", snapshot.getLevel());
+		assertEquals(1234L, snapshot.getTimeStamp());
+		assertEquals("message", snapshot.getMessage());
+		assertEquals(LOGGER, snapshot.getLoggerName());
+		assertEquals("worker-1", snapshot.getThreadName());
+		assertEquals("admin", snapshot.getMdc().get("user"));
+		assertEquals("request", snapshot.getNdc());
+		assertNull(snapshot.getThrowable());
+		assertEquals(Arrays.asList(event.getThrowableLines()), Arrays.asList(snapshot.getThrowableLines()));
+		assertSame(snapshot, EventSnapshot.capture(snapshot, new FrameDictionary(1024)));
+	}
+
+	@Test
+	public void repeatedTracesShareFrames() {
+		FrameDictionary dictionary = new FrameDictionary(1024);
+		int[] sizes = new int[2];
+		Event event = null;
+		EventSnapshot snapshot = null;
+
+		for (int i = 0; i < sizes.length; i++) {
+			event = event(failure());
+			snapshot = EventSnapshot.capture(event, dictionary);
+			sizes[i] = dictionary.size();
+		}
+
+		assertEquals(sizes[0], sizes[1]);
+		assertEquals(Arrays.asList(event.getThrowableLines()), Arrays.asList(snapshot.getThrowableLines()));
+	}
+
+	@Test
+	public void linesBeyondCapacityStayWithEvent() {
+		FrameDictionary dictionary = new FrameDictionary(3);
+		Event event = event(failure());
+
+		EventSnapshot snapshot = EventSnapshot.capture(event, dictionary);
+
+		assertEquals(3, dictionary.size());
+		assertEquals(Arrays.asList(event.getThrowableLines()), Arrays.asList(snapshot.getThrowableLines()));
+	}
+
+	@Test
+	public void renderedLinesAreInterned() {
+		String[] lines = { "java.lang.IllegalStateException: boom", "\tat a.B.c(B.java:1)", "\t... 3 more" };
+		FrameDictionary dictionary = new FrameDictionary(1024);
+
+		EventSnapshot snapshot = EventSnapshot.capture(
+				new Event(LOGGER, "ERROR", 0, "message", "main", null, null, null, lines), dictionary);
+
+		assertEquals(2, dictionary.size());
+		assertEquals(Arrays.asList(lines), Arrays.asList(snapshot.getThrowableLines()));
+	}
+
+	@Test
+	public void linesAreRenderedOnce() {
+		EventSnapshot snapshot = EventSnapshot.capture(event(failure()), new FrameDictionary(1024));
+
+		assertSame(snapshot.getThrowableLines(), snapshot.getThrowableLines());
+	}
+
+	@Test
+	public void linesOfReflectiveCallAreRenderedLikeThrowable() throws Exception {
+		Throwable failure;
+		try {
+			EventSnapshotTest.class.getDeclaredMethod("fail").invoke(null);
+			throw new AssertionError();
+		} catch (InvocationTargetException e) {
+			failure = e;
+		}
+		Event event = event(failure);
+		StackTraceRenderer renderer = new StackTraceRenderer(0, 0);
+
+		EventSnapshot snapshot = EventSnapshot.capture(event, new FrameDictionary(1024));
+
+		assertEquals(renderer.render(event), renderer.render(snapshot));
+	}
+
+	@Test
+	public void serializedAsPlainEvent() throws Exception {
+		EventSnapshot snapshot = EventSnapshot.capture(event(failure()), new FrameDictionary(1024));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(snapshot);
+		out.close();
+		Event restored = (Event) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertEquals(Event.class, restored.getClass());
+		assertEquals("message", restored.getMessage());
+		assertEquals(Arrays.asList(snapshot.getThrowableLines()), Arrays.asList(restored.getThrowableLines()));
+	}
+
+	private static Event event(Throwable throwable) {
+		return new Event(LOGGER, "ERROR", 0, "message", "main", null, null, throwable, null);
+	}
+
+	static void fail() {
+		throw new IllegalStateException("failed");
+	}
+
+	private static Throwable failure() {
+		return new IllegalStateException("failed", new IllegalArgumentException("bad"));
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class FileClaimCoordinatorTest {
+
+	private static final String FINGERPRINT = Util.sha1("fp");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void laterClaimGetsCreatedIssue() throws IOException {
+		ClaimCoordinator coordinator = new FileClaimCoordinator(folder.getRoot(), 1000, 60000);
+
+		assertNull(coordinator.claim(FINGERPRINT));
+		coordinator.release(FINGERPRINT, "TST-1");
+
+		assertEquals("TST-1", coordinator.claim(FINGERPRINT));
+	}
+
+	@Test
+	public void failedCreationLeavesFingerprintFree() throws IOException {
+		ClaimCoordinator coordinator = new FileClaimCoordinator(folder.getRoot(), 1000, 60000);
+
+		assertNull(coordinator.claim(FINGERPRINT));
+		coordinator.release(FINGERPRINT, null);
+
+		assertNull(coordinator.claim(FINGERPRINT));
+	}
+
+	@Test
+	public void expiredIssueKeyIsNotUsed() throws IOException {
+		ClaimCoordinator coordinator = new FileClaimCoordinator(folder.getRoot(), 1000, 0);
+
+		assertNull(coordinator.claim(FINGERPRINT));
+		coordinator.release(FINGERPRINT, "TST-1");
+
+		assertNull(coordinator.claim(FINGERPRINT));
+	}
+
+	@Test
+	public void staleClaimFilesAreDeleted() throws IOException {
+		ClaimCoordinator coordinator = new FileClaimCoordinator(folder.getRoot(), 1000, 1000);
+		File stale = new File(folder.getRoot(), FINGERPRINT + ".claim");
+		String other = Util.sha1("other");
+
+		assertNull(coordinator.claim(FINGERPRINT));
+		coordinator.release(FINGERPRINT, "TST-1");
+		assertTrue(stale.setLastModified(System.currentTimeMillis() - 2000));
+
+		// the first claim has swept already, the next sweep is due after the ttl
+		coordinator = new FileClaimCoordinator(folder.getRoot(), 1000, 1000);
+		assertNull(coordinator.claim(other));
+		coordinator.release(other, "TST-2");
+
+		assertFalse(stale.exists());
+		assertTrue(new File(folder.getRoot(), other + ".claim").exists());
+	}
+
+	@Test
+	public void claimGivesUpAfterTimeout() throws Exception {
+		final ClaimCoordinator coordinator = new FileClaimCoordinator(folder.getRoot(), 50, 60000);
+		final CountDownLatch claimed = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		Thread holder = new Thread() {
+			@Override
+			public void run() {
+				try {
+					coordinator.claim(FINGERPRINT);
+					claimed.countDown();
+					release.await();
+					coordinator.release(FINGERPRINT, "TST-1");
+				} catch (Exception e) {
+					// the test fails on the latch
+				}
+			}
+		};
+		holder.start();
+		assertTrue(claimed.await(1, TimeUnit.SECONDS));
+
+		try {
+			coordinator.claim(FINGERPRINT);
+			fail();
+		} catch (IOException e) {
+			// expected
+		} finally {
+			release.countDown();
+			holder.join();
+		}
+
+		assertEquals("TST-1", coordinator.claim(FINGERPRINT));
+	}
+
+	@Test
+	public void oneOfManyProcessesCreatesIssue() throws Exception {
+		List<Process> processes = new ArrayList<Process>();
+
+		for (int i = 0; i < 4; i++) {
+			processes.add(new ProcessBuilder(
+					new File(System.getProperty("java.home"), "bin/java").getPath(),
+					"-cp", System.getProperty("java.class.path"),
+					Claimer.class.getName(), folder.getRoot().getPath(), "TST-" + i)
+					.redirectErrorStream(true).start());
+		}
+
+		int created = 0;
+		Set<String> keys = new HashSet<String>();
+
+		for (Process process : processes) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line = reader.readLine();
+			// skip what the JVM itself may print, e.g. about picked up options
+			while (!line.startsWith("created ") && !line.startsWith("attached ")) {
+				line = reader.readLine();
+			}
+			assertEquals(0, process.waitFor());
+			if (line.startsWith("created ")) {
+				created++;
+			}
+			keys.add(line.substring(line.indexOf(' ') + 1));
+		}
+
+		assertEquals(1, created);
+		assertEquals(1, keys.size());
+	}
+
+	/**
+	 * Plays one node: claims the fingerprint and either "creates" an issue
+	 * with the given key or reports the key created by another node.
+	 */
+	public static class Claimer {
+
+		public static void main(String[] args) throws Exception {
+			ClaimCoordinator coordinator = new FileClaimCoordinator(new File(args[0]), 10000, 60000);
+			String issueKey = coordinator.claim(FINGERPRINT);
+
+			if (issueKey == null) {
+				Thread.sleep(200);
+				coordinator.release(FINGERPRINT, args[1]);
+				System.out.println("created " + args[1]);
+			} else {
+				System.out.println("attached " + issueKey);
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import org.junit.Test;
+
+
+public class IssueKeyCacheTest {
+
+	@Test
+	public void leastRecentlyUsedIsEvicted() {
+		IssueKeyCache cache = new IssueKeyCache(2, 60000);
+		cache.put("a", "TST-1");
+		cache.put("b", "TST-2");
+		cache.get("a");
+		cache.put("c", "TST-3");
+
+		assertEquals("TST-1", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("TST-3", cache.get("c"));
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void expiredEntryIsMissed() throws InterruptedException {
+		IssueKeyCache cache = new IssueKeyCache(2, 1);
+		cache.put("a", "TST-1");
+		Thread.sleep(10);
+
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void invalidateRemovesAllFingerprintsOfIssue() {
+		IssueKeyCache cache = new IssueKeyCache(10, 60000);
+		cache.put("a", "TST-1");
+		cache.put("b", "TST-1");
+		cache.put("c", "TST-2");
+		cache.invalidate("TST-1");
+
+		assertNull(cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("TST-2", cache.get("c"));
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+public class KeepAliveHTTPSenderTest {
+
+	private static final String LOGOUT_RESPONSE =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+		"<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\"" +
+		" xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\"" +
+		" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">" +
+		"<soapenv:Body>" +
+		"<ns1:logoutResponse soapenv:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"" +
+		" xmlns:ns1=\"https://ignite.jira.com/rpc/soap/jirasoapservice-v2\">" +
+		"<logoutReturn xsi:type=\"xsd:boolean\">true</logoutReturn>" +
+		"</ns1:logoutResponse>" +
+		"</soapenv:Body>" +
+		"</soapenv:Envelope>";
+
+	private HttpServer server;
+	private List<String> requests;
+	private List<Integer> clientPorts;
+
+	@Before
+	public void startServer() throws IOException {
+		requests = Collections.synchronizedList(new ArrayList<String>());
+		clientPorts = Collections.synchronizedList(new ArrayList<Integer>());
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				clientPorts.add(exchange.getRemoteAddress().getPort());
+				InputStream in = exchange.getRequestBody();
+				if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+					in = new GZIPInputStream(in);
+				}
+				requests.add(new String(read(in), "UTF-8"));
+
+				ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+				GZIPOutputStream gzip = new GZIPOutputStream(gzipped);
+				gzip.write(LOGOUT_RESPONSE.getBytes("UTF-8"));
+				gzip.close();
+
+				exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, gzipped.size());
+				OutputStream out = exchange.getResponseBody();
+				gzipped.writeTo(out);
+				out.close();
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void callsShareCompressedKeepAliveConnection() throws Exception {
+		LogToJira logToJira = new LogToJira();
+		logToJira.setUrl("http://localhost:" + server.getAddress().getPort() + "/rpc/soap/jirasoapservice-v2");
+		logToJira.setKeepAlive(true);
+		logToJira.setCompressRequests(true);
+		logToJira.setCompressResponses(true);
+
+		assertTrue(logToJira.getTransport().logout("token1"));
+		assertTrue(logToJira.getTransport().logout("token2"));
+
+		assertEquals(2, requests.size());
+		assertTrue(requests.get(0).contains("logout"));
+		assertTrue(requests.get(1).contains("token2"));
+		assertEquals(1, new HashSet<Integer>(clientPorts).size());
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
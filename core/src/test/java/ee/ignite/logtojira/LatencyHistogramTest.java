@@ -0,0 +1,83 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void buckets() {
+		assertEquals(0, LatencyHistogram.bucket(0));
+		assertEquals(1, LatencyHistogram.bucket(1));
+		assertEquals(2, LatencyHistogram.bucket(2));
+		assertEquals(2, LatencyHistogram.bucket(3));
+		assertEquals(11, LatencyHistogram.bucket(1024));
+		assertEquals(39, LatencyHistogram.bucket(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void percentilesAreBucketBounds() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 90; i++) {
+			histogram.record(100 * 1000);
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(5000 * 1000);
+		}
+
+		LatencySnapshot snapshot = histogram.snapshot();
+
+		assertEquals(100, snapshot.getCount());
+		assertEquals(590, snapshot.getMeanMicros());
+		assertEquals(127, snapshot.getP50Micros());
+		assertEquals(127, snapshot.getP90Micros());
+		assertEquals(5000, snapshot.getP99Micros());
+		assertEquals(5000, snapshot.getMaxMicros());
+	}
+
+	@Test
+	public void concurrentRecording() throws InterruptedException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int t = 0; t < 4; t++) {
+			final int offset = t;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						histogram.record((i + offset) * 1000L);
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(40000, histogram.snapshot().getCount());
+		assertEquals(10002, histogram.snapshot().getMaxMicros());
+	}
+}
@@ -0,0 +1,567 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.easymock.IArgumentMatcher;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ee.ignite.logtojira.AppenderService;
+import ee.ignite.logtojira.JiraTransport;
+import ee.ignite.logtojira.LogToJira;
+import ee.ignite.logtojira.plugin.EventPlugin;
+import ee.ignite.logtojira.soap.RemoteAuthenticationException;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+
+public class LogToJiraTest {
+
+	private static final String TOKEN = "sdfagsdf";
+	private static final String OTHER_TOKEN = "gfdsagfd";
+	private static final String USERNAME = "theUser";
+	private static final String PASS = "thePass";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LogToJira logToJira;
+	private AppenderService appenderService;
+	private JiraTransport jiraService;
+	private EventPlugin plugin1;
+	private EventPlugin plugin2;
+
+	@Before
+	public void init() {
+
+		plugin1 = new EventPlugin() {
+			@Override
+			public String getText(Event event) {
+				return "1";
+			}
+		};
+
+		plugin2 = new EventPlugin() {
+			@Override
+			public String getText(Event event) {
+				return "1";
+			}
+		};
+
+		appenderService = createMock(AppenderService.class);
+		jiraService = createMock(JiraTransport.class);
+
+		logToJira = new LogToJira() {
+
+			@Override
+			protected AppenderService getService() {
+				return appenderService;
+			}
+
+			@Override
+			protected JiraTransport getTransport() {
+				return jiraService;
+			}
+
+		};
+
+		logToJira.setUsername(USERNAME);
+		logToJira.setPassword(PASS);
+		logToJira.setPlugins(Arrays.asList(plugin1, plugin2));
+	}
+
+	@Test
+	public void abortIfNotEnabled() {
+		logToJira.setEnabled(false);
+		replay(jiraService, appenderService);
+		logToJira.append(null);
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void append() throws RemoteAuthenticationException, RemoteException, RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteComment comment1 = new RemoteComment();
+		RemoteComment comment2 = new RemoteComment();
+
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(null);
+		expect(jiraService.createIssue(TOKEN, issue)).andReturn(issue);
+		appenderService.issueCreated(issue, issue, TOKEN);
+		expect(appenderService.createComment(plugin1, event)).andReturn(comment1);
+		expect(appenderService.duplicateExists(comment1, issue, TOKEN)).andReturn(false);
+		jiraService.addComment(TOKEN, issue.getKey(), comment1);
+		appenderService.commentAdded(comment1, issue);
+		expect(appenderService.createComment(plugin2, event)).andReturn(comment2);
+		expect(appenderService.duplicateExists(comment1, issue, TOKEN)).andReturn(true);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService);
+		assertEquals(1, logToJira.getMetrics().getEventsReceived());
+		assertEquals(1, logToJira.getMetrics().getIssuesCreated());
+		assertEquals(1, logToJira.getMetrics().getCommentsAdded());
+		assertEquals(2, logToJira.getMetrics().getPluginRenderTimes().size());
+	}
+
+	@Test
+	public void compactIssueGetsDiagnosticsAttached() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		issue.setKey("TST-1");
+		Attachment diagnostics = createMock(Attachment.class);
+		logToJira.setCompactDescription(true);
+		logToJira.setPlugins(Collections.<EventPlugin>emptyList());
+
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(null);
+		expect(jiraService.createIssue(TOKEN, issue)).andReturn(issue);
+		appenderService.issueCreated(issue, issue, TOKEN);
+		expect(appenderService.createDiagnostics(event)).andReturn(diagnostics);
+		jiraService.addAttachment(TOKEN, "TST-1", diagnostics);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService);
+		assertEquals(1, logToJira.getMetrics().getIssuesCreated());
+	}
+
+	@Test
+	public void appendDuplicate() throws RemoteAuthenticationException, ee.ignite.logtojira.soap.RemoteException, RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+		RemoteComment comment = new RemoteComment();
+
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate);
+		expect(appenderService.createComment(plugin1, event)).andReturn(comment);
+		expect(appenderService.duplicateExists(comment, duplicate, TOKEN)).andReturn(false);
+		jiraService.addComment(TOKEN, duplicate.getKey(), comment);
+		appenderService.commentAdded(comment, duplicate);
+		expect(appenderService.createComment(plugin2, event)).andReturn(comment);
+		expect(appenderService.duplicateExists(comment, duplicate, TOKEN)).andReturn(false);
+		jiraService.addComment(TOKEN, duplicate.getKey(), comment);
+		appenderService.commentAdded(comment, duplicate);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void combinedComment() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+		EventPlugin plugin3 = createMock(EventPlugin.class);
+		RemoteComment comment1 = new RemoteComment();
+		comment1.setBody("1");
+		RemoteComment comment2 = new RemoteComment();
+		comment2.setBody("2");
+		RemoteComment comment3 = new RemoteComment();
+		comment3.setBody("3");
+		RemoteComment combined = new RemoteComment();
+		combined.setBody("1\n----\n3");
+
+		logToJira.setPlugins(Arrays.asList(plugin1, plugin2, plugin3));
+		logToJira.setCombineComments(true);
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate);
+		expect(appenderService.createComment(plugin1, event)).andReturn(comment1);
+		expect(appenderService.duplicateExists(comment1, duplicate, TOKEN)).andReturn(false);
+		expect(appenderService.createComment(plugin2, event)).andReturn(comment2);
+		expect(appenderService.duplicateExists(comment2, duplicate, TOKEN)).andReturn(true);
+		expect(appenderService.createComment(plugin3, event)).andReturn(comment3);
+		expect(appenderService.duplicateExists(comment3, duplicate, TOKEN)).andReturn(false);
+		jiraService.addComment(TOKEN, duplicate.getKey(), combined);
+		appenderService.commentAdded(comment1, duplicate);
+		appenderService.commentAdded(comment3, duplicate);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void sessionIsReused() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+
+		logToJira.setPlugins(new ArrayList<EventPlugin>());
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue).times(2);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate).times(2);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+		logToJira.append(event);
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void expiredSessionIsRenewed() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+
+		logToJira.setPlugins(new ArrayList<EventPlugin>());
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN))
+				.andThrow(new RemoteAuthenticationException());
+		expect(jiraService.login(USERNAME, PASS)).andReturn(OTHER_TOKEN);
+		expect(appenderService.getLatestDuplicate(issue, OTHER_TOKEN)).andReturn(duplicate);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void logoutOnClose() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+
+		logToJira.setPlugins(new ArrayList<EventPlugin>());
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate);
+		expect(jiraService.logout(TOKEN)).andReturn(true);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+		logToJira.close();
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void staleCachedIssueIsLookedUpAgain() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue stale = new RemoteIssue();
+		stale.setKey("TST-1");
+		RemoteIssue duplicate = new RemoteIssue();
+		duplicate.setKey("TST-2");
+		RemoteComment comment = new RemoteComment();
+
+		logToJira.setPlugins(Arrays.asList(plugin1));
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(stale);
+		expect(appenderService.createComment(plugin1, event)).andReturn(comment).times(2);
+		expect(appenderService.duplicateExists(comment, stale, TOKEN)).andReturn(false);
+		jiraService.addComment(TOKEN, stale.getKey(), comment);
+		expectLastCall().andThrow(new ee.ignite.logtojira.soap.RemoteException());
+		expect(appenderService.forgetIssue(stale)).andReturn(true);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate);
+		expect(appenderService.duplicateExists(comment, duplicate, TOKEN)).andReturn(false);
+		jiraService.addComment(TOKEN, duplicate.getKey(), comment);
+		appenderService.commentAdded(comment, duplicate);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void issueCreatedByClaimHolderIsCommented() throws RemoteException, IOException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteComment comment = new RemoteComment();
+		ClaimCoordinator claimCoordinator = createMock(ClaimCoordinator.class);
+
+		logToJira.setPlugins(Arrays.asList(plugin1));
+		logToJira.setClaimCoordinator(claimCoordinator);
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(null);
+		expect(appenderService.fingerprint(issue)).andReturn("fp");
+		expect(claimCoordinator.claim("fp")).andReturn("TST-9");
+		expect(appenderService.createComment(plugin1, event)).andReturn(comment);
+		expect(appenderService.duplicateExists(eq(comment), isA(RemoteIssue.class), eq(TOKEN))).andReturn(false);
+		jiraService.addComment(TOKEN, "TST-9", comment);
+		appenderService.commentAdded(eq(comment), isA(RemoteIssue.class));
+		replay(jiraService, appenderService, claimCoordinator);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService, claimCoordinator);
+	}
+
+	@Test
+	public void claimIsReleasedWithCreatedIssue() throws RemoteException, IOException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue created = new RemoteIssue();
+		created.setKey("TST-1");
+		ClaimCoordinator claimCoordinator = createMock(ClaimCoordinator.class);
+
+		logToJira.setPlugins(new ArrayList<EventPlugin>());
+		logToJira.setClaimCoordinator(claimCoordinator);
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(null);
+		expect(appenderService.fingerprint(issue)).andReturn("fp");
+		expect(claimCoordinator.claim("fp")).andReturn(null);
+		expect(jiraService.createIssue(TOKEN, issue)).andReturn(created);
+		appenderService.issueCreated(issue, created, TOKEN);
+		claimCoordinator.release("fp", "TST-1");
+		replay(jiraService, appenderService, claimCoordinator);
+
+		logToJira.append(event);
+
+		verify(jiraService, appenderService, claimCoordinator);
+	}
+
+	@Test
+	public void coalescedEventsAreSentOnce() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+		duplicate.setKey("TST-1");
+
+		logToJira.setPlugins(new ArrayList<EventPlugin>());
+		logToJira.setCoalesceWindow(60000);
+		logToJira.start();
+		expect(appenderService.createIssue(event)).andReturn(issue).times(3);
+		expect(appenderService.fingerprint(issue)).andReturn("fp").times(2);
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate);
+		jiraService.addComment(eq(TOKEN), eq(duplicate.getKey()), isA(RemoteComment.class));
+		expect(jiraService.logout(TOKEN)).andReturn(true);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+		logToJira.append(event);
+		logToJira.close();
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void coalescedWindowIsOneComment() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+		duplicate.setKey("TST-1");
+		RemoteComment comment = new RemoteComment();
+		comment.setBody("1");
+
+		logToJira.setPlugins(Arrays.asList(plugin1));
+		logToJira.setCoalesceWindow(60000);
+		logToJira.start();
+		expect(appenderService.createIssue(event)).andReturn(issue).times(3);
+		expect(appenderService.fingerprint(issue)).andReturn("fp").times(2);
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate);
+		expect(appenderService.createComment(plugin1, event)).andReturn(comment);
+		expect(appenderService.duplicateExists(comment, duplicate, TOKEN)).andReturn(false);
+		jiraService.addComment(eq(TOKEN), eq(duplicate.getKey()), commentStartingWith("1\n----\nOccurred 2 times"));
+		appenderService.commentAdded(comment, duplicate);
+		expect(jiraService.logout(TOKEN)).andReturn(true);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+		logToJira.append(event);
+		logToJira.close();
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void suppressedEventIsSentOnClose() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+
+		logToJira.setPlugins(new ArrayList<EventPlugin>());
+		logToJira.setIdentityRateLimit(1);
+		logToJira.start();
+		// once for each event sent, the suppressed one is not rendered until it is flushed
+		expect(appenderService.createIssue(event)).andReturn(issue).times(2);
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate).times(2);
+		expect(jiraService.logout(TOKEN)).andReturn(true);
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+		logToJira.append(event);
+		logToJira.close();
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void failureOfAsyncWorkerIsReported() throws RemoteException {
+		final List<String> reported = new ArrayList<String>();
+		logToJira.setErrorReporter(new ErrorReporter() {
+			@Override
+			public void error(String message, Exception e) {
+				reported.add(message + ": " + e.getClass().getSimpleName());
+			}
+		});
+		logToJira.setAsync(true);
+		logToJira.start();
+		expect(jiraService.login(USERNAME, PASS)).andThrow(new NullPointerException());
+		replay(jiraService, appenderService);
+
+		logToJira.append(createTestEvent());
+		logToJira.close();
+
+		verify(jiraService, appenderService);
+		assertEquals(Arrays.asList("JIRA problem: NullPointerException"), reported);
+		assertEquals(Long.valueOf(1), logToJira.getMetrics().getErrors().get("NullPointerException"));
+	}
+
+	@Test
+	public void eventsAreSpooledWhileJiraIsUnreachable() throws IOException {
+		Event event = createTestEvent();
+
+		logToJira.setFailureThreshold(1);
+		logToJira.setSpoolDirectory(folder.getRoot().getPath());
+		logToJira.start();
+		expect(jiraService.login(USERNAME, PASS)).andThrow(new RemoteException("Connection refused"));
+		replay(jiraService, appenderService);
+
+		logToJira.append(event);
+		logToJira.append(event);
+		logToJira.close();
+
+		verify(jiraService, appenderService);
+		assertEquals(Long.valueOf(1), logToJira.getMetrics().getErrors().get("RemoteException"));
+		Spool spool = new Spool(folder.getRoot(), 1024 * 1024, 16);
+		assertEquals("tstmsg", SpoolReplayer.deserialize(spool.poll()).getMessage());
+		assertEquals("tstmsg", SpoolReplayer.deserialize(spool.poll()).getMessage());
+		assertNull(spool.poll());
+	}
+
+	@Test
+	public void eventsAreDeliveredAfterWarmUp() throws RemoteException {
+		Event event = createTestEvent();
+		RemoteIssue issue = new RemoteIssue();
+		RemoteIssue duplicate = new RemoteIssue();
+		duplicate.setKey("TST-1");
+
+		logToJira.setPlugins(new ArrayList<EventPlugin>());
+		logToJira.setWarmUp(true);
+		expect(jiraService.login(USERNAME, PASS)).andReturn(TOKEN);
+		expect(appenderService.createIssue(event)).andReturn(issue).times(2);
+		expect(appenderService.getLatestDuplicate(issue, TOKEN)).andReturn(duplicate).times(2);
+		expect(jiraService.logout(TOKEN)).andReturn(true);
+		replay(jiraService, appenderService);
+
+		logToJira.start();
+		logToJira.append(event);
+		logToJira.append(event);
+		logToJira.close();
+
+		verify(jiraService, appenderService);
+	}
+
+	@Test
+	public void paramsAreSetByName() {
+		final List<Object> params = new ArrayList<Object>();
+		LogToJira recording = new LogToJira() {
+
+			@Override
+			public void setProject(String project) {
+				params.add(project);
+			}
+
+			@Override
+			public void setQueueSize(int queueSize) {
+				params.add(queueSize);
+			}
+
+			@Override
+			public void setAsync(boolean async) {
+				params.add(async);
+			}
+		};
+
+		recording.setParam("project", "TST");
+		recording.setParam("queueSize", " 42");
+		recording.setParam("async", "true");
+
+		assertEquals(Arrays.<Object>asList("TST", 42, true), params);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownParamIsRejected() {
+		logToJira.setParam("noSuchParam", "x");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void badNumberIsRejected() {
+		logToJira.setParam("queueSize", "many");
+	}
+
+	private static RemoteComment commentStartingWith(final String prefix) {
+		EasyMock.reportMatcher(new IArgumentMatcher() {
+			@Override
+			public boolean matches(Object argument) {
+				return argument instanceof RemoteComment && ((RemoteComment) argument).getBody().startsWith(prefix);
+			}
+
+			@Override
+			public void appendTo(StringBuffer buffer) {
+				buffer.append("commentStartingWith(").append(prefix).append(")");
+			}
+		});
+		return null;
+	}
+
+	private Event createTestEvent() {
+		return new Event(LogToJiraTest.class.getName(), "ERROR", System.currentTimeMillis(), "tstmsg",
+				Thread.currentThread().getName(), null, null, null, null);
+	}
+}
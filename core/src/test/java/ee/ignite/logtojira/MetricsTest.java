@@ -0,0 +1,76 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+
+import ee.ignite.logtojira.soap.RemoteAuthenticationException;
+
+
+public class MetricsTest {
+
+	@Test
+	public void errorsAreCountedByType() {
+		Metrics metrics = new Metrics();
+
+		metrics.error(new RemoteAuthenticationException());
+		metrics.error(new RemoteAuthenticationException());
+		metrics.error(new java.rmi.RemoteException());
+
+		assertEquals(Long.valueOf(2), metrics.getErrors().get("RemoteAuthenticationException"));
+		assertEquals(Long.valueOf(1), metrics.getErrors().get("RemoteException"));
+	}
+
+	@Test
+	public void gaugesAreOptional() {
+		Metrics metrics = new Metrics();
+
+		assertEquals(0, metrics.getQueueSize());
+		assertNull(metrics.getCircuitState());
+		assertEquals(0.0, metrics.getIssueCacheHitRate());
+	}
+
+	@Test
+	public void readableOverJmx() throws Exception {
+		Metrics metrics = new Metrics();
+		metrics.eventReceived();
+		metrics.operation("login", 2000 * 1000);
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName name = new ObjectName("ee.ignite.logtojira:type=Test");
+
+		server.registerMBean(metrics, name);
+		try {
+			assertEquals(1L, server.getAttribute(name, "EventsReceived"));
+			TabularData latencies = (TabularData) server.getAttribute(name, "OperationLatencies");
+			CompositeData login = (CompositeData) latencies.get(new Object[] { "login" }).get("value");
+			assertEquals(1L, login.get("count"));
+			assertTrue((Long) login.get("maxMicros") >= 2000);
+		} finally {
+			server.unregisterMBean(name);
+		}
+	}
+}
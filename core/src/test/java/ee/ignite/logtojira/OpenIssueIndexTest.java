@@ -0,0 +1,129 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.matches;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.rmi.RemoteException;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+
+public class OpenIssueIndexTest {
+
+	private static final String TOKEN = "tokenValue";
+	private static final String OPEN = "project = TST AND status in (Open, \"In Progress\", Reopened)";
+	private static final String CLOSED = "project = TST AND status not in (Open, \"In Progress\", Reopened)";
+
+	private JiraTransport jiraService;
+	private OpenIssueIndex index;
+
+	@Before
+	public void init() {
+		jiraService = EasyMock.createMock(JiraTransport.class);
+		index = new OpenIssueIndex("TST", 2, jiraService, new AppenderServiceImpl(new Config(), jiraService));
+	}
+
+	@Test
+	public void loadPagesThroughOpenIssues() throws RemoteException {
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, OPEN + " ORDER BY key ASC", 2))
+				.andReturn(new RemoteIssue[] { issue("TST-1", "a"), issue("TST-2", "b") });
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, OPEN + " AND key > TST-2 ORDER BY key ASC", 2))
+				.andReturn(new RemoteIssue[] { issue("TST-3", "c") });
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, OPEN + " AND key > TST-3 ORDER BY key ASC", 2))
+				.andReturn(new RemoteIssue[0]);
+		replay(jiraService);
+
+		assertFalse(index.isLoaded());
+		index.sync(TOKEN);
+
+		verify(jiraService);
+		assertTrue(index.isLoaded());
+		assertEquals(3, index.size());
+		assertEquals("TST-3", index.get(issue(null, "c")));
+		assertNull(index.get(issue(null, "d")));
+	}
+
+	@Test
+	public void syncFollowsUpdatedIssues() throws RemoteException {
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, OPEN + " ORDER BY key ASC", 2))
+				.andReturn(new RemoteIssue[] { issue("TST-1", "a") });
+		expect(jiraService.getIssuesFromJqlSearch(TOKEN, OPEN + " AND key > TST-1 ORDER BY key ASC", 2))
+				.andReturn(new RemoteIssue[0]);
+		expect(jiraService.getIssuesFromJqlSearch(EasyMock.eq(TOKEN),
+				matches("\\Q" + OPEN + " AND updated >= -\\E3m ORDER BY key ASC"), EasyMock.eq(2)))
+				.andReturn(new RemoteIssue[] { issue("TST-2", "b") });
+		expect(jiraService.getIssuesFromJqlSearch(EasyMock.eq(TOKEN),
+				matches("\\Q" + OPEN + " AND updated >= -\\E3m AND key > TST-2 ORDER BY key ASC"), EasyMock.eq(2)))
+				.andReturn(new RemoteIssue[0]);
+		expect(jiraService.getIssuesFromJqlSearch(EasyMock.eq(TOKEN),
+				matches("\\Q" + CLOSED + " AND updated >= -\\E3m ORDER BY key ASC"), EasyMock.eq(2)))
+				.andReturn(new RemoteIssue[] { issue("TST-1", "a") });
+		expect(jiraService.getIssuesFromJqlSearch(EasyMock.eq(TOKEN),
+				matches("\\Q" + CLOSED + " AND updated >= -\\E3m AND key > TST-1 ORDER BY key ASC"), EasyMock.eq(2)))
+				.andReturn(new RemoteIssue[0]);
+		replay(jiraService);
+
+		index.sync(TOKEN);
+		index.sync(TOKEN);
+
+		verify(jiraService);
+		assertNull(index.get(issue(null, "a")));
+		assertEquals("TST-2", index.get(issue(null, "b")));
+	}
+
+	@Test
+	public void descriptionIsNormalized() {
+		RemoteIssue stored = issue("TST-1", "a");
+		stored.setDescription("line1\r\n\tat line2\r\n");
+		index.put(stored);
+
+		RemoteIssue created = issue(null, "a");
+		created.setDescription("line1\n\tat line2\n");
+		assertEquals("TST-1", index.get(created));
+	}
+
+	@Test
+	public void removedDuplicateIsReplaced() {
+		index.put(issue("TST-1", "a"));
+		index.put(issue("TST-2", "a"));
+		assertEquals("TST-1", index.get(issue(null, "a")));
+
+		assertTrue(index.remove("TST-1"));
+
+		assertEquals("TST-2", index.get(issue(null, "a")));
+		assertFalse(index.remove("TST-1"));
+	}
+
+	private RemoteIssue issue(String key, String summary) {
+		RemoteIssue issue = new RemoteIssue();
+		issue.setKey(key);
+		issue.setSummary(summary);
+		issue.setDescription("java.lang.IllegalStateException: " + summary);
+		return issue;
+	}
+}
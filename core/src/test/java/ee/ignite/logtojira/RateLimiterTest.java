@@ -0,0 +1,181 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class RateLimiterTest {
+
+	private static final Event EVENT = createTestEvent("x");
+
+	@Test
+	public void globalLimit() {
+		RateLimiter limiter = new RateLimiter(2, 0);
+
+		assertTrue(limiter.tryAcquire("a", EVENT));
+		assertTrue(limiter.tryAcquire("b", EVENT));
+		assertFalse(limiter.tryAcquire("c", EVENT));
+		assertEquals(1, limiter.getSuppressedCount());
+	}
+
+	@Test
+	public void identityLimit() {
+		RateLimiter limiter = new RateLimiter(0, 2);
+
+		assertTrue(limiter.tryAcquire("a", EVENT));
+		assertTrue(limiter.tryAcquire("a", EVENT));
+		assertFalse(limiter.tryAcquire("a", EVENT));
+		assertFalse(limiter.tryAcquire("a", EVENT));
+		assertTrue(limiter.tryAcquire("b", EVENT));
+
+		assertEquals(2, limiter.takeSuppressed("a"));
+		assertEquals(0, limiter.takeSuppressed("a"));
+		assertEquals(0, limiter.takeSuppressed("b"));
+	}
+
+	@Test
+	public void globalLimitKeepsIdentityToken() {
+		RateLimiter limiter = new RateLimiter(1, 1);
+
+		assertTrue(limiter.tryAcquire("a", EVENT));
+		assertFalse(limiter.tryAcquire("b", EVENT));
+		assertEquals(1, limiter.takeSuppressed("b"));
+	}
+
+	@Test
+	public void identityLimitReturnsGlobalToken() {
+		RateLimiter limiter = new RateLimiter(2, 1);
+
+		assertTrue(limiter.tryAcquire("a", EVENT));
+		assertFalse(limiter.tryAcquire("a", EVENT));
+		assertTrue(limiter.tryAcquire("b", EVENT));
+	}
+
+	@Test
+	public void idleIdentitiesAreTaken() {
+		RateLimiter limiter = new RateLimiter(0, 1);
+		Event first = createTestEvent("first");
+
+		limiter.tryAcquire("a", EVENT);
+		limiter.tryAcquire("a", first);
+		limiter.tryAcquire("a", EVENT);
+		limiter.tryAcquire("b", EVENT);
+
+		assertTrue(limiter.takeIdle(60000).isEmpty());
+
+		Map<String, Occurrences> idle = limiter.takeIdle(0);
+		assertEquals(Collections.singleton("a"), idle.keySet());
+		assertEquals(first, idle.get("a").getFirst());
+		assertEquals(1, idle.get("a").getSuppressed());
+		assertTrue(limiter.takeIdle(0).isEmpty());
+	}
+
+	@Test
+	public void idleIdentitiesTakeGlobalTokens() throws InterruptedException {
+		RateLimiter limiter = new RateLimiter(1, 0);
+
+		assertTrue(limiter.tryAcquire("a", EVENT));
+		assertFalse(limiter.tryAcquire("b", EVENT));
+		assertFalse(limiter.tryAcquire("c", EVENT));
+
+		assertTrue(limiter.takeIdle(0).isEmpty());
+		Thread.sleep(1100);
+		assertEquals(Collections.singleton("b"), limiter.takeIdle(0).keySet());
+		Thread.sleep(1100);
+		assertEquals(Collections.singleton("c"), limiter.takeIdle(0).keySet());
+	}
+
+	@Test
+	public void suppressedEventIsKeptWithoutThrowable() {
+		RateLimiter limiter = new RateLimiter(0, 1);
+		Exception failure = new IllegalStateException("failed");
+		Event event = new Event(RateLimiterTest.class.getName(), "ERROR", 0, "x", "main", null, null, failure, null);
+
+		limiter.tryAcquire("a", event);
+		limiter.tryAcquire("a", event);
+
+		Event kept = limiter.takeIdle(0).get("a").getFirst();
+		assertNull(kept.getThrowable());
+		assertEquals(Arrays.asList(event.getThrowableLines()), Arrays.asList(kept.getThrowableLines()));
+	}
+
+	@Test
+	public void keyLeavesOutMessagesOfThrowables() {
+		Event[] events = new Event[3];
+		for (int i = 0; i < events.length; i++) {
+			events[i] = new Event(RateLimiterTest.class.getName(), "ERROR", 0, i < 2 ? "x" : "y", "main", null,
+					null, new IllegalStateException("failed " + i, new IllegalArgumentException("bad " + i)), null);
+		}
+
+		assertEquals(RateLimiter.key(events[0]), RateLimiter.key(events[1]));
+		assertFalse(RateLimiter.key(events[0]).equals(RateLimiter.key(events[2])));
+		assertEquals(RateLimiter.key(lines(events[0])), RateLimiter.key(lines(events[1])));
+		assertFalse(RateLimiter.key(lines(events[0])).equals(RateLimiter.key(lines(events[2]))));
+	}
+
+	@Test
+	public void evictedIdentitiesAreTaken() {
+		RateLimiter limiter = new RateLimiter(0, 1);
+
+		limiter.tryAcquire("a", EVENT);
+		limiter.tryAcquire("a", EVENT);
+		for (int i = 0; i < 1000; i++) {
+			limiter.tryAcquire("b" + i, EVENT);
+		}
+
+		Map<String, Occurrences> taken = limiter.takeIdle(60000);
+		assertEquals(Collections.singleton("a"), taken.keySet());
+		assertEquals(0, taken.get("a").getSuppressed());
+	}
+
+	@Test
+	public void singleEventIsNotDescribedAsOccurrences() {
+		Occurrences occurrences = new Occurrences(EVENT);
+		occurrences.addSuppressed(3);
+
+		assertEquals("3 more occurrences were not sent because of rate limits", occurrences.describe());
+	}
+
+	@Test
+	public void bucketIsRefilled() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(1, 20);
+
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+		Thread.sleep(50);
+		assertTrue(bucket.tryAcquire());
+	}
+
+	private static Event lines(Event event) {
+		return new Event(event.getLoggerName(), event.getLevel(), 0, event.getMessage(), "main", null, null, null,
+				event.getThrowableLines());
+	}
+
+	private static Event createTestEvent(String message) {
+		return new Event(RateLimiterTest.class.getName(), "ERROR", System.currentTimeMillis(), message,
+				Thread.currentThread().getName(), null, null, null, null);
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.rmi.RemoteException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class SessionManagerTest {
+
+	private static final String USERNAME = "theUser";
+	private static final String PASS = "thePass";
+
+	private JiraTransport jiraService;
+	private SessionManager sessionManager;
+
+	@Before
+	public void init() {
+		Config config = new Config();
+		config.setUsername(USERNAME);
+		config.setPassword(PASS);
+		jiraService = createMock(JiraTransport.class);
+		sessionManager = new SessionManager(config, jiraService);
+	}
+
+	@Test
+	public void replacedTokenIsLoggedOutOnNextRefresh() throws RemoteException {
+		expect(jiraService.login(USERNAME, PASS)).andReturn("1");
+		expect(jiraService.login(USERNAME, PASS)).andReturn("2");
+		expect(jiraService.login(USERNAME, PASS)).andReturn("3");
+		expect(jiraService.logout("1")).andReturn(true);
+		expect(jiraService.logout("2")).andReturn(true);
+		expect(jiraService.logout("3")).andReturn(true);
+		replay(jiraService);
+
+		assertEquals("1", sessionManager.getToken());
+		sessionManager.refresh();
+		assertEquals("2", sessionManager.getToken());
+		sessionManager.refresh();
+		assertEquals("3", sessionManager.getToken());
+		sessionManager.close();
+
+		verify(jiraService);
+	}
+
+	@Test
+	public void failedRefreshKeepsToken() throws RemoteException, InterruptedException {
+		expect(jiraService.login(USERNAME, PASS)).andReturn("1");
+		expect(jiraService.login(USERNAME, PASS)).andThrow(new RemoteException("Connection refused")).atLeastOnce();
+		expect(jiraService.logout("1")).andReturn(true);
+		replay(jiraService);
+
+		assertEquals("1", sessionManager.getToken());
+		sessionManager.startRefresh(10);
+		Thread.sleep(100);
+
+		assertEquals("1", sessionManager.getToken());
+		sessionManager.close();
+		verify(jiraService);
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class SpoolReplayerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SpoolReplayer replayer;
+
+	@After
+	public void close() {
+		if (replayer != null) {
+			replayer.close();
+		}
+	}
+
+	@Test
+	public void replayStopsWhenBreakerOpens() throws IOException {
+		Spool spool = new Spool(folder.getRoot(), 64 * 1024, 2);
+		for (String message : Arrays.asList("1", "2", "3")) {
+			spool.append(SpoolReplayer.serialize(createTestEvent(message)));
+		}
+
+		final CircuitBreaker breaker = new CircuitBreaker(1, 60000);
+		final List<String> processed = new ArrayList<String>();
+
+		replayer = new SpoolReplayer(spool, breaker, new SpoolReplayer.Handler() {
+			@Override
+			public boolean replay(Event event) {
+				processed.add(event.getMessage());
+				if (processed.size() == 2) {
+					breaker.recordFailure();
+				}
+				return true;
+			}
+		}, 60000);
+
+		assertEquals(2, replayer.replay());
+		assertEquals(Arrays.asList("1", "2"), processed);
+		assertFalse(spool.isEmpty());
+	}
+
+	@Test
+	public void undeliveredEventStaysInSpool() throws IOException {
+		Spool spool = new Spool(folder.getRoot(), 64 * 1024, 2);
+		for (String message : Arrays.asList("1", "2")) {
+			spool.append(SpoolReplayer.serialize(createTestEvent(message)));
+		}
+
+		final List<String> processed = new ArrayList<String>();
+
+		replayer = new SpoolReplayer(spool, new CircuitBreaker(1, 60000), new SpoolReplayer.Handler() {
+			@Override
+			public boolean replay(Event event) {
+				processed.add(event.getMessage());
+				return processed.size() > 1;
+			}
+		}, 60000);
+
+		assertEquals(0, replayer.replay());
+		assertEquals(2, replayer.replay());
+		assertEquals(Arrays.asList("1", "1", "2"), processed);
+		assertTrue(spool.isEmpty());
+	}
+
+	@Test
+	public void otherClassesAreNotDeserialized() throws IOException {
+		byte[] record = SpoolReplayer.serialize(new Event(SpoolReplayerTest.class.getName(), "ERROR", 0, "msg",
+				"main", null, Collections.singletonMap("user", "alice"), new IllegalStateException(), null));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(new ArrayList<String>(Arrays.asList("msg")));
+		out.close();
+
+		assertEquals("alice", SpoolReplayer.deserialize(record).getMdc().get("user"));
+		try {
+			SpoolReplayer.deserialize(bytes.toByteArray());
+			fail();
+		} catch (InvalidClassException e) {
+			assertEquals(ArrayList.class.getName(), e.classname);
+		}
+	}
+
+	@Test
+	public void serializedEventKeepsStackTrace() throws IOException {
+		Exception e = new IllegalStateException("boom");
+		Event event = new Event(SpoolReplayerTest.class.getName(), "ERROR", 0, "msg", "main", null, null, e, null);
+
+		Event restored = SpoolReplayer.deserialize(SpoolReplayer.serialize(event));
+
+		assertNull(restored.getThrowable());
+		assertEquals(Arrays.asList(event.getThrowableLines()), Arrays.asList(restored.getThrowableLines()));
+	}
+
+	@Test
+	public void occurrencesAreSpooledWithEvent() throws IOException {
+		Occurrences occurrences = new Occurrences(createTestEvent("1"));
+		occurrences.add(createTestEvent("1"));
+		occurrences.addSuppressed(3);
+
+		Event restored = SpoolReplayer.deserialize(SpoolReplayer.serialize(new CoalescedEvent(null, occurrences)));
+
+		Occurrences replayed = ((CoalescedEvent) restored).getOccurrences();
+		assertEquals("1", replayed.getFirst().getMessage());
+		assertEquals(2, replayed.getCount());
+		assertEquals(3, replayed.getSuppressed());
+		assertEquals(occurrences.describe(), replayed.describe());
+	}
+
+	private Event createTestEvent(String message) {
+		return new Event(SpoolReplayerTest.class.getName(), "ERROR", System.currentTimeMillis(), message,
+				Thread.currentThread().getName(), null, null, null, null);
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class SpoolTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void pollReturnsRecordsInOrder() throws IOException {
+		Spool spool = new Spool(folder.getRoot(), 64, 10);
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(spool.append(("record" + i).getBytes("UTF-8")));
+		}
+		assertTrue(spool.getSegmentCount() > 1);
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals("record" + i, new String(spool.poll(), "UTF-8"));
+		}
+		assertNull(spool.poll());
+		assertTrue(spool.isEmpty());
+		assertEquals(1, spool.getSegmentCount());
+	}
+
+	@Test
+	public void reopenedSpoolContinuesWhereItStopped() throws IOException {
+		Spool spool = new Spool(folder.getRoot(), 64, 10);
+		for (int i = 0; i < 6; i++) {
+			spool.append(("record" + i).getBytes("UTF-8"));
+		}
+		spool.poll();
+		spool.poll();
+
+		spool = new Spool(folder.getRoot(), 64, 10);
+
+		assertFalse(spool.isEmpty());
+		assertEquals("record2", new String(spool.poll(), "UTF-8"));
+		spool.append("record6".getBytes("UTF-8"));
+		for (int i = 3; i < 7; i++) {
+			assertEquals("record" + i, new String(spool.poll(), "UTF-8"));
+		}
+		assertNull(spool.poll());
+	}
+
+	@Test
+	public void oldestSegmentIsDroppedAtLimit() throws IOException {
+		// two 18 byte records fit into a segment
+		Spool spool = new Spool(folder.getRoot(), 48, 2);
+
+		for (int i = 0; i < 6; i++) {
+			spool.append(("record-number-" + i + "-xx").getBytes("UTF-8"));
+		}
+
+		assertEquals(2, spool.getSegmentCount());
+		assertEquals(1, spool.getDroppedSegments());
+		assertEquals("record-number-2-xx", new String(spool.poll(), "UTF-8"));
+	}
+
+	@Test
+	public void tooLargeRecordIsRefused() throws IOException {
+		Spool spool = new Spool(folder.getRoot(), 64, 2);
+
+		assertFalse(spool.append(new byte[61]));
+		assertTrue(spool.isEmpty());
+	}
+}
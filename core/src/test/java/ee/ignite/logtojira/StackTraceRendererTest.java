@@ -0,0 +1,185 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Test;
+
+
+public class StackTraceRendererTest {
+
+	private static final String N = System.getProperty("line.separator");
+
+	private final StackTraceRenderer renderer = new StackTraceRenderer(0, 0);
+
+	@Test
+	public void sameAsPrintStackTrace() {
+		IllegalStateException cause = exception(new IllegalStateException("inner"),
+				"a.Dao.load", "a.Service.find", "a.Main.main");
+		RuntimeException e = exception(new RuntimeException("outer", cause),
+				"a.Service.wrap", "a.Service.find", "a.Main.main");
+
+		assertEquals(printStackTrace(e), renderer.render(e));
+	}
+
+	@Test
+	public void frameworkFramesAreCollapsed() {
+		RuntimeException e = exception(new RuntimeException(), "a.Dao.load",
+				"sun.reflect.NativeMethodAccessorImpl.invoke0", "sun.reflect.NativeMethodAccessorImpl.invoke",
+				"java.lang.reflect.Method.invoke", "a.Service.find", "com.sun.proxy.$Proxy12.find", "a.Main.main");
+		RuntimeException inflated = exception(new RuntimeException(), "a.Dao.load",
+				"sun.reflect.GeneratedMethodAccessor7.invoke", "java.lang.reflect.Method.invoke",
+				"a.Service.find", "com.sun.proxy.$Proxy12.find", "a.Main.main");
+
+		String expected = "java.lang.RuntimeException" + N
+				+ "\tat a.Dao.load(Dao.java:1)" + N
+				+ "\t... reflection and proxy frames" + N
+				+ "\tat a.Service.find(Service.java:1)" + N
+				+ "\t... reflection and proxy frames" + N
+				+ "\tat a.Main.main(Main.java:1)" + N;
+		assertEquals(expected, renderer.render(e));
+		assertEquals(expected, renderer.render(inflated));
+	}
+
+	@Test
+	public void framesAreCapped() {
+		RuntimeException cause = exception(new RuntimeException("inner"), "a.A.a", "a.B.b", "a.C.c", "a.D.d");
+		RuntimeException e = exception(new RuntimeException("outer", cause), "a.E.e", "a.D.d");
+
+		assertEquals("java.lang.RuntimeException: outer" + N
+				+ "\tat a.E.e(E.java:1)" + N
+				+ "\tat a.D.d(D.java:1)" + N
+				+ "Caused by: java.lang.RuntimeException: inner" + N
+				+ "\tat a.A.a(A.java:1)" + N
+				+ "\t... 2 frames omitted" + N
+				+ "\t... 1 more" + N, new StackTraceRenderer(3, 0).render(e));
+	}
+
+	@Test
+	public void lengthIsCapped() {
+		RuntimeException e = exception(new RuntimeException(), "a.A.a", "a.B.b", "a.C.c", "a.D.d");
+
+		String result = new StackTraceRenderer(0, 60).render(e);
+
+		assertEquals("java.lang.RuntimeException" + N + "\t... truncated" + N, result);
+		for (int maxChars = 1; maxChars < 120; maxChars++) {
+			assertTrue(new StackTraceRenderer(0, maxChars).render(e).length() <= maxChars);
+		}
+	}
+
+	@Test
+	public void reflectiveCallIsRenderedLikePrintStackTraceWithoutCollapsing() throws Exception {
+		Throwable e;
+		try {
+			StackTraceRendererTest.class.getDeclaredMethod("fail").invoke(null);
+			throw new AssertionError();
+		} catch (InvocationTargetException thrown) {
+			e = thrown;
+		}
+
+		assertEquals(printStackTrace(e), new StackTraceRenderer(0, 0, false).render(e));
+	}
+
+	@Test
+	public void linesAreRenderedLikeThrowable() {
+		RuntimeException cause = exception(new RuntimeException("inner"), "a.A.a",
+				"sun.reflect.GeneratedMethodAccessor7.invoke", "a.C.c");
+		RuntimeException e = exception(new RuntimeException("outer", cause), "a.B.b", "a.C.c");
+
+		assertEquals(renderer.render(e), renderer.render(printStackTrace(e).split(N)));
+	}
+
+	/**
+	 * On Java 9 and later the reflection frames of the lines carry the
+	 * java.base module.
+	 */
+	@Test
+	public void linesOfReflectiveCallAreRenderedLikeThrowable() throws Exception {
+		Throwable e;
+		try {
+			StackTraceRendererTest.class.getDeclaredMethod("fail").invoke(null);
+			throw new AssertionError();
+		} catch (InvocationTargetException thrown) {
+			e = thrown;
+		}
+
+		String rendered = renderer.render(e);
+
+		assertTrue(rendered.contains("reflection and proxy frames"));
+		assertEquals(rendered, renderer.render(printStackTrace(e).split(N)));
+	}
+
+	@Test
+	public void modulesAreLeftOutOfClassNames() {
+		String[] lines = { "java.lang.IllegalStateException: boom",
+				"\tat a.Dao.load(Dao.java:1)",
+				"\tat java.base/jdk.internal.reflect.NativeMethodAccessorImpl.invoke0(Native Method)",
+				"\tat java.base/jdk.internal.reflect.NativeMethodAccessorImpl.invoke(NativeMethodAccessorImpl.java:62)",
+				"\tat java.base/java.lang.reflect.Method.invoke(Method.java:566)",
+				"\tat app//a.Service.find(Service.java:1)",
+				"\tat a.Service$$Lambda$14/0x0000000800066840.run(Unknown Source)",
+				"\tat jdk.proxy2/jdk.proxy2.$Proxy12.find(Unknown Source)",
+				"\tat a.Main.main(Main.java:1)" };
+
+		assertEquals("java.lang.IllegalStateException: boom" + N
+				+ "\tat a.Dao.load(Dao.java:1)" + N
+				+ "\t... reflection and proxy frames" + N
+				+ "\tat app//a.Service.find(Service.java:1)" + N
+				+ "\tat a.Service$$Lambda$14/0x0000000800066840.run(Unknown Source)" + N
+				+ "\t... reflection and proxy frames" + N
+				+ "\tat a.Main.main(Main.java:1)" + N, renderer.render(lines));
+		assertEquals("a.Service$$Lambda$14/0x0000000800066840",
+				StackTraceRenderer.className("at a.Service$$Lambda$14/0x0000000800066840.run(Unknown Source)"));
+		assertEquals("java.lang.reflect.Method",
+				StackTraceRenderer.className("at com.example@1.0/java.lang.reflect.Method.invoke(Method.java:566)"));
+	}
+
+	@Test
+	public void usesLinesOfEventWithoutThrowable() {
+		String[] lines = printStackTrace(exception(new RuntimeException(), "a.A.a")).split(N);
+		Event event = new Event("a.A", "ERROR", 0, "message", "main", null, null, null, lines);
+
+		assertTrue(renderer.render(event).contains("a.A.a"));
+	}
+
+	private static <T extends Throwable> T exception(T throwable, String... methods) {
+		StackTraceElement[] trace = new StackTraceElement[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			int dot = methods[i].lastIndexOf('.');
+			String className = methods[i].substring(0, dot);
+			String file = className.substring(className.lastIndexOf('.') + 1).replaceAll("\\$.*", "") + ".java";
+			trace[i] = new StackTraceElement(className, methods[i].substring(dot + 1), file, 1);
+		}
+		throwable.setStackTrace(trace);
+		return throwable;
+	}
+
+	private static String printStackTrace(Throwable throwable) {
+		StringWriter out = new StringWriter();
+		throwable.printStackTrace(new PrintWriter(out));
+		return out.toString();
+	}
+
+	static void fail() {
+		throw new IllegalStateException("boom");
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class WarmUpTest {
+
+	private CountDownLatch release;
+	private List<String> processed;
+	private WarmUp warmUp;
+
+	@Before
+	public void init() {
+		release = new CountDownLatch(1);
+		processed = Collections.synchronizedList(new ArrayList<String>());
+
+		warmUp = new WarmUp(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}, new EventProcessor() {
+			@Override
+			public void process(Event event) {
+				processed.add(event.getMessage());
+			}
+		}, 2);
+	}
+
+	@After
+	public void release() {
+		release.countDown();
+		warmUp.close(1000);
+	}
+
+	@Test
+	public void eventsAreHeldUntilReady() {
+		assertTrue(warmUp.offer(createTestEvent("1")));
+		assertTrue(warmUp.offer(createTestEvent("2")));
+		assertFalse(warmUp.isReady());
+		assertTrue(processed.isEmpty());
+
+		release.countDown();
+		assertTrue(warmUp.close(1000));
+		assertTrue(warmUp.offer(createTestEvent("3")));
+
+		assertEquals(Arrays.asList("1", "2", "3"), processed);
+		assertEquals(0, warmUp.getDroppedCount());
+	}
+
+	@Test
+	public void fullBufferDropsEvents() {
+		warmUp.offer(createTestEvent("1"));
+		warmUp.offer(createTestEvent("2"));
+
+		assertFalse(warmUp.offer(createTestEvent("3")));
+		assertEquals(1, warmUp.getDroppedCount());
+	}
+
+	@Test
+	public void closeGivesUpAfterTimeout() {
+		warmUp.offer(createTestEvent("1"));
+
+		assertFalse(warmUp.close(50));
+		assertTrue(processed.isEmpty());
+		assertEquals(1, warmUp.getDroppedCount());
+	}
+
+	private Event createTestEvent(String message) {
+		return new Event(WarmUpTest.class.getName(), "ERROR", System.currentTimeMillis(), message,
+				Thread.currentThread().getName(), null, null, null, null);
+	}
+}
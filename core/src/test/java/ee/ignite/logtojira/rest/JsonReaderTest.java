@@ -0,0 +1,108 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.rest;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import ee.ignite.logtojira.rest.JsonReader.Token;
+
+
+public class JsonReaderTest {
+
+	@Test
+	public void readsNestedDocument() throws IOException {
+		JsonReader reader = new JsonReader(new StringReader(
+				"{\"total\": 2, \"issues\": [{\"key\": \"TST-1\", \"fields\": {\"summary\": null}}, {}],"
+				+ " \"ok\": true}"));
+
+		reader.beginObject();
+		assertEquals("total", reader.nextName());
+		assertEquals(2, reader.nextLong());
+		assertEquals("issues", reader.nextName());
+		reader.beginArray();
+		reader.beginObject();
+		assertEquals("key", reader.nextName());
+		assertEquals("TST-1", reader.nextString());
+		assertEquals("fields", reader.nextName());
+		reader.beginObject();
+		assertEquals("summary", reader.nextName());
+		assertNull(reader.nextString());
+		reader.endObject();
+		reader.endObject();
+		reader.beginObject();
+		assertFalse(reader.hasNext());
+		reader.endObject();
+		reader.endArray();
+		assertEquals("ok", reader.nextName());
+		assertEquals("true", reader.nextString());
+		reader.endObject();
+		assertEquals(Token.END_DOCUMENT, reader.peek());
+	}
+
+	@Test
+	public void skipsUnneededValues() throws IOException {
+		JsonReader reader = new JsonReader(new StringReader(
+				"{\"expand\": {\"a\": [1, 2, {\"b\": [\"c\"]}]}, \"key\": \"TST-1\"}"));
+
+		reader.beginObject();
+		reader.nextName();
+		reader.skipValue();
+		assertEquals("key", reader.nextName());
+		assertEquals("TST-1", reader.nextString());
+		reader.endObject();
+	}
+
+	@Test
+	public void writtenStringsAreReadBack() throws IOException {
+		String tricky = "quote \" backslash \\ tab \t newline \n control \u0001 unicode ф";
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.beginObject().name("body").value(tricky).name("list").beginArray().value(1).value("x").endArray()
+				.endObject();
+		writer.flush();
+
+		assertEquals("{\"body\":\"quote \\\" backslash \\\\ tab \\t newline \\n control \\u0001 unicode ф\","
+				+ "\"list\":[1,\"x\"]}", out.toString());
+
+		JsonReader reader = new JsonReader(new StringReader(out.toString()));
+		reader.beginObject();
+		reader.nextName();
+		assertEquals(tricky, reader.nextString());
+	}
+
+	@Test
+	public void malformedDocumentIsRefused() throws IOException {
+		JsonReader reader = new JsonReader(new StringReader("{\"key\" \"TST-1\"}"));
+		reader.beginObject();
+		reader.nextName();
+
+		try {
+			reader.nextString();
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
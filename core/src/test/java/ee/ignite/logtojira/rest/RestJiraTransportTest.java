@@ -0,0 +1,234 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.rest;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.rmi.RemoteException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import ee.ignite.logtojira.Attachment;
+import ee.ignite.logtojira.soap.RemoteAuthenticationException;
+import ee.ignite.logtojira.soap.RemoteComment;
+import ee.ignite.logtojira.soap.RemoteCustomFieldValue;
+import ee.ignite.logtojira.soap.RemoteIssue;
+
+
+public class RestJiraTransportTest {
+
+	private static final String TOKEN = "JSESSIONID=abc";
+
+	private HttpServer server;
+	private Map<String, String> responses;
+	private Map<String, Integer> statuses;
+	private Map<String, String> requests;
+	private Map<String, Headers> headers;
+	private RestJiraTransport transport;
+
+	@Before
+	public void startServer() throws IOException {
+		responses = Collections.synchronizedMap(new HashMap<String, String>());
+		statuses = Collections.synchronizedMap(new HashMap<String, Integer>());
+		requests = Collections.synchronizedMap(new HashMap<String, String>());
+		headers = Collections.synchronizedMap(new HashMap<String, Headers>());
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String call = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+				requests.put(call, new String(read(exchange.getRequestBody()), "UTF-8"));
+				headers.put(call, exchange.getRequestHeaders());
+
+				String response = responses.containsKey(call) ? responses.get(call) : "";
+				Integer status = statuses.containsKey(call) ? statuses.get(call) : 200;
+				byte[] body = response.getBytes("UTF-8");
+				exchange.getResponseHeaders().set("Content-Type", "application/json");
+				exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(body);
+				out.close();
+			}
+		});
+		server.start();
+
+		transport = new RestJiraTransport(
+				new URL("http://localhost:" + server.getAddress().getPort() + "/jira"), 1000, 1000, false);
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void loginReturnsSessionCookie() throws RemoteException {
+		responses.put("POST /jira/rest/auth/1/session",
+				"{\"session\":{\"name\":\"JSESSIONID\",\"value\":\"abc\"},\"loginInfo\":{\"failedLoginCount\":1}}");
+
+		assertEquals(TOKEN, transport.login("admin", "secret"));
+		assertEquals("{\"username\":\"admin\",\"password\":\"secret\"}",
+				requests.get("POST /jira/rest/auth/1/session"));
+	}
+
+	@Test
+	public void searchReadsIssues() throws RemoteException {
+		responses.put("POST /jira/rest/api/2/search",
+				"{\"startAt\":0,\"total\":1,\"issues\":[{\"id\":\"10000\",\"key\":\"TST-1\",\"self\":\"x\","
+				+ "\"fields\":{\"summary\":\"the summary\",\"description\":null,"
+				+ "\"status\":{\"id\":\"1\",\"name\":\"Open\"}}}]}");
+
+		RemoteIssue[] issues = transport.getIssuesFromJqlSearch(TOKEN, "project = TST", 1);
+
+		assertEquals(1, issues.length);
+		assertEquals("TST-1", issues[0].getKey());
+		assertEquals("the summary", issues[0].getSummary());
+		assertEquals(null, issues[0].getDescription());
+		assertEquals("1", issues[0].getStatus());
+		assertEquals(TOKEN, headers.get("POST /jira/rest/api/2/search").getFirst("Cookie"));
+		assertTrue(requests.get("POST /jira/rest/api/2/search").startsWith(
+				"{\"jql\":\"project = TST\",\"maxResults\":1,"));
+	}
+
+	@Test
+	public void createIssueSendsFields() throws RemoteException {
+		responses.put("POST /jira/rest/api/2/issue", "{\"id\":\"10001\",\"key\":\"TST-2\"}");
+		RemoteIssue issue = new RemoteIssue();
+		issue.setProject("TST");
+		issue.setType("1");
+		issue.setSummary("summary");
+		issue.setDescription("line1\nline2");
+		issue.setCustomFieldValues(new RemoteCustomFieldValue[] {
+				new RemoteCustomFieldValue("customfield_10010", null, new String[] { "fp-1" }) });
+
+		RemoteIssue created = transport.createIssue(TOKEN, issue);
+
+		assertEquals("TST-2", created.getKey());
+		assertEquals("summary", created.getSummary());
+		assertEquals("{\"fields\":{\"project\":{\"key\":\"TST\"},\"issuetype\":{\"id\":\"1\"},"
+				+ "\"summary\":\"summary\",\"description\":\"line1\\nline2\",\"environment\":null,"
+				+ "\"customfield_10010\":\"fp-1\"}}",
+				requests.get("POST /jira/rest/api/2/issue"));
+	}
+
+	@Test
+	public void commentsAreReadAndAdded() throws RemoteException {
+		responses.put("GET /jira/rest/api/2/issue/TST-1/comment",
+				"{\"comments\":[{\"id\":\"1\",\"author\":{\"name\":\"admin\"},\"body\":\"first\"}],\"total\":1}");
+		statuses.put("POST /jira/rest/api/2/issue/TST-1/comment", 201);
+		RemoteComment comment = new RemoteComment();
+		comment.setBody("second");
+
+		RemoteComment[] comments = transport.getComments(TOKEN, "TST-1");
+		transport.addComment(TOKEN, "TST-1", comment);
+
+		assertEquals(1, comments.length);
+		assertEquals("first", comments[0].getBody());
+		assertEquals("admin", comments[0].getAuthor());
+		assertEquals("{\"body\":\"second\"}", requests.get("POST /jira/rest/api/2/issue/TST-1/comment"));
+	}
+
+	@Test
+	public void attachmentIsStreamedAsMultipart() throws RemoteException {
+		transport.addAttachment(TOKEN, "TST-1", new Attachment() {
+			@Override
+			public String getFileName() {
+				return "diagnostics.txt";
+			}
+
+			@Override
+			public String getContentType() {
+				return "text/plain";
+			}
+
+			@Override
+			public void writeTo(OutputStream out) throws IOException {
+				Writer writer = new OutputStreamWriter(out, "UTF-8");
+				writer.write("full trace");
+				writer.flush();
+			}
+		});
+
+		Headers sent = headers.get("POST /jira/rest/api/2/issue/TST-1/attachments");
+		String contentType = sent.getFirst("Content-Type");
+		String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+
+		assertTrue(contentType.startsWith("multipart/form-data; "));
+		assertEquals("no-check", sent.getFirst("X-Atlassian-Token"));
+		assertEquals(TOKEN, sent.getFirst("Cookie"));
+		assertEquals("--" + boundary + "\r\n"
+				+ "Content-Disposition: form-data; name=\"file\"; filename=\"diagnostics.txt\"\r\n"
+				+ "Content-Type: text/plain\r\n\r\n"
+				+ "full trace\r\n--" + boundary + "--\r\n",
+				requests.get("POST /jira/rest/api/2/issue/TST-1/attachments"));
+	}
+
+	@Test
+	public void rejectedSessionIsAuthenticationFailure() throws RemoteException {
+		statuses.put("POST /jira/rest/api/2/search", 401);
+
+		try {
+			transport.getIssuesFromJqlSearch(TOKEN, "project = TST", 1);
+			fail();
+		} catch (RemoteAuthenticationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void gatewayErrorIsTransportFailure() {
+		statuses.put("POST /jira/rest/api/2/search", 502);
+
+		try {
+			transport.getIssuesFromJqlSearch(TOKEN, "project = TST", 1);
+			fail();
+		} catch (RemoteException e) {
+			assertFalse(e instanceof ee.ignite.logtojira.soap.RemoteException);
+		}
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * LogToJiraAppender for applications that log errors from many threads at
+ * once. AppenderSkeleton.doAppend is synchronized, so every logging thread
+ * queues up behind the one in append. Here doAppend takes no lock: the
+ * threshold, filters and enabled flag are only read and events are always
+ * handed over to the async workers, whose queues are striped by message.
+ * With lockFreeQueue set the queues take no lock either.
+ *
+ * Filters must be thread safe, log4j's own are.
+ */
+public class ConcurrentLogToJiraAppender extends LogToJiraAppender {
+
+	private volatile boolean open = false;
+
+	public ConcurrentLogToJiraAppender() {
+	}
+
+	protected ConcurrentLogToJiraAppender(LogToJira jira) {
+		super(jira);
+	}
+
+	@Override
+	public void activateOptions() {
+		setAsync(true);
+		super.activateOptions();
+		open = true;
+	}
+
+	@Override
+	public void doAppend(LoggingEvent loggingEvent) {
+
+		if (!open) {
+			LogLog.error("Attempted to append to closed or not activated appender named [" + name + "].");
+			return;
+		}
+
+		if (!isAsSevereAsThreshold(loggingEvent.getLevel())) {
+			return;
+		}
+
+		for (Filter filter = headFilter; filter != null; filter = filter.getNext()) {
+			int decision = filter.decide(loggingEvent);
+			if (decision == Filter.DENY) {
+				return;
+			}
+			if (decision == Filter.ACCEPT) {
+				break;
+			}
+		}
+
+		append(loggingEvent);
+	}
+
+	@Override
+	public void close() {
+		open = false;
+		super.close();
+	}
+}
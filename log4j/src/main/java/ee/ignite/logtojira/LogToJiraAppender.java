@@ -0,0 +1,340 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.spi.ErrorCode;
+import org.apache.log4j.spi.LoggingEvent;
+
+import ee.ignite.logtojira.log4j.LoggingEvents;
+import ee.ignite.logtojira.log4j.Plugin;
+import ee.ignite.logtojira.log4j.PluginBridge;
+import ee.ignite.logtojira.plugin.EventPlugin;
+
+/**
+ * Log4j 1.2 appender over {@link LogToJira}. The params are those of the
+ * core, events are copied into core events before they are handed over.
+ */
+public class LogToJiraAppender extends AppenderSkeleton {
+
+	private final LogToJira jira;
+
+	public LogToJiraAppender() {
+		this(new LogToJira());
+	}
+
+	/**
+	 * @param jira the core to hand events to, tests and benchmarks pass one
+	 * with the JIRA side replaced
+	 */
+	protected LogToJiraAppender(LogToJira jira) {
+		this.jira = jira;
+		jira.setErrorReporter(new ErrorReporter() {
+			@Override
+			public void error(String message, Exception e) {
+				errorHandler.error(message, e, ErrorCode.GENERIC_FAILURE);
+			}
+		});
+	}
+
+	@Override
+	public void activateOptions() {
+		jira.setName(getName());
+		jira.start();
+	}
+
+	@Override
+	protected void append(LoggingEvent loggingEvent) {
+
+		if (!jira.isEnabled()) {
+			return;
+		}
+
+		jira.append(LoggingEvents.toEvent(loggingEvent));
+	}
+
+	@Override
+	public void close() {
+		jira.close();
+	}
+
+	@Override
+	public boolean requiresLayout() {
+		return false;
+	}
+
+	public Metrics getMetrics() {
+		return jira.getMetrics();
+	}
+
+	public void setUrl(String url) {
+		jira.setUrl(url);
+	}
+
+	public void setUsername(String username) {
+		jira.setUsername(username);
+	}
+
+	public void setPassword(String password) {
+		jira.setPassword(password);
+	}
+
+	public void setProject(String project) {
+		jira.setProject(project);
+	}
+
+	public void setIssueTypeId(String issueTypeId) {
+		jira.setIssueTypeId(issueTypeId);
+	}
+
+	public void setIssueCacheSize(int issueCacheSize) {
+		jira.setIssueCacheSize(issueCacheSize);
+	}
+
+	public void setIssueCacheTtl(long issueCacheTtl) {
+		jira.setIssueCacheTtl(issueCacheTtl);
+	}
+
+	public void setFingerprintField(String fingerprintField) {
+		jira.setFingerprintField(fingerprintField);
+	}
+
+	public void setEnvironmentIncludes(String environmentIncludes) {
+		jira.setEnvironmentIncludes(environmentIncludes);
+	}
+
+	public void setEnvironmentExcludes(String environmentExcludes) {
+		jira.setEnvironmentExcludes(environmentExcludes);
+	}
+
+	public void setCommentIndexSize(int commentIndexSize) {
+		jira.setCommentIndexSize(commentIndexSize);
+	}
+
+	public void setSeedComments(boolean seedComments) {
+		jira.setSeedComments(seedComments);
+	}
+
+	public void setDedupIndexFile(String dedupIndexFile) {
+		jira.setDedupIndexFile(dedupIndexFile);
+	}
+
+	public void setDedupIndexSize(int dedupIndexSize) {
+		jira.setDedupIndexSize(dedupIndexSize);
+	}
+
+	public void setDedupIndexTtl(long dedupIndexTtl) {
+		jira.setDedupIndexTtl(dedupIndexTtl);
+	}
+
+	public void setMaxStackFrames(int maxStackFrames) {
+		jira.setMaxStackFrames(maxStackFrames);
+	}
+
+	public void setMaxDescriptionLength(int maxDescriptionLength) {
+		jira.setMaxDescriptionLength(maxDescriptionLength);
+	}
+
+	public void setCollapseFrameworkFrames(boolean collapseFrameworkFrames) {
+		jira.setCollapseFrameworkFrames(collapseFrameworkFrames);
+	}
+
+	public void setOpenIssueSyncInterval(long openIssueSyncInterval) {
+		jira.setOpenIssueSyncInterval(openIssueSyncInterval);
+	}
+
+	public void setOpenIssuePageSize(int openIssuePageSize) {
+		jira.setOpenIssuePageSize(openIssuePageSize);
+	}
+
+	public void setCompactDescription(boolean compactDescription) {
+		jira.setCompactDescription(compactDescription);
+	}
+
+	public void setEnabled(boolean enabled) {
+		jira.setEnabled(enabled);
+	}
+
+	public void setAsync(boolean async) {
+		jira.setAsync(async);
+	}
+
+	public void setQueueSize(int queueSize) {
+		jira.setQueueSize(queueSize);
+	}
+
+	public void setWorkers(int workers) {
+		jira.setWorkers(workers);
+	}
+
+	public void setVirtualThreads(boolean virtualThreads) {
+		jira.setVirtualThreads(virtualThreads);
+	}
+
+	public void setLockFreeQueue(boolean lockFreeQueue) {
+		jira.setLockFreeQueue(lockFreeQueue);
+	}
+
+	public void setOverflowPolicy(String overflowPolicy) {
+		jira.setOverflowPolicy(overflowPolicy);
+	}
+
+	public void setBlockTimeout(long blockTimeout) {
+		jira.setBlockTimeout(blockTimeout);
+	}
+
+	public void setShutdownTimeout(long shutdownTimeout) {
+		jira.setShutdownTimeout(shutdownTimeout);
+	}
+
+	public void setCoalesceWindow(long coalesceWindow) {
+		jira.setCoalesceWindow(coalesceWindow);
+	}
+
+	public void setCoalesceMaxPending(int coalesceMaxPending) {
+		jira.setCoalesceMaxPending(coalesceMaxPending);
+	}
+
+	public void setSessionRefreshInterval(long sessionRefreshInterval) {
+		jira.setSessionRefreshInterval(sessionRefreshInterval);
+	}
+
+	public void setRateLimit(int rateLimit) {
+		jira.setRateLimit(rateLimit);
+	}
+
+	public void setIdentityRateLimit(int identityRateLimit) {
+		jira.setIdentityRateLimit(identityRateLimit);
+	}
+
+	public void setClaimDirectory(String claimDirectory) {
+		jira.setClaimDirectory(claimDirectory);
+	}
+
+	public void setClaimTimeout(long claimTimeout) {
+		jira.setClaimTimeout(claimTimeout);
+	}
+
+	public void setClaimTtl(long claimTtl) {
+		jira.setClaimTtl(claimTtl);
+	}
+
+	public void setClaimCoordinator(ClaimCoordinator claimCoordinator) {
+		jira.setClaimCoordinator(claimCoordinator);
+	}
+
+	public void setTransport(String transport) {
+		jira.setTransport(transport);
+	}
+
+	public void setJmx(boolean jmx) {
+		jira.setJmx(jmx);
+	}
+
+	public void setWarmUp(boolean warmUp) {
+		jira.setWarmUp(warmUp);
+	}
+
+	public void setWarmUpBufferSize(int warmUpBufferSize) {
+		jira.setWarmUpBufferSize(warmUpBufferSize);
+	}
+
+	public void setCompactEvents(boolean compactEvents) {
+		jira.setCompactEvents(compactEvents);
+	}
+
+	public void setFrameDictionarySize(int frameDictionarySize) {
+		jira.setFrameDictionarySize(frameDictionarySize);
+	}
+
+	public void setKeepAlive(boolean keepAlive) {
+		jira.setKeepAlive(keepAlive);
+	}
+
+	public void setConnectTimeout(int connectTimeout) {
+		jira.setConnectTimeout(connectTimeout);
+	}
+
+	public void setReadTimeout(int readTimeout) {
+		jira.setReadTimeout(readTimeout);
+	}
+
+	public void setMaxConnections(int maxConnections) {
+		jira.setMaxConnections(maxConnections);
+	}
+
+	public void setCompressRequests(boolean compressRequests) {
+		jira.setCompressRequests(compressRequests);
+	}
+
+	public void setCompressResponses(boolean compressResponses) {
+		jira.setCompressResponses(compressResponses);
+	}
+
+	public void setFailureThreshold(int failureThreshold) {
+		jira.setFailureThreshold(failureThreshold);
+	}
+
+	public void setOpenTimeout(long openTimeout) {
+		jira.setOpenTimeout(openTimeout);
+	}
+
+	public void setSpoolDirectory(String spoolDirectory) {
+		jira.setSpoolDirectory(spoolDirectory);
+	}
+
+	public void setSpoolSegmentSize(int spoolSegmentSize) {
+		jira.setSpoolSegmentSize(spoolSegmentSize);
+	}
+
+	public void setSpoolMaxSegments(int spoolMaxSegments) {
+		jira.setSpoolMaxSegments(spoolMaxSegments);
+	}
+
+	public void setCombineComments(boolean combineComments) {
+		jira.setCombineComments(combineComments);
+	}
+
+	/**
+	 * Plugins written against log4j events are run through a
+	 * {@link PluginBridge}.
+	 */
+	public void setPlugins(List<Plugin> plugins) {
+		List<EventPlugin> bridged = new ArrayList<EventPlugin>();
+		for (Plugin plugin : plugins) {
+			bridged.add(new PluginBridge(plugin));
+		}
+		jira.setPlugins(bridged);
+	}
+
+	public void setPlugins(String commaSeparatedPlugins)
+			throws InstantiationException, IllegalAccessException,
+				ClassNotFoundException {
+		for (String plugin : commaSeparatedPlugins.split(",")) {
+			Object instance = Class.forName(plugin.trim()).newInstance();
+			if (instance instanceof EventPlugin) {
+				jira.addPlugin((EventPlugin) instance);
+			} else if (instance instanceof Plugin) {
+				jira.addPlugin(new PluginBridge((Plugin) instance));
+			} else {
+				throw new IllegalArgumentException(plugin.trim() + " is not a plugin");
+			}
+		}
+	}
+}
@@ -13,7 +13,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
 */
-package ee.ignite.logtojira.plugin;
+package ee.ignite.logtojira.log4j;
 
 import org.apache.log4j.spi.LoggingEvent;
 
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.log4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+import ee.ignite.logtojira.Event;
+import ee.ignite.logtojira.LogToJiraAppender;
+
+/**
+ * Copies log4j 1.2 events into core events and back, the latter for plugins
+ * written against log4j events. The loggers of the copies are not
+ * registered with log4j.
+ */
+public final class LoggingEvents {
+
+	private static final ConcurrentMap<String, Logger> LOGGERS = new ConcurrentHashMap<String, Logger>();
+
+	private LoggingEvents() {
+	}
+
+	/**
+	 * Call on the logging thread, the NDC and MDC are read from it if the
+	 * event has not copied them yet.
+	 */
+	public static Event toEvent(LoggingEvent loggingEvent) {
+
+		ThrowableInformation throwableInformation = loggingEvent.getThrowableInformation();
+		Throwable throwable = null;
+		String[] throwableLines = null;
+
+		if (throwableInformation != null) {
+			throwable = throwableInformation.getThrowable();
+			if (throwable == null) {
+				// deserialized, only the lines are left
+				throwableLines = throwableInformation.getThrowableStrRep();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<String, ?> mdc = loggingEvent.getProperties();
+
+		return new Event(loggingEvent.getLoggerName(), String.valueOf(loggingEvent.getLevel()),
+				loggingEvent.getTimeStamp(), loggingEvent.getRenderedMessage(), loggingEvent.getThreadName(),
+				loggingEvent.getNDC(), mdc, throwable, throwableLines);
+	}
+
+	/**
+	 * @return unknown levels become ERROR
+	 */
+	public static LoggingEvent toLoggingEvent(Event event) {
+
+		ThrowableInformation throwableInformation = null;
+		if (event.getThrowable() != null) {
+			throwableInformation = new ThrowableInformation(event.getThrowable());
+		} else if (event.hasThrowable()) {
+			throwableInformation = new ThrowableInformation(event.getThrowableLines());
+		}
+
+		return new LoggingEvent(LogToJiraAppender.class.getName(), logger(event.getLoggerName()),
+				event.getTimeStamp(), Level.toLevel(event.getLevel(), Level.ERROR), event.getMessage(),
+				event.getThreadName(), throwableInformation, event.getNdc(), null, event.getMdc());
+	}
+
+	private static Logger logger(String name) {
+
+		String key = name != null ? name : "";
+		Logger logger = LOGGERS.get(key);
+
+		if (logger == null) {
+			Logger created = new Logger(key) {
+			};
+			logger = LOGGERS.putIfAbsent(key, created);
+			if (logger == null) {
+				logger = created;
+			}
+		}
+
+		return logger;
+	}
+}
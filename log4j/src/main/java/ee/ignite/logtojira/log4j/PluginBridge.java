@@ -0,0 +1,41 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.log4j;
+
+import ee.ignite.logtojira.Event;
+import ee.ignite.logtojira.plugin.EventPlugin;
+
+/**
+ * Runs a {@link Plugin} written against log4j events as a plugin of the
+ * core, on a log4j event copied back from the core event.
+ */
+public class PluginBridge implements EventPlugin {
+
+	private final Plugin plugin;
+
+	public PluginBridge(Plugin plugin) {
+		this.plugin = plugin;
+	}
+
+	@Override
+	public String getText(Event event) {
+		return plugin.getText(LoggingEvents.toLoggingEvent(event));
+	}
+
+	public Plugin getPlugin() {
+		return plugin;
+	}
+}
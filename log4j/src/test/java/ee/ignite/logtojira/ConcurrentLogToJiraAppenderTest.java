@@ -0,0 +1,124 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ConcurrentLogToJiraAppenderTest {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+	private ConcurrentLogToJiraAppender appender;
+
+	@Before
+	public void init() {
+		appender = new ConcurrentLogToJiraAppender(new LogToJira() {
+			@Override
+			protected void process(Event event) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				processed.add(event.getMessage());
+			}
+		});
+		appender.setWorkers(1);
+	}
+
+	@After
+	public void close() {
+		release.countDown();
+		appender.close();
+	}
+
+	@Test
+	public void appendTakesNoLock() throws InterruptedException {
+		appender.activateOptions();
+
+		final CountDownLatch appended = new CountDownLatch(1);
+		Thread other = new Thread() {
+			@Override
+			public void run() {
+				appender.doAppend(createTestLoggingEvent(Level.ERROR, "1"));
+				appended.countDown();
+			}
+		};
+
+		synchronized (appender) {
+			// log4j's doAppend would wait for this monitor
+			other.start();
+			assertTrue(appended.await(1, TimeUnit.SECONDS));
+		}
+
+		release.countDown();
+		appender.close();
+		assertEquals(Arrays.asList("1"), processed);
+	}
+
+	@Test
+	public void thresholdAndFiltersApply() {
+		appender.setThreshold(Level.ERROR);
+		appender.addFilter(new Filter() {
+			@Override
+			public int decide(LoggingEvent loggingEvent) {
+				return "denied".equals(loggingEvent.getMessage()) ? DENY : NEUTRAL;
+			}
+		});
+		appender.activateOptions();
+
+		appender.doAppend(createTestLoggingEvent(Level.WARN, "warn"));
+		appender.doAppend(createTestLoggingEvent(Level.ERROR, "denied"));
+		appender.doAppend(createTestLoggingEvent(Level.ERROR, "accepted"));
+
+		release.countDown();
+		appender.close();
+		assertEquals(Arrays.asList("accepted"), processed);
+		assertEquals(1, appender.getMetrics().getEventsReceived());
+	}
+
+	@Test
+	public void closedAppenderTakesNoEvents() {
+		appender.activateOptions();
+		appender.close();
+
+		appender.doAppend(createTestLoggingEvent(Level.ERROR, "late"));
+
+		assertEquals(0, appender.getMetrics().getEventsReceived());
+	}
+
+	private LoggingEvent createTestLoggingEvent(Level level, String message) {
+		Logger log = Logger.getLogger(ConcurrentLogToJiraAppenderTest.class);
+		return new LoggingEvent(null, log, level, message, null);
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import ee.ignite.logtojira.log4j.Plugin;
+import ee.ignite.logtojira.log4j.PluginBridge;
+import ee.ignite.logtojira.plugin.EventPlugin;
+import ee.ignite.logtojira.plugin.MDCPlugin;
+
+
+public class LogToJiraAppenderTest {
+
+	private final List<EventPlugin> plugins = new ArrayList<EventPlugin>();
+	private final List<Event> appended = new ArrayList<Event>();
+	private LogToJiraAppender appender;
+
+	@Before
+	public void init() {
+		appender = new LogToJiraAppender(new LogToJira() {
+
+			@Override
+			public void append(Event event) {
+				appended.add(event);
+			}
+
+			@Override
+			public void setPlugins(List<EventPlugin> plugins) {
+				LogToJiraAppenderTest.this.plugins.clear();
+				LogToJiraAppenderTest.this.plugins.addAll(plugins);
+			}
+
+			@Override
+			public void addPlugin(EventPlugin plugin) {
+				plugins.add(plugin);
+			}
+		});
+	}
+
+	@Test
+	public void eventIsHandedOverAsCoreEvent() {
+		Logger log = Logger.getLogger(LogToJiraAppenderTest.class);
+
+		appender.append(new LoggingEvent(null, log, Level.ERROR, "tstmsg", null));
+
+		assertEquals(1, appended.size());
+		assertEquals("tstmsg", appended.get(0).getMessage());
+		assertEquals("ERROR", appended.get(0).getLevel());
+	}
+
+	@Test
+	public void legacyPluginsAreBridged() throws Exception {
+		Plugin legacy = new LegacyPlugin();
+
+		appender.setPlugins(Arrays.asList(legacy));
+		assertSame(legacy, ((PluginBridge) plugins.get(0)).getPlugin());
+
+		plugins.clear();
+		appender.setPlugins(LegacyPlugin.class.getName() + ", " + MDCPlugin.class.getName());
+		assertTrue(((PluginBridge) plugins.get(0)).getPlugin() instanceof LegacyPlugin);
+		assertTrue(plugins.get(1) instanceof MDCPlugin);
+		assertEquals("ERROR tstmsg", plugins.get(0).getText(
+				new Event("a.B", "ERROR", 0, "tstmsg", "main", null, null, null, null)));
+	}
+
+	public static class LegacyPlugin implements Plugin {
+
+		@Override
+		public String getText(LoggingEvent loggingEvent) {
+			return loggingEvent.getLevel() + " " + loggingEvent.getRenderedMessage();
+		}
+	}
+}
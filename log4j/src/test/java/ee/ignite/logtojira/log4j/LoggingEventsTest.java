@@ -0,0 +1,93 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.log4j;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+import org.junit.Test;
+
+import ee.ignite.logtojira.Event;
+
+
+public class LoggingEventsTest {
+
+	private static final Logger LOGGER = Logger.getLogger(LoggingEventsTest.class);
+
+	@Test
+	public void eventIsCopiedOnLoggingThread() {
+		Throwable throwable = new IllegalStateException("boom");
+		MDC.put("user", "admin");
+		NDC.push("request");
+		Event event;
+		try {
+			event = LoggingEvents.toEvent(new LoggingEvent(Logger.class.getName(), LOGGER, 1234L, Level.WARN,
+					"message", throwable));
+		} finally {
+			MDC.remove("user");
+			NDC.remove();
+		}
+
+		assertEquals(LOGGER.getName(), event.getLoggerName());
+		assertEquals("WARN", event.getLevel());
+		assertEquals(1234L, event.getTimeStamp());
+		assertEquals("message", event.getMessage());
+		assertEquals(Thread.currentThread().getName(), event.getThreadName());
+		assertSame(throwable, event.getThrowable());
+		assertEquals("request", event.getNdc());
+		assertEquals("admin", event.getMdc().get("user"));
+	}
+
+	@Test
+	public void deserializedEventKeepsLines() {
+		String[] lines = { "java.lang.IllegalStateException: boom", "\tat a.B.c(B.java:1)" };
+
+		Event event = LoggingEvents.toEvent(new LoggingEvent(null, LOGGER, 0, Level.ERROR, "message", "main",
+				new ThrowableInformation(lines), null, null, null));
+
+		assertNull(event.getThrowable());
+		assertEquals("\tat a.B.c(B.java:1)", event.getThrowableLines()[1]);
+	}
+
+	@Test
+	public void eventIsCopiedBackForPlugins() {
+		Event event = new Event("com.example.Foreign", "SEVERE", 1234L, "message", "worker-1", "request",
+				Collections.singletonMap("user", "admin"), null,
+				new String[] { "java.lang.IllegalStateException: boom", "\tat a.B.c(B.java:1)" });
+
+		LoggingEvent loggingEvent = LoggingEvents.toLoggingEvent(event);
+
+		assertEquals("com.example.Foreign", loggingEvent.getLoggerName());
+		assertEquals(Level.ERROR, loggingEvent.getLevel());
+		assertEquals(1234L, loggingEvent.getTimeStamp());
+		assertEquals("message", loggingEvent.getRenderedMessage());
+		assertEquals("worker-1", loggingEvent.getThreadName());
+		assertEquals("request", loggingEvent.getNDC());
+		assertEquals("admin", loggingEvent.getMDC("user"));
+		assertEquals("\tat a.B.c(B.java:1)", loggingEvent.getThrowableStrRep()[1]);
+		assertNull(LogManager.exists("com.example.Foreign"));
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.log4j2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.ThreadContext.ContextStack;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.config.plugins.validation.constraints.Required;
+import org.apache.logging.log4j.util.ReadOnlyStringMap;
+
+import ee.ignite.logtojira.ErrorReporter;
+import ee.ignite.logtojira.Event;
+import ee.ignite.logtojira.LogToJira;
+
+/**
+ * Log4j 2 appender that hands events over to the async workers of the core.
+ * The params of the core are given as properties:
+ *
+ * <pre>{@code
+ * <LogToJira name="jira">
+ *     <Property name="url">http://localhost:2990/jira/rpc/soap/jirasoapservice-v2</Property>
+ *     <Property name="project">TST</Property>
+ * </LogToJira>
+ * }</pre>
+ *
+ * Async loggers and garbage-free logging reuse their events, so only the
+ * parts the core needs are copied before append returns. Nothing waits for
+ * JIRA or for queue space on the logging thread, which may be the one
+ * draining the async logger ring buffer.
+ */
+@Plugin(name = "LogToJira", category = Core.CATEGORY_NAME, elementType = Appender.ELEMENT_TYPE, printObject = true)
+public class JiraAppender extends AbstractAppender {
+
+	private final LogToJira jira;
+
+	private JiraAppender(String name, Filter filter, LogToJira jira) {
+		super(name, filter, null, true, Property.EMPTY_ARRAY);
+		this.jira = jira;
+		jira.setErrorReporter(new ErrorReporter() {
+			@Override
+			public void error(String message, Exception e) {
+				JiraAppender.this.error(message, e);
+			}
+		});
+	}
+
+	@PluginFactory
+	public static JiraAppender createAppender(@PluginAttribute("name") @Required String name,
+			@PluginElement("Filter") Filter filter, @PluginElement("Properties") Property[] params) {
+
+		LogToJira jira = new LogToJira();
+		jira.setName(name);
+
+		if (params != null) {
+			for (Property param : params) {
+				if ("overflowPolicy".equals(param.getName()) && "block".equalsIgnoreCase(param.getValue())) {
+					LOGGER.error("LogToJira appender {} must not block the logging thread, overflowPolicy block ignored",
+							name);
+					continue;
+				}
+				try {
+					jira.setParam(param.getName(), param.getValue());
+				} catch (IllegalArgumentException e) {
+					LOGGER.error("LogToJira appender {}: {}", name, e.getMessage());
+				}
+			}
+		}
+
+		return new JiraAppender(name, filter, jira);
+	}
+
+	@Override
+	public void start() {
+		jira.setAsync(true);
+		jira.start();
+		super.start();
+	}
+
+	@Override
+	public boolean stop(long timeout, TimeUnit timeUnit) {
+		setStopping();
+		boolean stopped = super.stop(timeout, timeUnit, false);
+		jira.close();
+		setStopped();
+		return stopped;
+	}
+
+	@Override
+	public void append(LogEvent event) {
+		if (jira.isEnabled()) {
+			jira.append(copy(event));
+		}
+	}
+
+	static Event copy(LogEvent event) {
+
+		ReadOnlyStringMap contextData = event.getContextData();
+
+		return new Event(event.getLoggerName(), event.getLevel().getStandardLevel().name(), event.getTimeMillis(),
+				event.getMessage().getFormattedMessage(), event.getThreadName(), ndc(event.getContextStack()),
+				contextData != null && !contextData.isEmpty() ? contextData.toMap() : null, event.getThrown(), null);
+	}
+
+	/**
+	 * Same as the log4j 1.2 NDC, the entries separated by spaces.
+	 */
+	private static String ndc(ContextStack contextStack) {
+
+		if (contextStack == null || contextStack.getDepth() == 0) {
+			return null;
+		}
+
+		StringBuilder ndc = new StringBuilder();
+		for (String entry : contextStack.asList()) {
+			if (ndc.length() > 0) {
+				ndc.append(' ');
+			}
+			ndc.append(entry);
+		}
+		return ndc.toString();
+	}
+}
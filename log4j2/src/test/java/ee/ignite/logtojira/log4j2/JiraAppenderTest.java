@@ -0,0 +1,88 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.log4j2;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.ContextDataFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.impl.MutableLogEvent;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.spi.MutableThreadContextStack;
+import org.apache.logging.log4j.util.StringMap;
+import org.junit.Test;
+
+import ee.ignite.logtojira.Event;
+
+
+public class JiraAppenderTest {
+
+	@Test
+	public void reusedEventIsCopied() {
+		Throwable throwable = new IllegalStateException("boom");
+		StringMap contextData = ContextDataFactory.createContextData();
+		contextData.putValue("user", "admin");
+
+		LogEvent source = Log4jLogEvent.newBuilder()
+				.setLoggerName("com.example.Service")
+				.setLevel(Level.ERROR)
+				.setMessage(new ParameterizedMessage("order {} failed", 42))
+				.setThreadName("worker-1")
+				.setTimeMillis(1234L)
+				.setThrown(throwable)
+				.setContextData(contextData)
+				.setContextStack(new MutableThreadContextStack(Arrays.asList("request", "order")))
+				.build();
+		MutableLogEvent reused = new MutableLogEvent();
+		reused.initFrom(source);
+
+		Event copy = JiraAppender.copy(reused);
+		reused.clear();
+
+		assertEquals("com.example.Service", copy.getLoggerName());
+		assertEquals("ERROR", copy.getLevel());
+		assertEquals("order 42 failed", copy.getMessage());
+		assertEquals("worker-1", copy.getThreadName());
+		assertEquals(1234L, copy.getTimeStamp());
+		assertSame(throwable, copy.getThrowable());
+		assertEquals("admin", copy.getMdc().get("user"));
+		assertEquals("request order", copy.getNdc());
+	}
+
+	@Test
+	public void emptyContextIsNotCopied() {
+		LogEvent source = Log4jLogEvent.newBuilder()
+				.setLoggerName("com.example.Service")
+				.setLevel(Level.WARN)
+				.setMessage(new ParameterizedMessage("plain", (Object[]) null))
+				.build();
+
+		Event copy = JiraAppender.copy(source);
+
+		assertEquals("WARN", copy.getLevel());
+		assertFalse(copy.hasThrowable());
+		assertNull(copy.getNdc());
+		assertTrue(copy.getMdc().isEmpty());
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.logback;
+
+import java.util.regex.Pattern;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+import ee.ignite.logtojira.ErrorReporter;
+import ee.ignite.logtojira.Event;
+import ee.ignite.logtojira.LogToJira;
+
+/**
+ * Logback appender that hands events over to the async workers of the core,
+ * without the lock of AppenderBase. The params of the core are given as
+ * param elements:
+ *
+ * <pre>{@code
+ * <appender name="jira" class="ee.ignite.logtojira.logback.JiraAppender">
+ *     <param><name>url</name><value>http://localhost:2990/jira/rpc/soap/jirasoapservice-v2</value></param>
+ *     <param><name>project</name><value>TST</value></param>
+ * </appender>
+ * }</pre>
+ */
+public class JiraAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+	private static final Pattern LINE_BREAK = Pattern.compile("\r?\n");
+
+	private final LogToJira jira = new LogToJira();
+
+	public JiraAppender() {
+		jira.setErrorReporter(new ErrorReporter() {
+			@Override
+			public void error(String message, Exception e) {
+				addError(message, e);
+			}
+		});
+	}
+
+	public void addParam(Param param) {
+		try {
+			jira.setParam(param.getName(), param.getValue());
+		} catch (IllegalArgumentException e) {
+			addError(e.getMessage());
+		}
+	}
+
+	@Override
+	public void start() {
+		jira.setName(getName());
+		jira.setAsync(true);
+		jira.start();
+		super.start();
+	}
+
+	@Override
+	public void stop() {
+		super.stop();
+		jira.close();
+	}
+
+	@Override
+	protected void append(ILoggingEvent event) {
+		if (jira.isEnabled()) {
+			jira.append(copy(event));
+		}
+	}
+
+	static Event copy(ILoggingEvent event) {
+
+		IThrowableProxy proxy = event.getThrowableProxy();
+		Throwable throwable = null;
+		String[] lines = null;
+
+		if (proxy instanceof ThrowableProxy) {
+			throwable = ((ThrowableProxy) proxy).getThrowable();
+		} else if (proxy != null) {
+			// deserialized from a remote application, only the lines are left
+			lines = LINE_BREAK.split(ThrowableProxyUtil.asString(proxy));
+		}
+
+		return new Event(event.getLoggerName(), event.getLevel().toString(), event.getTimeStamp(),
+				event.getFormattedMessage(), event.getThreadName(), null, event.getMDCPropertyMap(), throwable,
+				lines);
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2010 Ignite OÜ (www.ignite.ee)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+*/
+package ee.ignite.logtojira.logback;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEventVO;
+
+import ee.ignite.logtojira.Event;
+
+
+public class JiraAppenderTest {
+
+	private final Logger logger = new LoggerContext().getLogger("com.example.Service");
+
+	@Test
+	public void eventIsCopied() {
+		Throwable throwable = new IllegalStateException("boom");
+		LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.ERROR, "order {} failed",
+				throwable, new Object[] { 42 });
+		event.setMDCPropertyMap(Collections.singletonMap("user", "admin"));
+
+		Event copy = JiraAppender.copy(event);
+
+		assertEquals("com.example.Service", copy.getLoggerName());
+		assertEquals("ERROR", copy.getLevel());
+		assertEquals("order 42 failed", copy.getMessage());
+		assertEquals(event.getThreadName(), copy.getThreadName());
+		assertEquals(event.getTimeStamp(), copy.getTimeStamp());
+		assertSame(throwable, copy.getThrowable());
+		assertEquals("admin", copy.getMdc().get("user"));
+		assertNull(copy.getNdc());
+	}
+
+	@Test
+	public void remoteEventKeepsStackTraceLines() {
+		LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, Level.WARN, "failed",
+				new IllegalStateException("boom"), null);
+		event.setMDCPropertyMap(Collections.<String, String>emptyMap());
+
+		Event copy = JiraAppender.copy(LoggingEventVO.build(event));
+
+		assertEquals("WARN", copy.getLevel());
+		assertNull(copy.getThrowable());
+		assertEquals("java.lang.IllegalStateException: boom", copy.getThrowableLines()[0]);
+	}
+}
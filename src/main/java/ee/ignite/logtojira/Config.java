@@ -1,56 +0,0 @@
-/**
- * Copyright 2010 Ignite OÜ (www.ignite.ee)
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- * http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
-*/
-package ee.ignite.logtojira;
-
-public class Config {
-
-	private String username;
-	private String password;
-	private String project;
-	private String issueTypeId;
-
-	public String getProject() {
-		return project;
-	}
-
-	public void setProject(String project) {
-		this.project = project;
-	}
-
-	public String getIssueTypeId() {
-		return issueTypeId;
-	}
-
-	public void setIssueTypeId(String issueTypeId) {
-		this.issueTypeId = issueTypeId;
-	}
-
-	public String getUsername() {
-		return username;
-	}
-
-	public void setUsername(String username) {
-		this.username = username;
-	}
-
-	public String getPassword() {
-		return password;
-	}
-
-	public void setPassword(String password) {
-		this.password = password;
-	}
-}